@@ -0,0 +1,80 @@
+package fr.apithinking.apigreenscore.demo;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.lang3.StringUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the {@code fields} parameter per request: the previous per-row re-parsing and
+ * {@link Address} copy against the compiled {@link RecordProjection}. Compare
+ * {@code gc.alloc.rate.norm} (bytes allocated per request) between both.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AddressProjectionBenchmark {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Param({"10", "100", "1000"})
+    public int rows;
+
+    @Param({"street", "street,city"})
+    public String fields;
+
+    private List<Address> addresses;
+
+    @Setup
+    public void setUp() {
+        addresses = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            addresses.add(new Address(i + " avenue des Champs-Elysées", "Paris"));
+        }
+    }
+
+    @Benchmark
+    public void legacy() throws IOException {
+        List<Address> body = addresses.stream()
+                .map(address -> {
+                    if (StringUtils.isEmpty(fields)) {
+                        return address;
+                    }
+                    String streetOut = null;
+                    String cityOut = null;
+                    if (StringUtils.containsIgnoreCase(fields, "street")) {
+                        streetOut = address.street();
+                    }
+                    if (StringUtils.containsIgnoreCase(fields, "city")) {
+                        cityOut = address.city();
+                    }
+                    return new Address(streetOut, cityOut);
+                })
+                .toList();
+        MAPPER.writeValue(OutputStream.nullOutputStream(), body);
+    }
+
+    @Benchmark
+    public void projection() throws IOException {
+        MAPPER.writeValue(OutputStream.nullOutputStream(),
+                new ProjectedList<>(addresses, RecordProjection.parse(Address.class, fields)));
+    }
+}
@@ -0,0 +1,81 @@
+package fr.apithinking.apigreenscore.demo;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The pipeline of {@code GET /addresses/address} without HTTP: indexed search,
+ * compiled {@code fields} projection and JSON serialization of the page.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AddressSearchBenchmark {
+
+    private static final String[] CITIES = {"Paris", "Marseille", "Lyon", "Nantes", "Orléans", "Lille", "Bordeaux", "Rennes"};
+    private static final String[] STREETS = {"rue de la Paix", "avenue des Champs-Elysées", "boulevard Haussmann",
+            "rue des Plantes", "place Bellecour", "quai de la Fosse"};
+
+    /** Size of the catalogue. */
+    @Param({"1000", "100000"})
+    public int rows;
+
+    /** Page size, i.e. size of the response. */
+    @Param({"10", "100"})
+    public int limit;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private IndexedAddressRepository repository;
+    private RecordProjection<Address> projection;
+
+    @Setup
+    public void setUp() {
+        List<Address> addresses = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            addresses.add(new Address(i + " " + STREETS[i % STREETS.length], CITIES[(i / STREETS.length) % CITIES.length]));
+        }
+        repository = new IndexedAddressRepository(addresses);
+        projection = RecordProjection.parse(Address.class, "street");
+    }
+
+    /** Unfiltered page: the cost is the projection and the serialization. */
+    @Benchmark
+    public void firstPage() throws IOException {
+        write(repository.search(null, null, 0, limit));
+    }
+
+    /** Substring match on the city, with accents folded. */
+    @Benchmark
+    public void cityFilter() throws IOException {
+        write(repository.search(null, "orle", 0, limit));
+    }
+
+    /** Both filters: intersection of the two posting lists. */
+    @Benchmark
+    public void streetAndCityFilter() throws IOException {
+        write(repository.search("paix", "mar", 0, limit));
+    }
+
+    private void write(AddressPage page) throws IOException {
+        mapper.writeValue(OutputStream.nullOutputStream(), new ProjectedList<>(page.addresses(), projection));
+    }
+}
@@ -0,0 +1,71 @@
+package fr.apithinking.apigreenscore.demo;
+
+import org.json.JSONObject;
+import org.json.XML;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON → XML conversion of {@code /api/json2xml}: the former in-memory {@code org.json.XML}
+ * conversion (whole document, then whole XML string) against the streaming converter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonToXmlBenchmark {
+
+    /** Items of the document: about 90 bytes of JSON each. */
+    @Param({"10", "1000", "50000"})
+    public int items;
+
+    private byte[] json;
+    private String jsonText;
+
+    @Setup
+    public void setUp() {
+        StringBuilder builder = new StringBuilder("{\"addresses\":{\"address\":[");
+        for (int i = 0; i < items; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append("{\"id\":").append(i)
+                    .append(",\"street\":\"").append(i).append(" rue de la Paix\"")
+                    .append(",\"city\":\"Orléans\",\"active\":true,\"score\":").append(i % 100).append(".5}");
+        }
+        builder.append("]}}");
+        jsonText = builder.toString();
+        json = jsonText.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String orgJsonXml() {
+        return XML.toString(new JSONObject(jsonText));
+    }
+
+    @Benchmark
+    public void streamingConverter() throws IOException {
+        Writer xml = new OutputStreamWriter(OutputStream.nullOutputStream(), StandardCharsets.UTF_8);
+        JsonToXmlStreamConverter.convert(new ByteArrayInputStream(json), xml);
+        xml.flush();
+    }
+}
@@ -0,0 +1,94 @@
+package fr.apithinking.apigreenscore.demo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link LogService#logApiCall} against the H2 database of the application, as wired by Spring:
+ * one JPA insert per call ({@code sync}) or a queue drained by JDBC batches ({@code async}),
+ * on an empty table or on one that already holds many rows (index maintenance).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LogServiceBenchmark {
+
+    private static final String[] URLS = {"https://api.example.com/addresses", "https://api.example.com/logs/stats",
+            "https://api.example.com/json2xml?url=https%3A%2F%2Fdata.example.com%2Fdocument.json"};
+
+    /** {@code apigreenscore.logs.writer.mode}. */
+    @Param({"sync", "async"})
+    public String mode;
+
+    /** Rows already in {@code log_entry}. */
+    @Param({"0", "100000"})
+    public int existingRows;
+
+    private ConfigurableApplicationContext context;
+    private LogService logService;
+    private PrintStream stdout;
+
+    @Setup
+    public void setUp() {
+        // logApiCall écrit chaque entrée sur la sortie standard : coût conservé, console épargnée
+        stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        context = new SpringApplicationBuilder(ApiGreenScoreDemoApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--apigreenscore.logs.writer.mode=" + mode,
+                        "--spring.datasource.url=jdbc:h2:mem:bench-" + mode + "-" + existingRows,
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.root=WARN",
+                        "--logging.level.fr.apithinking.apigreenscore=WARN",
+                        "--logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN");
+        logService = context.getBean(LogService.class);
+
+        LogEntryBatchWriter batchWriter = context.getBean(LogEntryBatchWriter.class);
+        List<LogEntry> chunk = new ArrayList<>(10_000);
+        for (int i = 0; i < existingRows; i++) {
+            chunk.add(LogService.newEntry(URLS[i % URLS.length], "10.0.0." + (i % 250), i % 500, i % 20_000, 200, null, false));
+            if (chunk.size() == 10_000) {
+                batchWriter.insertAll(chunk);
+                chunk.clear();
+            }
+        }
+        batchWriter.insertAll(chunk);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+        System.setOut(stdout);
+    }
+
+    @Benchmark
+    public void logApiCall() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        logService.logApiCall(URLS[random.nextInt(URLS.length)], "127.0.0.1", random.nextInt(500),
+                random.nextInt(20_000), 200);
+    }
+}
@@ -0,0 +1,96 @@
+package fr.apithinking.apigreenscore.demo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write throughput of the two {@link LogStore} backends, as wired by Spring, in entries per second:
+ * the {@code log_entry} table of the in-memory H2 database ({@code jdbc}) and the segment files
+ * ({@code file}), by single entries (synchronous writer) or by batches (asynchronous writer).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LogStoreBenchmark {
+
+    private static final int BATCH_SIZE = 500;
+    private static final String[] URLS = {"https://api.example.com/addresses", "https://api.example.com/logs/stats",
+            "https://api.example.com/json2xml?url=https%3A%2F%2Fdata.example.com%2Fdocument.json"};
+
+    /** {@code apigreenscore.logs.store.type}. */
+    @Param({"jdbc", "file"})
+    public String store;
+
+    private ConfigurableApplicationContext context;
+    private LogStore logStore;
+    private Path directory;
+    private List<LogEntry> batch;
+    private LogEntry single;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("log-store-bench");
+        context = new SpringApplicationBuilder(ApiGreenScoreDemoApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--apigreenscore.logs.store.type=" + store,
+                        "--apigreenscore.logs.store.directory=" + directory,
+                        "--apigreenscore.logs.writer.mode=sync",
+                        "--apigreenscore.logs.retention.enabled=false",
+                        "--spring.datasource.url=jdbc:h2:mem:bench-store-" + store,
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.root=WARN",
+                        "--logging.level.fr.apithinking.apigreenscore=WARN",
+                        "--logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN");
+        logStore = context.getBean(LogStore.class);
+
+        batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch.add(LogService.newEntry(URLS[i % URLS.length], "10.0.0." + (i % 250), i % 500, i % 20_000, 200,
+                    null, false));
+        }
+        single = batch.get(0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public void appendOne() {
+        logStore.append(single);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void appendBatch() {
+        logStore.append(batch);
+    }
+}
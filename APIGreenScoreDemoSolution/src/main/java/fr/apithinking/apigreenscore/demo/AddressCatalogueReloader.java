@@ -0,0 +1,118 @@
+package fr.apithinking.apigreenscore.demo;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Loads the address catalogue from its resource, then reloads it whenever the file changes.
+ * <p>
+ * The file is polled (modification time and length) every {@code reload-interval}. A changed
+ * file is read and indexed on the scheduler thread, then published by
+ * {@link ReloadableAddressRepository#reload(IndexedAddressRepository)}: searches keep running
+ * against the previous catalogue meanwhile. A file that fails to parse leaves the current
+ * catalogue in place; one that changes again while being read is retried at the next poll
+ * (replacing the file by an atomic rename avoids it). Resources that are not files, such as
+ * a classpath entry inside the jar, are loaded once.
+ */
+@Slf4j
+public class AddressCatalogueReloader {
+
+    private final Resource resource;
+    private final boolean enabled;
+    private final ReloadableAddressRepository repository;
+    private FileStamp loaded;
+
+    public AddressCatalogueReloader(Resource resource, boolean enabled) throws IOException {
+        this.resource = resource;
+        this.enabled = enabled;
+        FileStamp stamp = stamp();
+        this.repository = new ReloadableAddressRepository(load());
+        this.loaded = stamp;
+    }
+
+    public ReloadableAddressRepository repository() {
+        return repository;
+    }
+
+    @Scheduled(fixedDelayString = "${apigreenscore.addresses.reload-interval:10s}",
+            initialDelayString = "${apigreenscore.addresses.reload-interval:10s}")
+    public void scheduledCheck() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            reloadIfChanged();
+        } catch (RuntimeException e) {
+            log.warn("Échec du rechargement du catalogue d'adresses {}", resource.getDescription(), e);
+        }
+    }
+
+    /**
+     * Reloads the catalogue if the file changed since the last load.
+     *
+     * @return whether a catalogue with a new content was published
+     */
+    public synchronized boolean reloadIfChanged() {
+        FileStamp before = stamp();
+        if (before == null || before.equals(loaded)) {
+            return false;
+        }
+        IndexedAddressRepository catalogue = null;
+        Exception failure = null;
+        try {
+            catalogue = load();
+        } catch (IOException | RuntimeException e) {
+            failure = e;
+        }
+        if (!before.equals(stamp())) {
+            // Fichier en cours d'écriture : relu au prochain passage
+            return false;
+        }
+        loaded = before;
+        if (failure != null) {
+            log.warn("Catalogue d'adresses {} illisible, le précédent est conservé", resource.getDescription(), failure);
+            return false;
+        }
+        if (catalogue.version().equals(repository.version())) {
+            return false;
+        }
+        repository.reload(catalogue);
+        return true;
+    }
+
+    private IndexedAddressRepository load() throws IOException {
+        long start = System.currentTimeMillis();
+        IndexedAddressRepository.Builder builder = new IndexedAddressRepository.Builder();
+        try (InputStream csv = resource.getInputStream()) {
+            AddressCsvLoader.read(csv, builder::add);
+        }
+        IndexedAddressRepository catalogue = builder.build();
+        log.info("Catalogue d'adresses chargé depuis {} : {} adresses indexées en {} ms, ~{} Ko en mémoire (version {})",
+                resource.getDescription(), catalogue.size(), System.currentTimeMillis() - start,
+                catalogue.memoryBytes() / 1024, catalogue.version());
+        return catalogue;
+    }
+
+    /**
+     * Modification time and length of the file, or {@code null} if the resource is not a
+     * readable file.
+     */
+    private FileStamp stamp() {
+        if (!resource.isFile()) {
+            return null;
+        }
+        try {
+            return new FileStamp(resource.lastModified(), resource.contentLength());
+        } catch (IOException e) {
+            // Fichier absent le temps d'un remplacement : revu au prochain passage
+            return null;
+        }
+    }
+
+    private record FileStamp(long lastModified, long length) {
+    }
+}
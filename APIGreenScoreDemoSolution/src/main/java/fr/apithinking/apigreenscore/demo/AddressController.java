@@ -4,13 +4,15 @@ import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.math.NumberUtils;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
-import java.util.List;
+import java.math.BigInteger;
 
 // Annotation NON_NULL pour ne pas générer les champs à null
 @JsonInclude(JsonInclude.Include.NON_NULL)
@@ -23,114 +25,83 @@ record Address(String street, String city) {
 @Slf4j
 public class AddressController {
 
-    private static final List<Address> addresses = List.of(
-            new Address("10 avenue des Champs-Elysées", "Paris"),
-            new Address("15 rue des Plantes", "Nantes"),
-            new Address("5 rue de la Paix", "Lyon"),
-            new Address("12 boulevard Haussmann", "Marseille"),
-            new Address("50 rue Nationale", "Bordeaux"),
-            new Address("20 avenue des Champs-Elysées", "Paris"),
-            new Address("25 rue des Plantes", "Nantes"),
-            new Address("10 rue de la Paix", "Lyon"),
-            new Address("22 boulevard Haussmann", "Marseille"),
-            new Address("60 rue Nationale", "Bordeaux"),
-            new Address("30 avenue des Champs-Elysées", "Paris"),
-            new Address("35 rue des Plantes", "Nantes"),
-            new Address("15 rue de la Paix", "Lyon"),
-            new Address("32 boulevard Haussmann", "Marseille"),
-            new Address("70 rue Nationale", "Bordeaux"),
-            new Address("40 avenue des Champs-Elysées", "Paris"),
-            new Address("45 rue des Plantes", "Nantes"),
-            new Address("20 rue de la Paix", "Lyon"),
-            new Address("42 boulevard Haussmann", "Marseil  le"),
-            new Address("80 rue Nationale", "Bordeaux"),
-            new Address("50 avenue des Champs-Elysées", "Paris"),
-            new Address("55 rue des Plantes", "Nantes"),
-            new Address("25 rue de la Paix", "Lyon"),
-            new Address("52 boulevard Haussmann", "Marseille"),
-            new Address("90 rue Nationale", "Bordeaux"),
-            new Address("60 avenue des Champs-Elysées", "Paris"),
-            new Address("65 rue des Plantes", "Nantes"),
-            new Address("30 rue de la Paix", "Lyon"),
-            new Address("62 boulevard Haussmann", "Marseille"),
-            new Address("100 rue Nationale", "Bordeaux"),
-            new Address("70 avenue des Champs-Elysées", "Paris"),
-            new Address("75 rue des Plantes", "Nantes"),
-            new Address("35 rue de la Paix", "Lyon"),
-            new Address("72 boulevard Haussmann", "Marseille"),
-            new Address("110 rue Nationale", "Bordeaux"),
-            new Address("80 avenue des Champs-Elysées", "Paris"),
-            new Address("85 rue des Plantes", "Nantes"),
-            new Address("40 rue de la Paix", "Lyon"),
-            new Address("82 boulevard Haussmann", "Marseille"),
-            new Address("120 rue Nationale", "Bordeaux"),
-            new Address("90 avenue des Champs-Elysées", "Paris"),
-            new Address("95 rue des Plantes", "Nantes"),
-            new Address("45 rue de la Paix", "Lyon"),
-            new Address("92 boulevard Haussmann", "Marseille"),
-            new Address("130 rue Nationale", "Bordeaux"),
-            new Address("100 avenue des Champs-Elysées", "Paris"),
-            new Address("105 rue des Plantes", "Nantes"),
-            new Address("10  avenue du Genetay", "Nantua"),
-            new Address("5 Chemin de Bretagne", "Issy Les Moulineaux"),
-            new Address("ru de Bretagne", "Paimpont"),
-            new Address("50 rue de la Paix", "Lyon"),
-            new Address("102 boulevard Haussmann", "Marseille"),
-            new Address("chemin des pecheurs", "Marseillan"),
-            new Address("140 rue Nationale", "Bordeaux")
-    );
+    private static final String LIMIT_ERROR_MESSAGE = "limitStr doit être un entier strictement positif : ";
+
+    private final AddressRepository addressRepository;
+    private final AddressProperties properties;
+
+    public AddressController(AddressRepository addressRepository, AddressProperties properties) {
+        this.addressRepository = addressRepository;
+        this.properties = properties;
+    }
 
     /**
-     * Endpoint to get a list of addresses filtered by street and city.
+     * Endpoint to get a list of addresses filtered by street and city
+     * (substring match, ignoring case and accents).
+     * <p>
+     * Results are paginated: when more addresses match, a {@code Link: <...>; rel="next"}
+     * header gives the URL of the next page, carrying an opaque {@code cursor}. A cursor from
+     * before a reload of the catalogue is rejected: the client starts again from the first page.
      *
-     * @param limitStr the maximum number of addresses to return
+     * @param limitStr the maximum number of addresses to return (capped to the maximum page size)
+     * @param cursor the cursor of the page to return, taken from the previous {@code next} link (optional)
      * @param street the street name to filter by (optional)
      * @param city the city name to filter by (optional)
-     * @param fields the fields to include in the response (optional)
+     * @param fields comma-separated fields to include in the response, dotted for nested fields (optional)
      * @return a list of addresses matching the filters
      */
     @GetMapping(value = "/address")
-    public ResponseEntity<List<Address>> getAddresses(
+    public ResponseEntity<?> getAddresses(
             @RequestParam(defaultValue = "2") String limitStr,
+            @RequestParam(required = false) String cursor,
             @RequestParam(required = false) String street,
             @RequestParam(required = false) String city,
             @RequestParam(required = false) String fields) {
 
-        return ResponseEntity.ok()
-                .body(addresses.stream()
-                        .filter(address -> {
-                            if (StringUtils.isEmpty(city)) {
-                                return true;
-                            }
-                            return StringUtils.containsIgnoreCase(address.city(), city);
-                        })
-                        .filter(address -> {
-                            if (StringUtils.isEmpty(street)) {
-                                return true;
-                            }
-                            return StringUtils.containsIgnoreCase(address.street(), street);
-                        })
-                        .map(address -> {
-                            // Pas de filtre, je renvoie tout
-                            if (StringUtils.isEmpty(fields)) {
-                                return address;
-                            }
+        int limit = pageSize(limitStr, properties.getMaxPageSize());
+        if (limit <= 0) {
+            return ResponseEntity.badRequest().body(LIMIT_ERROR_MESSAGE + limitStr);
+        }
 
-                            // Un filtre, je ne renvoie que les champs demandés
-                            String streetOut = null;
-                            String cityOut = null;
-                            if (StringUtils.containsIgnoreCase(fields, "street")) {
-                                streetOut = address.street();
-                            }
-                            if (StringUtils.containsIgnoreCase(fields, "city")) {
-                                cityOut = address.city();
-                            }
+        // Même catalogue pour le curseur reçu, la recherche et le curseur suivant, même si un rechargement survient
+        AddressRepository catalogue = addressRepository.snapshot();
+        int fromRow = 0;
+        if (StringUtils.isNotEmpty(cursor)) {
+            try {
+                fromRow = AddressCursor.decode(cursor, catalogue.version());
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(e.getMessage());
+            }
+        }
 
-                            return new Address(streetOut, cityOut);
-                        })
-                        .limit(NumberUtils.toInt(limitStr))
-                        .toList());
-    }
-}
+        // Filtrage et limite faits par l'index : seules les lignes candidates sont parcourues
+        AddressPage page = catalogue.search(street, city, fromRow, limit);
 
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.hasNext()) {
+            String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("cursor", AddressCursor.encode(page.nextRow(), catalogue.version()))
+                    .replaceQueryParam("limitStr", limit)
+                    .build()
+                    .toUriString();
+            response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+        }
 
+        // Champs demandés compilés une fois, écrits directement par le sérialiseur
+        return response.body(new ProjectedList<>(page.addresses(), RecordProjection.parse(Address.class, fields)));
+    }
+
+    /**
+     * Page size requested by {@code limitStr}, capped to {@code maxPageSize} however large it is,
+     * or {@code 0} if it is not a strictly positive integer.
+     */
+    static int pageSize(String limitStr, int maxPageSize) {
+        // Plus de conversion silencieuse en 0 : une limite invalide est refusée
+        if (!NumberUtils.isDigits(limitStr)) {
+            return 0;
+        }
+        // Sans borne de taille : une limite au-delà d'un long est plafonnée, pas refusée
+        BigInteger requestedLimit = new BigInteger(limitStr);
+        return requestedLimit.signum() == 0 ? 0 : requestedLimit.min(BigInteger.valueOf(maxPageSize)).intValue();
+    }
+}
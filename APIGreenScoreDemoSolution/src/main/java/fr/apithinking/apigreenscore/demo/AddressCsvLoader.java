@@ -0,0 +1,83 @@
+package fr.apithinking.apigreenscore.demo;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Reads addresses from a UTF-8 CSV file: one {@code street;city} row per line,
+ * optional {@code street;city} header, fields optionally quoted with {@code "}
+ * (a quote inside a quoted field is doubled).
+ */
+final class AddressCsvLoader {
+
+    private static final char SEPARATOR = ';';
+    private static final char QUOTE = '"';
+
+    private AddressCsvLoader() {
+    }
+
+    static List<Address> load(InputStream csv) throws IOException {
+        List<Address> addresses = new ArrayList<>();
+        read(csv, (street, city) -> addresses.add(new Address(street, city)));
+        return addresses;
+    }
+
+    /**
+     * Hands each row to {@code rows} as it is read, so that large files need not be held
+     * in memory as a list.
+     */
+    static void read(InputStream csv, BiConsumer<String, String> rows) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(csv, StandardCharsets.UTF_8));
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (lineNumber == 1 && !line.isEmpty() && line.charAt(0) == '\uFEFF') {
+                line = line.substring(1);
+            }
+            if (line.isBlank() || (lineNumber == 1 && line.equalsIgnoreCase("street;city"))) {
+                continue;
+            }
+            List<String> fields = split(line);
+            if (fields.size() != 2) {
+                throw new IOException("Ligne " + lineNumber + " : 2 colonnes attendues (street;city), "
+                        + fields.size() + " trouvées");
+            }
+            rows.accept(fields.get(0), fields.get(1));
+        }
+    }
+
+    private static List<String> split(String line) {
+        List<String> fields = new ArrayList<>(2);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == QUOTE && i + 1 < line.length() && line.charAt(i + 1) == QUOTE) {
+                    field.append(QUOTE);
+                    i++;
+                } else if (c == QUOTE) {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == QUOTE && field.isEmpty()) {
+                quoted = true;
+            } else if (c == SEPARATOR) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
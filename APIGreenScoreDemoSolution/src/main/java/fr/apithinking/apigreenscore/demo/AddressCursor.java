@@ -0,0 +1,52 @@
+package fr.apithinking.apigreenscore.demo;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque pagination cursor of {@code /addresses/address}: the catalogue row the next page
+ * starts from and the version of the catalogue it was computed on, encoded so that clients
+ * do not rely on its content. A row means nothing in another version of the catalogue.
+ */
+final class AddressCursor {
+
+    private static final String PREFIX = "r";
+    private static final char VERSION_SEPARATOR = '@';
+
+    private AddressCursor() {
+    }
+
+    static String encode(int row, String version) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIX + row + VERSION_SEPARATOR + version).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the cursor was not produced by {@link #encode(int, String)}
+     * or belongs to another version of the catalogue
+     */
+    static int decode(String cursor, String version) {
+        String value;
+        try {
+            value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Curseur invalide : " + cursor, e);
+        }
+        int separator = value.indexOf(VERSION_SEPARATOR);
+        if (!value.startsWith(PREFIX) || separator < 0) {
+            throw new IllegalArgumentException("Curseur invalide : " + cursor);
+        }
+        if (!value.substring(separator + 1).equals(version)) {
+            throw new IllegalArgumentException("Curseur périmé : le catalogue a changé, reprendre depuis la première page");
+        }
+        try {
+            int row = Integer.parseInt(value.substring(PREFIX.length(), separator));
+            if (row < 0) {
+                throw new IllegalArgumentException("Curseur invalide : " + cursor);
+            }
+            return row;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Curseur invalide : " + cursor, e);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package fr.apithinking.apigreenscore.demo;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * Conditional GET for {@code /addresses/address}.
+ * <p>
+ * The response only depends on the catalogue content and on the query, so a strong ETag is
+ * computed up front from the catalogue version and the normalized query parameters. A request
+ * whose {@code If-None-Match} matches gets a 304 without reaching the controller: no search,
+ * no projection, no serialization. Unlike {@code ShallowEtagHeaderFilter}, nothing is buffered.
+ * <p>
+ * The {@code Accept} header is part of the key, since it selects the encoding (JSON, CBOR, Smile).
+ */
+public class AddressETagFilter extends OncePerRequestFilter {
+
+    private static final String DEFAULT_LIMIT = "2";
+
+    private final AddressRepository addressRepository;
+    private final AddressProperties properties;
+    private final String cacheControl;
+
+    public AddressETagFilter(AddressRepository addressRepository, AddressProperties properties) {
+        this.addressRepository = addressRepository;
+        this.properties = properties;
+        this.cacheControl = "public, max-age=" + properties.getCacheMaxAge().toSeconds() + ", must-revalidate";
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !HttpMethod.GET.matches(request.getMethod()) && !HttpMethod.HEAD.matches(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String etag = etag(request);
+        if (etag == null) {
+            // Requête invalide : le contrôleur répondra 400, sans ETag
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    /**
+     * Strong ETag of the response to this request, or {@code null} if its parameters are invalid.
+     * Parameters that give the same result (case, accents, order of fields) give the same ETag.
+     */
+    String etag(HttpServletRequest request) {
+        String limitStr = StringUtils.defaultIfEmpty(request.getParameter("limitStr"), DEFAULT_LIMIT);
+        int limit = AddressController.pageSize(limitStr, properties.getMaxPageSize());
+        if (limit <= 0) {
+            return null;
+        }
+        String version = addressRepository.version();
+        String cursor = StringUtils.defaultString(request.getParameter("cursor"));
+        if (!cursor.isEmpty()) {
+            try {
+                AddressCursor.decode(cursor, version);
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+
+        String query = String.join("\n",
+                version,
+                Integer.toString(limit),
+                cursor,
+                IndexedAddressRepository.normalize(request.getParameter("street")),
+                IndexedAddressRepository.normalize(request.getParameter("city")),
+                normalizeFields(request.getParameter("fields")),
+                StringUtils.deleteWhitespace(StringUtils.defaultString(request.getHeader(HttpHeaders.ACCEPT))));
+        MessageDigest sha = IndexedAddressRepository.newSha256();
+        byte[] hash = sha.digest(query.getBytes(StandardCharsets.UTF_8));
+        return "\"" + version + "-" + Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(hash, 12)) + "\"";
+    }
+
+    private static String normalizeFields(String fields) {
+        if (StringUtils.isBlank(fields)) {
+            return "";
+        }
+        return Arrays.stream(fields.split(","))
+                .map(field -> field.trim().toLowerCase(Locale.ROOT))
+                .filter(field -> !field.isEmpty())
+                .sorted()
+                .distinct()
+                .collect(Collectors.joining(","));
+    }
+
+    /**
+     * {@code If-None-Match} uses the weak comparison: {@code W/} prefixes are ignored.
+     */
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
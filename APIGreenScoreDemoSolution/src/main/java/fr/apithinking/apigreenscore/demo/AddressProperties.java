@@ -0,0 +1,29 @@
+package fr.apithinking.apigreenscore.demo;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings of the address catalogue ({@code apigreenscore.addresses.*}).
+ */
+@Data
+@ConfigurationProperties(prefix = "apigreenscore.addresses")
+public class AddressProperties {
+
+    /** Location of the CSV catalogue ({@code classpath:} or {@code file:} resource). */
+    private String file = "classpath:addresses.csv";
+
+    /** Whether the file is polled and the catalogue reloaded when it changes. */
+    private boolean reloadEnabled = true;
+
+    /** Delay between two checks of the file for changes. */
+    private Duration reloadInterval = Duration.ofSeconds(10);
+
+    /** Largest page served by {@code /addresses/address}; bigger {@code limitStr} values are capped. */
+    private int maxPageSize = 100;
+
+    /** How long clients and proxies may reuse an address response before revalidating it with its ETag. */
+    private Duration cacheMaxAge = Duration.ofSeconds(30);
+}
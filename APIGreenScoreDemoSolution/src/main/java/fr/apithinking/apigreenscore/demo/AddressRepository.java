@@ -0,0 +1,55 @@
+package fr.apithinking.apigreenscore.demo;
+
+import java.util.List;
+
+/**
+ * A page of addresses and the row the next page starts from ({@code -1} on the last page).
+ */
+record AddressPage(List<Address> addresses, int nextRow) {
+
+    boolean hasNext() {
+        return nextRow >= 0;
+    }
+}
+
+/**
+ * Read access to the address catalogue.
+ */
+public interface AddressRepository {
+
+    /**
+     * Finds the addresses whose street and city contain the given fragments,
+     * ignoring case and accents, in catalogue order.
+     *
+     * @param street fragment of the street, ignored when empty
+     * @param city fragment of the city, ignored when empty
+     * @param fromRow catalogue row the page starts from ({@code 0} for the first page)
+     * @param limit maximum number of addresses returned
+     */
+    AddressPage search(String street, String city, int fromRow, int limit);
+
+    /**
+     * First page of {@link #search(String, String, int, int)}.
+     */
+    default List<Address> search(String street, String city, int limit) {
+        return search(street, city, 0, limit).addresses();
+    }
+
+    /**
+     * @return the number of addresses in the catalogue
+     */
+    int size();
+
+    /**
+     * @return an identifier of the catalogue content, which changes whenever different data is loaded
+     */
+    String version();
+
+    /**
+     * The catalogue as it is now, unaffected by later reloads: what a request reads to search
+     * and to build its cursor.
+     */
+    default AddressRepository snapshot() {
+        return this;
+    }
+}
@@ -0,0 +1,41 @@
+package fr.apithinking.apigreenscore.demo;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ResourceLoader;
+
+import java.io.IOException;
+
+/**
+ * The address catalogue, reloaded when its file changes, and its size in the Micrometer
+ * registry ({@code /actuator/metrics/apigreenscore.addresses.*}).
+ */
+@Configuration
+public class AddressRepositoryConfiguration {
+
+    @Bean
+    public AddressCatalogueReloader addressCatalogueReloader(AddressProperties properties, ResourceLoader resourceLoader)
+            throws IOException {
+        return new AddressCatalogueReloader(resourceLoader.getResource(properties.getFile()), properties.isReloadEnabled());
+    }
+
+    @Bean
+    public ReloadableAddressRepository addressRepository(AddressCatalogueReloader reloader) {
+        return reloader.repository();
+    }
+
+    @Bean
+    public MeterBinder addressCatalogueMeterBinder(ReloadableAddressRepository repository) {
+        return registry -> {
+            Gauge.builder("apigreenscore.addresses.rows", repository, ReloadableAddressRepository::size)
+                    .description("Adresses du catalogue chargé")
+                    .register(registry);
+            Gauge.builder("apigreenscore.addresses.memory", repository, ReloadableAddressRepository::memoryBytes)
+                    .description("Mémoire estimée du catalogue et de ses index")
+                    .baseUnit("bytes")
+                    .register(registry);
+        };
+    }
+}
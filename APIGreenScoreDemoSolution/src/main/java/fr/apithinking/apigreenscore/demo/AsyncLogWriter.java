@@ -0,0 +1,198 @@
+package fr.apithinking.apigreenscore.demo;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Write-behind pipeline for {@link LogEntry}: callers only enqueue, a single background
+ * thread flushes the queue in batches, either when {@code batchSize} entries are waiting
+ * or when the oldest one has waited {@code flushInterval}.
+ * <p>
+ * {@link #close()} stops accepting work in the background, drains whatever is still
+ * queued and returns once everything has been handed to the sink.
+ */
+public class AsyncLogWriter implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncLogWriter.class);
+
+    /** Upper bound of a single wait on the queue, so that {@link #close()} is noticed quickly. */
+    private static final long MAX_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final BlockingQueue<LogEntry> queue;
+    private final Consumer<List<LogEntry>> sink;
+    private final LogWriterProperties properties;
+    private final long flushIntervalNanos;
+    private final int sampleThresholdSize;
+    private final Thread worker;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    private volatile boolean running;
+
+    public AsyncLogWriter(LogWriterProperties properties, Consumer<List<LogEntry>> sink) {
+        this.properties = properties;
+        this.sink = sink;
+        this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+        this.flushIntervalNanos = properties.getFlushInterval().toNanos();
+        this.sampleThresholdSize = (int) (properties.getQueueCapacity() * properties.getSampleThreshold());
+        this.worker = new Thread(this::runLoop, "log-writer");
+        this.worker.setDaemon(true);
+    }
+
+    public void start() {
+        running = true;
+        worker.start();
+    }
+
+    /**
+     * Queues an entry according to the configured backpressure policy.
+     * Once the writer is closed, entries are written directly on the caller thread; an entry
+     * queued while {@link #close()} runs is written by whichever of the two drains the queue last.
+     */
+    public void submit(LogEntry entry) {
+        if (!running) {
+            writeBatch(List.of(entry));
+            return;
+        }
+        submitted.incrementAndGet();
+        switch (properties.getBackpressure()) {
+            case BLOCK -> {
+                try {
+                    queue.put(entry);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    dropped.incrementAndGet();
+                }
+            }
+            case DROP_OLDEST -> {
+                while (!queue.offer(entry)) {
+                    if (queue.poll() != null) {
+                        dropped.incrementAndGet();
+                    }
+                }
+            }
+            case SAMPLE -> {
+                boolean keep = queue.size() < sampleThresholdSize
+                        || ThreadLocalRandom.current().nextDouble() < properties.getSampleRate();
+                if (!keep || !queue.offer(entry)) {
+                    dropped.incrementAndGet();
+                }
+            }
+        }
+        if (!running) {
+            // close() est passé pendant la mise en file : son dernier passage a pu précéder l'entrée
+            drainAndWrite();
+        }
+    }
+
+    private void runLoop() {
+        int batchSize = properties.getBatchSize();
+        List<LogEntry> batch = new ArrayList<>(batchSize);
+        long deadline = 0;
+        try {
+            while (running || !queue.isEmpty() || !batch.isEmpty()) {
+                if (batch.isEmpty()) {
+                    LogEntry first = running
+                            ? queue.poll(Math.min(flushIntervalNanos, MAX_WAIT_NANOS), TimeUnit.NANOSECONDS)
+                            : queue.poll();
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    deadline = System.nanoTime() + flushIntervalNanos;
+                }
+                queue.drainTo(batch, batchSize - batch.size());
+
+                long remaining = deadline - System.nanoTime();
+                if (batch.size() >= batchSize || remaining <= 0 || !running) {
+                    writeBatch(batch);
+                    batch = new ArrayList<>(batchSize);
+                    continue;
+                }
+                LogEntry next = queue.poll(Math.min(remaining, MAX_WAIT_NANOS), TimeUnit.NANOSECONDS);
+                if (next != null) {
+                    batch.add(next);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            // On ne perd pas ce qui a déjà été collecté
+            batch.addAll(queue);
+            writeBatch(batch);
+        }
+    }
+
+    private void writeBatch(List<LogEntry> batch) {
+        try {
+            sink.accept(batch);
+            written.addAndGet(batch.size());
+        } catch (RuntimeException e) {
+            failed.addAndGet(batch.size());
+            logger.error("❌ Échec de l'écriture d'un lot de {} LogEntry", batch.size(), e);
+        }
+    }
+
+    /**
+     * Stops the background thread after it has written every queued entry.
+     */
+    @Override
+    public void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            worker.join(properties.getShutdownTimeout().toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (worker.isAlive()) {
+            logger.warn("⚠ Le writer de logs n'a pas fini de vider la file ({} entrées restantes)", queue.size());
+        } else {
+            // Entrées soumises pendant l'arrêt, après le dernier passage du thread
+            drainAndWrite();
+            logger.info("Writer de logs arrêté : {} écrites, {} rejetées, {} en échec",
+                    written.get(), dropped.get(), failed.get());
+        }
+    }
+
+    private void drainAndWrite() {
+        List<LogEntry> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            writeBatch(remaining);
+        }
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    public long getSubmittedCount() {
+        return submitted.get();
+    }
+
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+}
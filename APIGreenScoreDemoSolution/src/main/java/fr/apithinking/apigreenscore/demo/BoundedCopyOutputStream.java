@@ -0,0 +1,51 @@
+package fr.apithinking.apigreenscore.demo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Passes everything through to the wrapped stream and keeps a copy of it,
+ * as long as the copy stays under {@code limit} bytes; beyond, the copy is given up.
+ */
+class BoundedCopyOutputStream extends FilterOutputStream {
+
+    private final long limit;
+    private ByteArrayOutputStream copy = new ByteArrayOutputStream();
+
+    BoundedCopyOutputStream(OutputStream out, long limit) {
+        super(out);
+        this.limit = limit;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        out.write(b);
+        keep(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+        keep(b, off, len);
+    }
+
+    private void keep(byte[] b, int off, int len) {
+        if (copy == null) {
+            return;
+        }
+        if (copy.size() + (long) len > limit) {
+            copy = null;
+            return;
+        }
+        copy.write(b, off, len);
+    }
+
+    /**
+     * @return every byte written so far, or {@code null} if they exceeded the limit
+     */
+    byte[] toByteArray() {
+        return copy != null ? copy.toByteArray() : null;
+    }
+}
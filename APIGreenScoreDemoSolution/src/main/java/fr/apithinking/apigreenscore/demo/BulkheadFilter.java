@@ -0,0 +1,84 @@
+package fr.apithinking.apigreenscore.demo;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToIntFunction;
+
+/**
+ * Bounds the number of requests in flight on the endpoints that block on an upstream call.
+ * <p>
+ * With platform threads, slow upstreams would otherwise hold every Tomcat thread and queue
+ * the fast endpoints behind them.
+ * A request that finds no free slot within {@code max-wait} is answered 503 right away.
+ * <p>
+ * A request holds as many slots as the upstream calls it may have in flight at once, e.g. a
+ * batch of probes one per probe of its {@code concurrency}, capped to the whole bulkhead.
+ */
+public class BulkheadFilter extends OncePerRequestFilter {
+
+    private final Semaphore permits;
+    private final int maxConcurrent;
+    private final long maxWaitNanos;
+    private final ToIntFunction<HttpServletRequest> slotsOf;
+    private final AtomicLong rejected = new AtomicLong();
+
+    public BulkheadFilter(BulkheadProperties properties) {
+        this(properties, request -> 1);
+    }
+
+    /**
+     * @param slotsOf the number of upstream calls a request may have in flight at once
+     */
+    public BulkheadFilter(BulkheadProperties properties, ToIntFunction<HttpServletRequest> slotsOf) {
+        this.permits = new Semaphore(properties.getMaxConcurrent());
+        this.maxConcurrent = properties.getMaxConcurrent();
+        this.maxWaitNanos = properties.getMaxWait().toNanos();
+        this.slotsOf = slotsOf;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        // Jamais plus que la cloison entière : un lot très parallèle passe seul plutôt que jamais
+        int slots = Math.max(1, Math.min(slotsOf.applyAsInt(request), maxConcurrent));
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(slots, maxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            rejected.incrementAndGet();
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.setContentType("text/plain;charset=UTF-8");
+            response.getOutputStream().write("Trop d'appels externes en cours, réessayez plus tard"
+                    .getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            permits.release(slots);
+        }
+    }
+
+    public int getAvailablePermits() {
+        return permits.availablePermits();
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+}
@@ -0,0 +1,22 @@
+package fr.apithinking.apigreenscore.demo;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings of the bulkhead around the blocking probe endpoints ({@code apigreenscore.bulkhead.*}).
+ */
+@Data
+@ConfigurationProperties(prefix = "apigreenscore.bulkhead")
+public class BulkheadProperties {
+
+    private boolean enabled = true;
+
+    /** Probes allowed in flight at once; the other endpoints keep the rest of the request threads. */
+    private int maxConcurrent = 100;
+
+    /** How long a probe may wait for a slot before being rejected with 503. */
+    private Duration maxWait = Duration.ofMillis(100);
+}
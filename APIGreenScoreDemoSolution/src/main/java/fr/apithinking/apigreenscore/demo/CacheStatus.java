@@ -0,0 +1,13 @@
+package fr.apithinking.apigreenscore.demo;
+
+/**
+ * How an upstream probe was served with respect to the {@link ProbeResponseCache}.
+ */
+public enum CacheStatus {
+    /** Served from the cache, no upstream call. */
+    HIT,
+    /** Not in the cache (or expired): the upstream URL was called. */
+    MISS,
+    /** Cache disabled: the upstream URL was called without looking it up. */
+    BYPASS
+}
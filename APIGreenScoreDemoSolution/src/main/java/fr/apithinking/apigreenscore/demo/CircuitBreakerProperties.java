@@ -0,0 +1,44 @@
+package fr.apithinking.apigreenscore.demo;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings of the per-host circuit breaker and adaptive timeout of the probes
+ * ({@code apigreenscore.probe.circuit-breaker.*}).
+ */
+@Data
+@ConfigurationProperties(prefix = "apigreenscore.probe.circuit-breaker")
+public class CircuitBreakerProperties {
+
+    private boolean enabled = true;
+
+    /** Consecutive failures (I/O error, timeout, 5xx) that open the circuit of a host. */
+    private int failureThreshold = 5;
+
+    /** How long an open circuit refuses calls before letting one trial call through. */
+    private Duration openDuration = Duration.ofSeconds(10);
+
+    /** Timeout of a call as a multiple of the p99 latency of its host. */
+    private double timeoutMultiplier = 3.0;
+
+    /** Lower bound of the adaptive timeout. */
+    private Duration minTimeout = Duration.ofMillis(200);
+
+    /** Upper bound of the adaptive timeout, and timeout of a host with too few samples. */
+    private Duration maxTimeout = Duration.ofSeconds(10);
+
+    /** Successful calls needed before the timeout follows the latency of a host. */
+    private int minSamples = 20;
+
+    /** The latency histogram of a host is halved every this many samples, to follow recent latency. */
+    private int latencyWindow = 1_000;
+
+    /** Hosts tracked at most; beyond, new hosts are called without breaker until idle ones are evicted. */
+    private int maxHosts = 10_000;
+
+    /** A closed circuit unused for this long is evicted. */
+    private Duration idleTimeout = Duration.ofMinutes(10);
+}
@@ -0,0 +1,302 @@
+package fr.apithinking.apigreenscore.demo;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Response that gzips its body when the client accepts it and the body is large enough.
+ * <p>
+ * The encoding is chosen once, before the first byte goes out: from the {@code Content-Length}
+ * when the body declares it, otherwise after {@code minSize} bytes have been buffered. Only
+ * streaming types (NDJSON) force the choice on an early flush, so that each line still leaves
+ * at once; for the others a flush of a small body is deferred to the end of the response.
+ */
+class CompressingResponseWrapper extends HttpServletResponseWrapper {
+
+    private static final List<MediaType> STREAMING_TYPES = List.of(MediaType.APPLICATION_NDJSON);
+
+    private enum Encoding {UNDECIDED, IDENTITY, GZIP}
+
+    private final boolean gzipAllowed;
+    private final int minSize;
+    private final List<MediaType> compressibleTypes;
+
+    private Encoding encoding = Encoding.UNDECIDED;
+    private byte[] pending;
+    private int pendingCount;
+    private long declaredLength = -1;
+    private OutputStream sink;
+    private ServletOutputStream outputStream;
+    private PrintWriter writer;
+
+    /**
+     * @param gzipAllowed whether the client accepts gzip and compression is enabled
+     */
+    CompressingResponseWrapper(HttpServletResponse response, boolean gzipAllowed, int minSize,
+                               List<MediaType> compressibleTypes) {
+        super(response);
+        this.gzipAllowed = gzipAllowed;
+        this.minSize = minSize;
+        this.compressibleTypes = compressibleTypes;
+        this.pending = new byte[Math.min(minSize, 8192)];
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (writer != null) {
+            throw new IllegalStateException("getWriter() a déjà été appelé pour cette réponse");
+        }
+        if (outputStream == null) {
+            outputStream = new WrapperOutputStream(super.getOutputStream());
+        }
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            if (outputStream != null) {
+                throw new IllegalStateException("getOutputStream() a déjà été appelé pour cette réponse");
+            }
+            outputStream = new WrapperOutputStream(super.getOutputStream());
+            writer = new PrintWriter(new OutputStreamWriter(outputStream, Charset.forName(getCharacterEncoding())));
+        }
+        return writer;
+    }
+
+    @Override
+    public void setContentLength(int len) {
+        setContentLengthLong(len);
+    }
+
+    @Override
+    public void setContentLengthLong(long len) {
+        // Longueur du corps non compressé : transmise seulement si le corps part tel quel
+        declaredLength = len;
+        if (encoding == Encoding.IDENTITY) {
+            super.setContentLengthLong(len);
+        }
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            setContentLengthLong(value != null ? Long.parseLong(value) : -1);
+        } else {
+            super.setHeader(name, value);
+        }
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            setContentLengthLong(value != null ? Long.parseLong(value) : -1);
+        } else {
+            super.addHeader(name, value);
+        }
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        if (outputStream != null) {
+            outputStream.flush();
+        }
+        if (encoding != Encoding.UNDECIDED) {
+            super.flushBuffer();
+        }
+    }
+
+    @Override
+    public void resetBuffer() {
+        super.resetBuffer();
+        pendingCount = 0;
+        if (encoding == Encoding.GZIP) {
+            // L'en-tête Content-Encoding est déjà posé : le nouveau corps repart dans un flux gzip neuf
+            sink = newGzipStream();
+        }
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        pendingCount = 0;
+        declaredLength = -1;
+        encoding = Encoding.UNDECIDED;
+        sink = null;
+    }
+
+    /**
+     * Writes what is still buffered and the gzip trailer; the response must not be written afterwards.
+     */
+    void finish() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        if (encoding == Encoding.UNDECIDED) {
+            decide(pendingCount >= minSize);
+        }
+        if (sink instanceof GZIPOutputStream gzip) {
+            gzip.finish();
+        }
+        sink.flush();
+    }
+
+    private void write(byte[] b, int off, int len) throws IOException {
+        if (encoding == Encoding.UNDECIDED) {
+            if (declaredLength >= 0) {
+                decide(declaredLength >= minSize);
+            } else if (pendingCount + len < minSize) {
+                if (pendingCount + len > pending.length) {
+                    pending = Arrays.copyOf(pending, Math.min(minSize, Math.max(pendingCount + len, pending.length * 2)));
+                }
+                System.arraycopy(b, off, pending, pendingCount, len);
+                pendingCount += len;
+                return;
+            } else {
+                decide(true);
+            }
+        }
+        sink.write(b, off, len);
+    }
+
+    private void flush() throws IOException {
+        if (encoding == Encoding.UNDECIDED) {
+            if (!isStreaming()) {
+                return;
+            }
+            // Taille inconnue d'un flux : compressé comme un gros corps
+            decide(declaredLength < 0 || declaredLength >= minSize);
+        }
+        sink.flush();
+    }
+
+    private void decide(boolean largeEnough) throws IOException {
+        HttpServletResponse response = (HttpServletResponse) getResponse();
+        if (largeEnough && gzipAllowed && isCompressible() && response.getHeader(HttpHeaders.CONTENT_ENCODING) == null) {
+            encoding = Encoding.GZIP;
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            String etag = response.getHeader(HttpHeaders.ETAG);
+            if (etag != null && !etag.startsWith("W/")) {
+                // Les octets changent avec l'encodage : l'ETag fort devient faible
+                response.setHeader(HttpHeaders.ETAG, "W/" + etag);
+            }
+            sink = newGzipStream();
+        } else {
+            encoding = Encoding.IDENTITY;
+            if (declaredLength >= 0) {
+                response.setContentLengthLong(declaredLength);
+            }
+            sink = new ContainerSink();
+        }
+        if (pendingCount > 0) {
+            sink.write(pending, 0, pendingCount);
+            pendingCount = 0;
+        }
+    }
+
+    private OutputStream newGzipStream() {
+        try {
+            // syncFlush : un flush envoie tout ce qui a été écrit, indispensable au streaming
+            return new GZIPOutputStream(new ContainerSink(), 8192, true);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private boolean isCompressible() {
+        int status = getStatus();
+        if (status == HttpServletResponse.SC_NO_CONTENT || status == HttpServletResponse.SC_NOT_MODIFIED) {
+            return false;
+        }
+        MediaType type = contentType();
+        return type != null && compressibleTypes.stream().anyMatch(compressible -> compressible.includes(type));
+    }
+
+    private boolean isStreaming() {
+        MediaType type = contentType();
+        return type != null && STREAMING_TYPES.stream().anyMatch(streaming -> streaming.includes(type));
+    }
+
+    private MediaType contentType() {
+        String contentType = getContentType();
+        if (contentType == null) {
+            return null;
+        }
+        try {
+            return MediaType.parseMediaType(contentType);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Last stage: the stream of the wrapped response.
+     */
+    private class ContainerSink extends OutputStream {
+
+        @Override
+        public void write(int b) throws IOException {
+            getResponse().getOutputStream().write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            getResponse().getOutputStream().write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            getResponse().getOutputStream().flush();
+        }
+    }
+
+    private class WrapperOutputStream extends ServletOutputStream {
+
+        private final ServletOutputStream delegate;
+
+        WrapperOutputStream(ServletOutputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            CompressingResponseWrapper.this.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            CompressingResponseWrapper.this.flush();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            delegate.setWriteListener(writeListener);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package fr.apithinking.apigreenscore.demo;
+
+import fr.apithinking.apigreenscore.demo.UpstreamCircuitBreaker.DownstreamWriteException;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Stream to the client of a response relayed while the upstream body is read: counts the time
+ * spent writing, and turns a write failure into a {@link DownstreamWriteException}, so that
+ * {@link UpstreamCircuitBreaker} tells a slow or gone client apart from a failing host.
+ */
+class DownstreamOutputStream extends FilterOutputStream {
+
+    private long writeNanos;
+
+    DownstreamOutputStream(OutputStream out) {
+        super(out);
+    }
+
+    @Override
+    public void write(int b) {
+        long start = System.nanoTime();
+        try {
+            out.write(b);
+        } catch (IOException e) {
+            throw new DownstreamWriteException(e);
+        } finally {
+            writeNanos += System.nanoTime() - start;
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        long start = System.nanoTime();
+        try {
+            out.write(b, off, len);
+        } catch (IOException e) {
+            throw new DownstreamWriteException(e);
+        } finally {
+            writeNanos += System.nanoTime() - start;
+        }
+    }
+
+    @Override
+    public void flush() {
+        long start = System.nanoTime();
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new DownstreamWriteException(e);
+        } finally {
+            writeNanos += System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Time spent in the writes so far; read by the thread that writes.
+     */
+    long getWriteNanos() {
+        return writeNanos;
+    }
+}
@@ -1,30 +1,81 @@
 package fr.apithinking.apigreenscore.demo;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.apithinking.apigreenscore.demo.ProbeResponseCache.CachedResponse;
+import fr.apithinking.apigreenscore.demo.ProbeResponseCache.ProbeType;
+import fr.apithinking.apigreenscore.demo.UpstreamCircuitBreaker.CircuitOpenException;
+import fr.apithinking.apigreenscore.demo.UpstreamCircuitBreaker.DownstreamWriteException;
+import fr.apithinking.apigreenscore.demo.UpstreamProbeService.CoalescedProbeException;
+import fr.apithinking.apigreenscore.demo.UpstreamProbeService.ProbeResult;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpResponse;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 @RestController
 @RequestMapping("/api")
 public class HelloController {
-    private static final String URL_ERROR_MESSAGE = "L'URL doit commencer par http:// ou https://";
+    private static final Logger logger = LoggerFactory.getLogger(HelloController.class);
+    static final String URL_ERROR_MESSAGE = "L'URL doit commencer par http:// ou https://";
     private static final String JSON_MIME_TYPE = "application/json";
     private static final String XML_MIME_TYPE = "application/xml";
 
     private final LogService logService;
+    private final RestTemplate restTemplate;
+    private final UpstreamProbeService probeService;
+    private final ProbeResponseCache probeCache;
+    private final ProbeCacheProperties probeCacheProperties;
+    private final ProbeBatchService probeBatchService;
+    private final ProbeBatchProperties probeBatchProperties;
+    private final UpstreamCircuitBreaker circuitBreaker;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public HelloController(LogService logService) {
+    public HelloController(LogService logService, RestTemplate outboundRestTemplate,
+                           UpstreamProbeService probeService, ProbeResponseCache probeResponseCache,
+                           ProbeCacheProperties probeCacheProperties, ProbeBatchService probeBatchService,
+                           ProbeBatchProperties probeBatchProperties, UpstreamCircuitBreaker upstreamCircuitBreaker,
+                           ObjectMapper objectMapper) {
         this.logService = logService;
+        this.restTemplate = outboundRestTemplate;
+        this.probeService = probeService;
+        this.probeCache = probeResponseCache;
+        this.probeCacheProperties = probeCacheProperties;
+        this.probeBatchService = probeBatchService;
+        this.probeBatchProperties = probeBatchProperties;
+        this.circuitBreaker = upstreamCircuitBreaker;
+        this.objectMapper = objectMapper;
     }
 
     /**
      * Endpoint to return a greeting message.
+     * <p>
+     * {@code responseTime} is the time spent in the application so far, as measured by
+     * {@link RequestMetricsFilter}, and {@code size} the bytes of the message; the complete
+     * exchange is logged under {@code url} by the filter.
      *
      * @param url the URL parameter
      * @param request the HTTP request
@@ -33,20 +84,11 @@ public class HelloController {
     @GetMapping("/hello")
     public ResponseEntity<String> hello(@RequestParam(value = "url", required = false, defaultValue = "defaultUrl") String url,
                                         HttpServletRequest request) {
-
-        long start = System.currentTimeMillis();
+        // Durée et octets envoyés sont mesurés et journalisés par RequestMetricsFilter, sous l'URL fournie
+        RequestMetricsFilter.logUnder(request, url);
         String responseBody = "{\"message\": \"Hello, API Green Score! URL: " + url + "\"";
-
-        long end = System.currentTimeMillis();
-
-        long responseTime = end - start;
-        responseBody += ", \"responseTime\": " + responseTime + ", \"size\": " + responseBody.getBytes().length + "}";
-        logService.logApiCall(
-                url,
-                request.getRemoteAddr(),
-                responseTime,
-                responseBody.getBytes().length
-        );
+        long responseTime = TimeUnit.NANOSECONDS.toMillis(Math.max(RequestMetricsFilter.elapsedNanos(request), 0));
+        responseBody += ", \"responseTime\": " + responseTime + ", \"size\": " + responseBody.getBytes(StandardCharsets.UTF_8).length + "}";
 
         return ResponseEntity.ok()
                 .header("Content-Type", JSON_MIME_TYPE)
@@ -62,28 +104,80 @@ public class HelloController {
      */
     @GetMapping("/url2test")
     public ResponseEntity<String> testExternalUrl(@RequestParam String url, HttpServletRequest request) {
-        if (!url.startsWith("http://") && !url.startsWith("https://")) {
+        if (!isHttpUrl(url)) {
             return ResponseEntity.badRequest().body(URL_ERROR_MESSAGE);
         }
 
-        RestTemplate restTemplate = new RestTemplate();
         long start = System.currentTimeMillis();
-        ResponseEntity<String> response;
+        ProbeResult result;
 
         try {
-            response = restTemplate.getForEntity(url, String.class);
+            result = probeService.probe(ProbeType.URL, url);
+        } catch (CircuitOpenException e) {
+            return shortCircuited(e);
         } catch (Exception e) {
-            logService.logApiCall(url, request.getRemoteAddr(), System.currentTimeMillis() - start, 0, 500);
+            logService.logApiCall(request, url, System.currentTimeMillis() - start, 0, 500,
+                    probeCache.missStatus(), e instanceof CoalescedProbeException);
             return ResponseEntity.internalServerError().body("Erreur lors de l'appel de l'URL : " + e.getMessage());
         }
 
         long responseTime = System.currentTimeMillis() - start;
-        int payloadSize = response.getBody() != null ? response.getBody().getBytes().length : 0;
-        int statusCode = response.getStatusCode().value();
+        int payloadSize = (int) result.payloadSize();
+        int statusCode = result.statusCode();
 
-        logService.logApiCall(url, request.getRemoteAddr(), responseTime, payloadSize, statusCode);
+        logService.logApiCall(request, url, responseTime, payloadSize, statusCode,
+                result.cacheStatus(), result.coalesced());
+
+        return ResponseEntity.ok()
+                .header(ProbeResponseCache.CACHE_STATUS_HEADER, result.cacheStatus().name())
+                .body("Appel réussi. Statut: " + statusCode + " / Temps: " + responseTime + " ms");
+    }
+
+    /**
+     * Endpoint to test a list of external URLs in one request.
+     * <p>
+     * Each URL is probed like {@code /api/url2test}, at most {@code concurrency} at a time,
+     * and its result is written as one NDJSON line as soon as it is known, in completion order.
+     * A URL that does not answer within {@code timeoutMs} gets a 500 line and never holds back the others;
+     * one whose host circuit is open gets a 503 line at once, and is not logged.
+     *
+     * @param urls the URLs to test, as a JSON array
+     * @param concurrency the number of probes in flight, {@code apigreenscore.probe.batch.default-concurrency} if absent
+     * @param timeoutMs the timeout of each probe, {@code apigreenscore.probe.batch.default-timeout} if absent
+     * @param request the HTTP request
+     * @param response the HTTP response the results are streamed to
+     */
+    @PostMapping("/url2test/batch")
+    public void testExternalUrls(@RequestBody List<String> urls,
+                                 @RequestParam(required = false) Integer concurrency,
+                                 @RequestParam(required = false) Long timeoutMs,
+                                 HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (urls.isEmpty() || urls.size() > probeBatchProperties.getMaxUrls()) {
+            writeText(response, HttpStatus.BAD_REQUEST,
+                    "La liste doit contenir entre 1 et " + probeBatchProperties.getMaxUrls() + " URL");
+            return;
+        }
+        int parallelism = concurrency != null ? concurrency : probeBatchProperties.getDefaultConcurrency();
+        if (parallelism < 1 || parallelism > probeBatchProperties.getMaxConcurrency()) {
+            writeText(response, HttpStatus.BAD_REQUEST,
+                    "Le paramètre concurrency doit être compris entre 1 et " + probeBatchProperties.getMaxConcurrency());
+            return;
+        }
+        Duration timeout = timeoutMs != null ? Duration.ofMillis(timeoutMs) : probeBatchProperties.getDefaultTimeout();
+        if (timeout.isNegative() || timeout.isZero() || timeout.compareTo(probeBatchProperties.getMaxTimeout()) > 0) {
+            writeText(response, HttpStatus.BAD_REQUEST,
+                    "Le paramètre timeoutMs doit être compris entre 1 et " + probeBatchProperties.getMaxTimeout().toMillis());
+            return;
+        }
 
-        return ResponseEntity.ok("Appel réussi. Statut: " + statusCode + " / Temps: " + responseTime + " ms");
+        response.setContentType("application/x-ndjson");
+        OutputStream out = response.getOutputStream();
+        probeBatchService.probeAll(urls, parallelism, timeout, request.getRemoteAddr(), result -> {
+            out.write(objectMapper.writeValueAsBytes(result));
+            out.write('\n');
+            // Chaque ligne part dès que la sonde est terminée
+            out.flush();
+        });
     }
 
     /**
@@ -118,82 +212,167 @@ public class HelloController {
      * @return a response indicating the result of the URL fetch
      */
     private ResponseEntity<String> fetchAndLogExternalUrl(String url, HttpServletRequest request, String expectedContentType) {
-        if (!url.startsWith("http://") && !url.startsWith("https://")) {
+        if (!isHttpUrl(url)) {
             return ResponseEntity.badRequest().body(URL_ERROR_MESSAGE);
         }
 
-        RestTemplate restTemplate = new RestTemplate();
         long start = System.currentTimeMillis();
-        ResponseEntity<String> response;
+        ProbeResult result;
 
         try {
-            response = restTemplate.getForEntity(url, String.class);
+            result = probeService.probe(JSON_MIME_TYPE.equals(expectedContentType) ? ProbeType.JSON : ProbeType.XML, url);
+        } catch (CircuitOpenException e) {
+            return shortCircuited(e);
         } catch (Exception e) {
-            logService.logApiCall(url, request.getRemoteAddr(), System.currentTimeMillis() - start, 0, 500);
+            logService.logApiCall(request, url, System.currentTimeMillis() - start, 0, 500,
+                    probeCache.missStatus(), e instanceof CoalescedProbeException);
             return ResponseEntity.internalServerError().body("Erreur lors de l'appel de l'URL : " + e.getMessage());
         }
 
         long responseTime = System.currentTimeMillis() - start;
-        int payloadSize = response.getBody() != null ? response.getBody().getBytes().length : 0;
-        int statusCode = response.getStatusCode().value();
-        String contentType = response.getHeaders().getContentType() != null ? response.getHeaders().getContentType().toString() : "";
+        int payloadSize = (int) result.payloadSize();
+        int statusCode = result.statusCode();
+        String contentType = result.contentType();
 
         // Vérifier le type MIME
         if (!contentType.contains(expectedContentType)) {
             return ResponseEntity.badRequest().body("⚠ Le contenu retourné n'est pas du type attendu (" + expectedContentType + "). Type reçu : " + contentType);
         }
 
-        logService.logApiCall(url, request.getRemoteAddr(), responseTime, payloadSize, statusCode);
+        logService.logApiCall(request, url, responseTime, payloadSize, statusCode,
+                result.cacheStatus(), result.coalesced());
 
-        return ResponseEntity.ok("✅ " + expectedContentType.toUpperCase() + " reçu. Statut: " + statusCode + " / Temps: " + responseTime + " ms / Taille: " + payloadSize + " octets");
+        return ResponseEntity.ok()
+                .header(ProbeResponseCache.CACHE_STATUS_HEADER, result.cacheStatus().name())
+                .body("✅ " + expectedContentType.toUpperCase() + " reçu. Statut: " + statusCode + " / Temps: " + responseTime + " ms / Taille: " + payloadSize + " octets");
     }
     /**
      * Endpoint to convert JSON to XML.
+     * <p>
+     * The upstream body is converted while it is read and the XML is written straight
+     * to the response, so memory use stays flat whatever the size of the document.
+     * Documents small enough for the probe cache are kept as converted XML and replayed
+     * without calling the upstream URL while they are fresh.
      *
      * @param url the URL to fetch JSON from
      * @param request the HTTP request
-     * @return a response with the converted XML
+     * @param response the HTTP response the XML is streamed to
      */
     @GetMapping("/json2xml")
-    public ResponseEntity<String> convertJsonToXml(@RequestParam String url, HttpServletRequest request) {
-        if (!url.startsWith("http://") && !url.startsWith("https://")) {
-            return ResponseEntity.badRequest().body(URL_ERROR_MESSAGE);
+    public void convertJsonToXml(@RequestParam String url, HttpServletRequest request,
+                                 HttpServletResponse response) throws IOException {
+        if (!isHttpUrl(url)) {
+            writeText(response, HttpStatus.BAD_REQUEST, URL_ERROR_MESSAGE);
+            return;
         }
 
-        RestTemplate restTemplate = new RestTemplate();
-
-
         long start = System.currentTimeMillis();
-        ResponseEntity<String> response;
+        CachedResponse cached = probeCache.get(ProbeType.JSON2XML, url);
+        if (cached != null) {
+            response.setHeader(ProbeResponseCache.CACHE_STATUS_HEADER, CacheStatus.HIT.name());
+            response.setContentType(XML_MIME_TYPE);
+            response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+            response.getOutputStream().write(cached.body());
+            logService.logApiCall(request, url, System.currentTimeMillis() - start,
+                    (int) cached.payloadSize(), cached.statusCode(), CacheStatus.HIT, false);
+            return;
+        }
+
+        JsonToXmlResult result;
+        // Écritures vers le client chronométrées à part : ni leur durée ni leurs échecs ne sont imputés à l'hôte
+        DownstreamOutputStream client = new DownstreamOutputStream(response.getOutputStream());
 
         try {
-            response = restTemplate.getForEntity(url, String.class);
+            result = circuitBreaker.call(url,
+                    () -> restTemplate.execute(url, HttpMethod.GET, null, upstream -> streamJsonAsXml(url, upstream, response, client)),
+                    client::getWriteNanos);
+        } catch (CircuitOpenException e) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, retryAfterSeconds(e));
+            writeText(response, HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
+            return;
+        } catch (DownstreamWriteException e) {
+            // Client parti en cours de réponse : l'échange n'est pas allé au bout, rien à lui répondre ni à journaliser
+            throw e.getCause();
         } catch (Exception e) {
-            logService.logApiCall(url, request.getRemoteAddr(), System.currentTimeMillis() - start, 0, 500);
-            return ResponseEntity.internalServerError().body("Erreur lors de l'appel de l'URL : " + e.getMessage());
+            logService.logApiCall(request, url, System.currentTimeMillis() - start, 0, 500,
+                    probeCache.missStatus(), false);
+            if (!response.isCommitted()) {
+                response.resetBuffer();
+                writeText(response, HttpStatus.INTERNAL_SERVER_ERROR, "Erreur lors de l'appel de l'URL : " + e.getMessage());
+            }
+            return;
         }
 
         long responseTime = System.currentTimeMillis() - start;
-        int statusCode = response.getStatusCode().value();
-        int payloadSize = response.getBody() != null ? response.getBody().getBytes().length : 0;
-
-        logService.logApiCall(url, request.getRemoteAddr(), responseTime, payloadSize, statusCode);
+        // Taille comptée sur le flux reçu, sans recopie ni ré-encodage du corps
+        logService.logApiCall(request, url, responseTime, (int) result.upstreamBytes(), result.statusCode(),
+                probeCache.missStatus(), false);
+
+        if (result.conversionError() != null) {
+            if (response.isCommitted()) {
+                // Le début du XML est déjà parti : la réponse ne peut plus qu'être interrompue
+                logger.warn("Conversion JSON → XML interrompue pour {} : {}", url, result.conversionError().getMessage());
+                return;
+            }
+            response.resetBuffer();
+            writeText(response, HttpStatus.INTERNAL_SERVER_ERROR,
+                    "Erreur de conversion JSON → XML : " + result.conversionError().getMessage());
+        }
+    }
 
-        String json = response.getBody();
+    private record JsonToXmlResult(int statusCode, long upstreamBytes, JsonProcessingException conversionError) {
+    }
 
-        // ✅ Convertir JSON en XML
+    private JsonToXmlResult streamJsonAsXml(String url, ClientHttpResponse upstream, HttpServletResponse response,
+                                            OutputStream client) throws IOException {
+        CountingInputStream json = new CountingInputStream(upstream.getBody());
+        int statusCode = upstream.getStatusCode().value();
+
+        response.setHeader(ProbeResponseCache.CACHE_STATUS_HEADER, probeCache.missStatus().name());
+        response.setContentType(XML_MIME_TYPE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        OutputStream out = client;
+        BoundedCopyOutputStream copy = null;
+        if (probeCache.isEnabled()) {
+            // Copie du XML produit, pour le cache, tant qu'elle ne dépasse pas la taille maximale d'une entrée
+            copy = new BoundedCopyOutputStream(out, probeCacheProperties.getMaxEntrySize().toBytes());
+            out = copy;
+        }
+        Writer xml = new OutputStreamWriter(out, StandardCharsets.UTF_8);
         try {
-            org.json.JSONObject jsonObject = new org.json.JSONObject(json);
-            String xml = org.json.XML.toString(jsonObject);
+            JsonToXmlStreamConverter.convert(json, xml);
+        } catch (JsonProcessingException e) {
+            return new JsonToXmlResult(statusCode, json.getCount(), e);
+        }
+        byte[] converted = copy != null ? copy.toByteArray() : null;
+        if (converted != null) {
+            probeCache.put(ProbeType.JSON2XML, url,
+                    new CachedResponse(statusCode, XML_MIME_TYPE, json.getCount(), converted), upstream.getHeaders());
+        }
+        return new JsonToXmlResult(statusCode, json.getCount(), null);
+    }
 
-            // Retourne une réponse XML
-            return ResponseEntity.ok()
-                    .header("Content-Type", XML_MIME_TYPE)
-                    .body(xml);
+    /**
+     * Answer to a probe refused by the circuit breaker: no upstream call was made, so nothing is logged.
+     */
+    private static ResponseEntity<String> shortCircuited(CircuitOpenException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, retryAfterSeconds(e))
+                .body(e.getMessage());
+    }
 
-        } catch (Exception ex) {
-            return ResponseEntity.internalServerError().body("Erreur de conversion JSON → XML : " + ex.getMessage());
-        }
+    private static String retryAfterSeconds(CircuitOpenException e) {
+        return String.valueOf(Math.max(1, (e.getRetryAfterMillis() + 999) / 1000));
+    }
+
+    static boolean isHttpUrl(String url) {
+        return url.startsWith("http://") || url.startsWith("https://");
+    }
+
+    private static void writeText(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType("text/plain;charset=UTF-8");
+        response.getOutputStream().write(message.getBytes(StandardCharsets.UTF_8));
     }
 
 }
@@ -0,0 +1,535 @@
+package fr.apithinking.apigreenscore.demo;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory address catalogue indexed for substring search.
+ * <p>
+ * Streets and cities are matched on normalized keys (lower case, accents removed).
+ * Streets are indexed by trigram: a query of three characters or more only visits the
+ * rows containing all of its trigrams. Cities are deduplicated into a dictionary with an
+ * exact index (city → rows) and a trigram index over the dictionary itself. Candidate
+ * rows are visited in catalogue order and the search stops as soon as {@code limit} is reached.
+ * <p>
+ * Pages are keyed by row position: a page starting at a given row skips the previous
+ * ones by binary search in the posting lists, so its cost depends on the page size only.
+ * <p>
+ * Rows are stored by column, without one object per row: streets and their keys are packed
+ * UTF-8 in a single byte array each, with an offset per row, and each row refers to its city
+ * by id in the deduplicated dictionary. {@link Address} objects are only built for the rows
+ * returned.
+ */
+public class IndexedAddressRepository implements AddressRepository {
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final int GRAM = 3;
+
+    private final int size;
+    private final byte[] streets;
+    private final int[] streetOffsets;
+    private final BitSet nullStreets;
+    private final byte[] streetKeys;
+    private final int[] streetKeyOffsets;
+    private final String[] cityNames;
+    private final int[] rowCityName;
+    private final int[] cityOfName;
+    private final String[] cityKeys;
+    private final int[][] rowsByCity;
+    private final Map<String, Integer> cityIdByKey;
+    private final Map<String, int[]> streetGrams;
+    private final Map<String, int[]> cityGrams;
+    private final String version;
+    private final long memoryBytes;
+
+    public IndexedAddressRepository(List<Address> addresses) {
+        this(builder(addresses));
+    }
+
+    private IndexedAddressRepository(Builder builder) {
+        size = builder.rowCityName.size;
+        streets = builder.streets.toArray();
+        streetOffsets = builder.streetOffsets.toArray();
+        nullStreets = builder.nullStreets;
+        streetKeys = builder.streetKeys.toArray();
+        streetKeyOffsets = builder.streetKeyOffsets.toArray();
+        cityNames = builder.cityNames.toArray(new String[0]);
+        rowCityName = builder.rowCityName.toArray();
+        cityOfName = builder.cityOfName.toArray();
+
+        cityIdByKey = builder.cityIdByKey;
+        cityKeys = cityIdByKey.keySet().toArray(new String[0]);
+        rowsByCity = new int[cityKeys.length][];
+        Map<String, IntList> cityPostings = new HashMap<>();
+        for (int cityId = 0; cityId < cityKeys.length; cityId++) {
+            rowsByCity[cityId] = builder.cityRows.get(cityId).toArray();
+            addGrams(cityKeys[cityId], cityId, cityPostings);
+        }
+        streetGrams = freeze(builder.streetPostings);
+        cityGrams = freeze(cityPostings);
+        version = HexFormat.of().formatHex(builder.sha.digest(), 0, 8);
+        memoryBytes = estimateMemory();
+    }
+
+    private static Builder builder(List<Address> addresses) {
+        Builder builder = new Builder();
+        addresses.forEach(address -> builder.add(address.street(), address.city()));
+        return builder;
+    }
+
+    static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Key used for matching: lower case, without accents.
+     */
+    static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(value, Normalizer.Form.NFD);
+        return DIACRITICS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public AddressPage search(String street, String city, int fromRow, int limit) {
+        List<Address> result = new ArrayList<>(Math.min(Math.max(limit, 0), 64));
+        if (limit <= 0) {
+            return new AddressPage(result, -1);
+        }
+        String streetKey = normalize(street);
+        String cityKey = normalize(city);
+
+        boolean[] allowedCities = null;
+        int[][] cityCandidates = null;
+        if (!cityKey.isEmpty()) {
+            int[] cityIds = matchingCities(cityKey);
+            if (cityIds.length == 0) {
+                return new AddressPage(result, -1);
+            }
+            allowedCities = new boolean[cityKeys.length];
+            cityCandidates = new int[cityIds.length][];
+            for (int i = 0; i < cityIds.length; i++) {
+                allowedCities[cityIds[i]] = true;
+                cityCandidates[i] = rowsByCity[cityIds[i]];
+            }
+        }
+
+        byte[] streetKeyBytes = streetKey.getBytes(StandardCharsets.UTF_8);
+        RowCursor cursor = candidates(streetKey, cityCandidates, Math.max(fromRow, 0));
+        for (int row = cursor.next(); row >= 0; row = cursor.next()) {
+            if ((allowedCities == null || allowedCities[cityOfName[rowCityName[row]]])
+                    && (streetKeyBytes.length == 0 || streetKeyContains(row, streetKeyBytes))) {
+                if (result.size() == limit) {
+                    // Une ligne de plus existe : la page suivante reprendra ici
+                    return new AddressPage(result, row);
+                }
+                result.add(address(row));
+            }
+        }
+        return new AddressPage(result, -1);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String version() {
+        return version;
+    }
+
+    /**
+     * Estimated heap retained by the catalogue and its indexes, in bytes (64-bit JVM with
+     * compressed references). Computed once, when the catalogue is built.
+     */
+    public long memoryBytes() {
+        return memoryBytes;
+    }
+
+    private Address address(int row) {
+        String street = nullStreets.get(row) ? null : new String(streets, streetOffsets[row],
+                streetOffsets[row + 1] - streetOffsets[row], StandardCharsets.UTF_8);
+        return new Address(street, cityNames[rowCityName[row]]);
+    }
+
+    /**
+     * Whether the key of the street of {@code row} contains {@code key}. Both are UTF-8, in which
+     * a character never starts inside another: a byte match is a character match.
+     */
+    private boolean streetKeyContains(int row, byte[] key) {
+        int last = streetKeyOffsets[row + 1] - key.length;
+        candidates:
+        for (int start = streetKeyOffsets[row]; start <= last; start++) {
+            for (int i = 0; i < key.length; i++) {
+                if (streetKeys[start + i] != key[i]) {
+                    continue candidates;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private long estimateMemory() {
+        long bytes = arrayBytes(streets.length, 1) + arrayBytes(streetOffsets.length, 4)
+                + arrayBytes(streetKeys.length, 1) + arrayBytes(streetKeyOffsets.length, 4)
+                + arrayBytes(nullStreets.size() / 8, 1)
+                + arrayBytes(rowCityName.length, 4) + arrayBytes(cityOfName.length, 4)
+                + arrayBytes(cityNames.length, 4) + arrayBytes(cityKeys.length, 4)
+                + arrayBytes(rowsByCity.length, 4);
+        for (String name : cityNames) {
+            bytes += stringBytes(name);
+        }
+        for (int[] rows : rowsByCity) {
+            bytes += arrayBytes(rows.length, 4);
+        }
+        // Les clés des villes sont partagées entre le tableau et la map
+        bytes += mapBytes(cityIdByKey.size()) + cityKeys.length * 16L;
+        for (String key : cityKeys) {
+            bytes += stringBytes(key);
+        }
+        return bytes + gramsBytes(streetGrams) + gramsBytes(cityGrams);
+    }
+
+    private static long gramsBytes(Map<String, int[]> grams) {
+        long bytes = mapBytes(grams.size());
+        for (Map.Entry<String, int[]> entry : grams.entrySet()) {
+            bytes += stringBytes(entry.getKey()) + arrayBytes(entry.getValue().length, 4);
+        }
+        return bytes;
+    }
+
+    /**
+     * Table and entries of a {@link HashMap}, without keys and values.
+     */
+    private static long mapBytes(int size) {
+        return 48 + arrayBytes(Integer.highestOneBit(Math.max(size, 1) * 2), 4) + size * 32L;
+    }
+
+    private static long stringBytes(String value) {
+        if (value == null) {
+            return 0;
+        }
+        boolean latin1 = value.chars().allMatch(c -> c < 256);
+        return 24 + arrayBytes(value.length(), latin1 ? 1 : 2);
+    }
+
+    private static long arrayBytes(int length, int elementSize) {
+        return (16 + (long) length * elementSize + 7) & ~7L;
+    }
+
+    /**
+     * Chooses the smallest set of candidate rows: rows sharing every trigram of the
+     * street, rows of the matching cities, or the whole catalogue. Rows before
+     * {@code fromRow} are skipped by binary search, not visited.
+     */
+    private RowCursor candidates(String streetKey, int[][] cityCandidates, int fromRow) {
+        int[][] streetCandidates = null;
+        if (streetKey.length() >= GRAM) {
+            streetCandidates = postings(streetKey, streetGrams);
+            if (streetCandidates == null) {
+                return () -> -1;
+            }
+        }
+        long streetCount = streetCandidates == null ? Long.MAX_VALUE : smallest(streetCandidates).length;
+        long cityCount = cityCandidates == null ? Long.MAX_VALUE
+                : Arrays.stream(cityCandidates).mapToLong(p -> p.length).sum();
+
+        if (streetCandidates != null && streetCount <= cityCount) {
+            return intersection(streetCandidates, fromRow);
+        }
+        if (cityCandidates != null) {
+            return cityCandidates.length == 1 ? over(cityCandidates[0], fromRow) : union(cityCandidates, fromRow);
+        }
+        return new RowCursor() {
+            private int row = fromRow;
+
+            @Override
+            public int next() {
+                return row < size ? row++ : -1;
+            }
+        };
+    }
+
+    /**
+     * Cities whose key contains the fragment: exact hit first, then the trigram
+     * index of the dictionary (or a scan of the dictionary for short fragments).
+     */
+    private int[] matchingCities(String cityKey) {
+        IntList ids = new IntList();
+        Integer exact = cityIdByKey.get(cityKey);
+        if (exact != null) {
+            ids.add(exact);
+        }
+        RowCursor cursor;
+        if (cityKey.length() >= GRAM) {
+            int[][] candidates = postings(cityKey, cityGrams);
+            if (candidates == null) {
+                return ids.toArray();
+            }
+            cursor = intersection(candidates, 0);
+        } else {
+            cursor = new RowCursor() {
+                private int id;
+
+                @Override
+                public int next() {
+                    return id < cityKeys.length ? id++ : -1;
+                }
+            };
+        }
+        for (int id = cursor.next(); id >= 0; id = cursor.next()) {
+            if ((exact == null || id != exact) && cityKeys[id].contains(cityKey)) {
+                ids.add(id);
+            }
+        }
+        return ids.toArray();
+    }
+
+    /**
+     * Posting lists of every trigram of the key, or {@code null} if one of them is unknown
+     * (in which case nothing can match).
+     */
+    private static int[][] postings(String key, Map<String, int[]> index) {
+        int count = key.length() - GRAM + 1;
+        int[][] lists = new int[count][];
+        for (int i = 0; i < count; i++) {
+            int[] list = index.get(key.substring(i, i + GRAM));
+            if (list == null) {
+                return null;
+            }
+            lists[i] = list;
+        }
+        return lists;
+    }
+
+    private static int[] smallest(int[][] lists) {
+        int[] smallest = lists[0];
+        for (int[] list : lists) {
+            if (list.length < smallest.length) {
+                smallest = list;
+            }
+        }
+        return smallest;
+    }
+
+    /**
+     * Position of the first id greater than or equal to {@code from} in a sorted posting list.
+     */
+    private static int lowerBound(int[] list, int from) {
+        int i = Arrays.binarySearch(list, from);
+        return i >= 0 ? i : -i - 1;
+    }
+
+    /**
+     * Walks the smallest posting list and keeps the ids present in all the others.
+     */
+    private static RowCursor intersection(int[][] lists, int from) {
+        int[] driver = smallest(lists);
+        return new RowCursor() {
+            private int i = lowerBound(driver, from);
+
+            @Override
+            public int next() {
+                candidates:
+                while (i < driver.length) {
+                    int id = driver[i++];
+                    for (int[] list : lists) {
+                        if (list != driver && Arrays.binarySearch(list, id) < 0) {
+                            continue candidates;
+                        }
+                    }
+                    return id;
+                }
+                return -1;
+            }
+        };
+    }
+
+    /**
+     * Merges sorted posting lists, in order, without materializing the result.
+     */
+    private static RowCursor union(int[][] lists, int from) {
+        PriorityQueue<int[]> heads = new PriorityQueue<>((a, b) -> Integer.compare(lists[a[0]][a[1]], lists[b[0]][b[1]]));
+        for (int l = 0; l < lists.length; l++) {
+            int start = lowerBound(lists[l], from);
+            if (start < lists[l].length) {
+                heads.add(new int[]{l, start});
+            }
+        }
+        return () -> {
+            int[] head = heads.poll();
+            if (head == null) {
+                return -1;
+            }
+            int id = lists[head[0]][head[1]];
+            if (++head[1] < lists[head[0]].length) {
+                heads.add(head);
+            }
+            return id;
+        };
+    }
+
+    private static RowCursor over(int[] list, int from) {
+        return new RowCursor() {
+            private int i = lowerBound(list, from);
+
+            @Override
+            public int next() {
+                return i < list.length ? list[i++] : -1;
+            }
+        };
+    }
+
+    private static void addGrams(String key, int id, Map<String, IntList> postings) {
+        for (int i = 0; i + GRAM <= key.length(); i++) {
+            IntList list = postings.computeIfAbsent(key.substring(i, i + GRAM), k -> new IntList());
+            // Un même trigramme peut revenir plusieurs fois dans la clé
+            if (list.size == 0 || list.values[list.size - 1] != id) {
+                list.add(id);
+            }
+        }
+    }
+
+    private static Map<String, int[]> freeze(Map<String, IntList> postings) {
+        Map<String, int[]> frozen = new HashMap<>(postings.size() * 2);
+        postings.forEach((gram, list) -> frozen.put(gram, list.toArray()));
+        return frozen;
+    }
+
+    /**
+     * Iterates ids in increasing order, {@code -1} once exhausted.
+     */
+    @FunctionalInterface
+    private interface RowCursor {
+        int next();
+    }
+
+    /**
+     * Builds a catalogue row by row, without an intermediate list of {@link Address}:
+     * a loader can feed it straight from the file.
+     */
+    static final class Builder {
+
+        private final ByteList streets = new ByteList();
+        private final IntList streetOffsets = new IntList();
+        private final BitSet nullStreets = new BitSet();
+        private final ByteList streetKeys = new ByteList();
+        private final IntList streetKeyOffsets = new IntList();
+        private final Map<String, Integer> cityNameIds = new HashMap<>();
+        private final List<String> cityNames = new ArrayList<>();
+        private final IntList rowCityName = new IntList();
+        private final IntList cityOfName = new IntList();
+        private final Map<String, Integer> cityIdByKey = new LinkedHashMap<>();
+        private final List<IntList> cityRows = new ArrayList<>();
+        private final Map<String, IntList> streetPostings = new HashMap<>();
+        private final MessageDigest sha = newSha256();
+
+        Builder() {
+            streetOffsets.add(0);
+            streetKeyOffsets.add(0);
+        }
+
+        void add(String street, String city) {
+            int row = rowCityName.size;
+            byte[] streetBytes = String.valueOf(street).getBytes(StandardCharsets.UTF_8);
+            byte[] cityBytes = String.valueOf(city).getBytes(StandardCharsets.UTF_8);
+            // Empreinte du contenu : mêmes données, même version, y compris d'un démarrage à l'autre
+            sha.update(streetBytes);
+            sha.update((byte) 0);
+            sha.update(cityBytes);
+            sha.update((byte) '\n');
+
+            if (street == null) {
+                nullStreets.set(row);
+            } else {
+                streets.add(streetBytes);
+            }
+            streetOffsets.add(streets.size);
+            String streetKey = normalize(street);
+            addGrams(streetKey, row, streetPostings);
+            streetKeys.add(streetKey.getBytes(StandardCharsets.UTF_8));
+            streetKeyOffsets.add(streetKeys.size);
+
+            Integer nameId = cityNameIds.get(city);
+            if (nameId == null) {
+                nameId = cityNames.size();
+                cityNameIds.put(city, nameId);
+                cityNames.add(city);
+                String cityKey = normalize(city);
+                Integer cityId = cityIdByKey.get(cityKey);
+                if (cityId == null) {
+                    cityId = cityRows.size();
+                    cityIdByKey.put(cityKey, cityId);
+                    cityRows.add(new IntList());
+                }
+                cityOfName.add(cityId);
+            }
+            rowCityName.add(nameId);
+            cityRows.get(cityOfName.values[nameId]).add(row);
+        }
+
+        IndexedAddressRepository build() {
+            return new IndexedAddressRepository(this);
+        }
+    }
+
+    /**
+     * Growable array of bytes, for the packed columns.
+     */
+    private static final class ByteList {
+        private byte[] values = new byte[1024];
+        private int size;
+
+        void add(byte[] bytes) {
+            if (size + bytes.length > values.length) {
+                values = Arrays.copyOf(values, Math.max(size + bytes.length, values.length * 2));
+            }
+            System.arraycopy(bytes, 0, values, size, bytes.length);
+            size += bytes.length;
+        }
+
+        byte[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    /**
+     * Growable list of primitive ints, to build posting lists without boxing.
+     */
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
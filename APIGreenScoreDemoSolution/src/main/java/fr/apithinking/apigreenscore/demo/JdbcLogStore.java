@@ -0,0 +1,140 @@
+package fr.apithinking.apigreenscore.demo;
+
+import fr.apithinking.apigreenscore.demo.LogRollup.Granularity;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.lang.Nullable;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * {@link LogStore} on the {@code log_entry} table: single entries through JPA, batches through
+ * {@link LogEntryBatchWriter}.
+ * <p>
+ * H2 has no table partitioning: a "partition" of the entries is the hour of rows held by the
+ * timestamp index, and it is dropped with a single range {@code DELETE}.
+ * <p>
+ * {@link #scanEntries} reads a forward-only, read-only cursor, {@code fetchSize} rows at a time.
+ * H2 computes the whole result of a query before returning its first row unless its lazy
+ * execution is on: it is switched on for the connection of the cursor.
+ */
+public class JdbcLogStore implements LogStore {
+
+    private static final String SELECT_SQL =
+            "SELECT timestamp, url, status_code, payload_size, response_time FROM log_entry "
+                    + "WHERE timestamp >= ? AND timestamp < ?";
+
+    private static final String SELECT_ENTRIES_SQL =
+            "SELECT timestamp, url, status_code, payload_size, response_time, caller_ip, cache_status, coalesced, "
+                    + "request_size, time_to_first_byte_nanos, total_time_nanos FROM log_entry "
+                    + "WHERE timestamp >= ? AND timestamp < ? ";
+
+    private final LogEntryRepository repository;
+    private final LogEntryBatchWriter batchWriter;
+    private final JdbcTemplate jdbcTemplate;
+    private final int fetchSize;
+
+    public JdbcLogStore(LogEntryRepository repository, LogEntryBatchWriter batchWriter, JdbcTemplate jdbcTemplate,
+                        int fetchSize) {
+        this.repository = repository;
+        this.batchWriter = batchWriter;
+        this.jdbcTemplate = jdbcTemplate;
+        this.fetchSize = fetchSize;
+    }
+
+    @Override
+    public void append(LogEntry entry) {
+        repository.save(entry);
+    }
+
+    @Override
+    public void append(List<LogEntry> entries) {
+        batchWriter.insertAll(entries);
+    }
+
+    @Override
+    public void scan(long from, long to, EntryHandler handler) {
+        jdbcTemplate.query(SELECT_SQL, rs -> {
+            handler.entry(rs.getLong("timestamp"), rs.getString("url"), rs.getInt("status_code"),
+                    rs.getLong("payload_size"), rs.getLong("response_time"));
+        }, from, to);
+    }
+
+    @Override
+    public void scanEntries(long from, long to, @Nullable String url, Consumer<LogEntry> consumer) {
+        String sql = SELECT_ENTRIES_SQL + (url != null ? "AND url = ? " : "") + "ORDER BY timestamp";
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            boolean h2 = "H2".equals(connection.getMetaData().getDatabaseProductName());
+            if (h2) {
+                setLazyExecution(connection, true);
+            }
+            try (PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY)) {
+                statement.setFetchSize(fetchSize);
+                statement.setLong(1, from);
+                statement.setLong(2, to);
+                if (url != null) {
+                    statement.setString(3, url);
+                }
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        consumer.accept(readEntry(rs));
+                    }
+                }
+            } finally {
+                if (h2) {
+                    // Connexion rendue au pool dans son état d'origine
+                    setLazyExecution(connection, false);
+                }
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public Long firstTimestamp(long from) {
+        return jdbcTemplate.queryForObject("SELECT MIN(timestamp) FROM log_entry WHERE timestamp >= ?", Long.class, from);
+    }
+
+    @Override
+    public long deleteBefore(long before) {
+        long deleted = 0;
+        Long first;
+        while ((first = jdbcTemplate.queryForObject("SELECT MIN(timestamp) FROM log_entry WHERE timestamp < ?",
+                Long.class, before)) != null) {
+            long partitionEnd = Math.min(Granularity.HOUR.floor(first) + Granularity.HOUR.millis(), before);
+            deleted += jdbcTemplate.update("DELETE FROM log_entry WHERE timestamp >= ? AND timestamp < ?",
+                    first, partitionEnd);
+        }
+        return deleted;
+    }
+
+    private static LogEntry readEntry(ResultSet rs) throws SQLException {
+        LogEntry entry = new LogEntry();
+        entry.setTimestamp(rs.getLong("timestamp"));
+        entry.setUrl(rs.getString("url"));
+        entry.setStatusCode(rs.getInt("status_code"));
+        entry.setPayloadSize(rs.getInt("payload_size"));
+        entry.setResponseTime(rs.getLong("response_time"));
+        entry.setCallerIp(rs.getString("caller_ip"));
+        String cacheStatus = rs.getString("cache_status");
+        entry.setCacheStatus(cacheStatus != null ? CacheStatus.valueOf(cacheStatus) : null);
+        entry.setCoalesced(rs.getBoolean("coalesced"));
+        entry.setRequestSize(rs.getLong("request_size"));
+        entry.setTimeToFirstByteNanos(rs.getObject("time_to_first_byte_nanos", Long.class));
+        entry.setTotalTimeNanos(rs.getObject("total_time_nanos", Long.class));
+        return entry;
+    }
+
+    private static void setLazyExecution(Connection connection, boolean lazy) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SET LAZY_QUERY_EXECUTION " + lazy);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package fr.apithinking.apigreenscore.demo;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.math.BigDecimal;
+
+/**
+ * JSON → XML conversion that reads JSON tokens from a stream and writes XML directly
+ * to the output: memory use does not depend on the size of the document.
+ * <p>
+ * The output follows the rules of {@code org.json.XML.toString(new JSONObject(json))}
+ * (arrays repeat the enclosing tag, nested arrays use {@code <array>}, a {@code content}
+ * key becomes text, empty values become {@code <tag/>}, same escaping), except that keys
+ * keep the order of the document instead of the hash order of {@code JSONObject}.
+ */
+final class JsonToXmlStreamConverter {
+
+    private static final JsonFactory JSON_FACTORY = new ObjectMapper().getFactory();
+    private static final String CONTENT_KEY = "content";
+    private static final String ARRAY_TAG = "array";
+
+    private JsonToXmlStreamConverter() {
+    }
+
+    /**
+     * Converts the JSON object read from {@code json} and writes the XML to {@code xml}.
+     * Neither stream is closed.
+     *
+     * @throws JsonParseException if the input is not a well-formed JSON object
+     */
+    static void convert(InputStream json, Writer xml) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Un objet JSON doit commencer par '{'");
+            }
+            writeObjectBody(parser, xml);
+        }
+        xml.flush();
+    }
+
+    private static void writeObjectBody(JsonParser parser, Writer xml) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String key = parser.currentName();
+            JsonToken token = parser.nextToken();
+            if (CONTENT_KEY.equals(key)) {
+                writeContent(parser, token, xml);
+            } else if (token == JsonToken.START_ARRAY) {
+                writeArrayUnderKey(parser, key, xml);
+            } else {
+                writeValue(parser, token, key, xml);
+            }
+        }
+    }
+
+    /**
+     * Elements of an array repeat the key as tag; an array nested in the array
+     * is wrapped once in the key and its elements become {@code <array>}.
+     */
+    private static void writeArrayUnderKey(JsonParser parser, String key, Writer xml) throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token == JsonToken.START_ARRAY) {
+                openTag(key, xml);
+                JsonToken inner;
+                while ((inner = parser.nextToken()) != JsonToken.END_ARRAY) {
+                    writeValue(parser, inner, ARRAY_TAG, xml);
+                }
+                closeTag(key, xml);
+            } else {
+                writeValue(parser, token, key, xml);
+            }
+        }
+    }
+
+    private static void writeValue(JsonParser parser, JsonToken token, String tag, Writer xml) throws IOException {
+        switch (token) {
+            case START_OBJECT -> {
+                openTag(tag, xml);
+                writeObjectBody(parser, xml);
+                closeTag(tag, xml);
+            }
+            case START_ARRAY -> {
+                JsonToken element;
+                while ((element = parser.nextToken()) != JsonToken.END_ARRAY) {
+                    writeValue(parser, element, tag, xml);
+                }
+            }
+            default -> {
+                String text = scalarText(parser, token);
+                if (text.isEmpty()) {
+                    xml.write('<');
+                    xml.write(tag);
+                    xml.write("/>");
+                } else {
+                    openTag(tag, xml);
+                    escape(text, xml);
+                    closeTag(tag, xml);
+                }
+            }
+        }
+    }
+
+    /**
+     * A {@code content} key is written as text; array elements are separated by new lines.
+     */
+    private static void writeContent(JsonParser parser, JsonToken token, Writer xml) throws IOException {
+        if (token != JsonToken.START_ARRAY) {
+            escape(contentText(parser, token), xml);
+            return;
+        }
+        boolean first = true;
+        JsonToken element;
+        while ((element = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (!first) {
+                xml.write('\n');
+            }
+            escape(contentText(parser, element), xml);
+            first = false;
+        }
+    }
+
+    private static String contentText(JsonParser parser, JsonToken token) throws IOException {
+        if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+            // Cas marginal : org.json écrit le texte JSON de la structure, seul ce sous-arbre est chargé
+            return parser.readValueAsTree().toString();
+        }
+        return scalarText(parser, token);
+    }
+
+    private static String scalarText(JsonParser parser, JsonToken token) throws IOException {
+        return switch (token) {
+            case VALUE_STRING -> parser.getText();
+            case VALUE_NUMBER_INT -> "-0".equals(parser.getText()) ? "-0.0" : parser.getText();
+            case VALUE_NUMBER_FLOAT -> decimalText(parser.getText());
+            case VALUE_TRUE -> "true";
+            case VALUE_FALSE -> "false";
+            case VALUE_NULL -> "null";
+            default -> throw new JsonParseException(parser, "Jeton JSON inattendu : " + token);
+        };
+    }
+
+    /**
+     * org.json keeps decimals as {@link BigDecimal} (and negative zero as a double).
+     */
+    private static String decimalText(String text) {
+        BigDecimal value = new BigDecimal(text);
+        if (text.charAt(0) == '-' && value.signum() == 0) {
+            return "-0.0";
+        }
+        return value.toString();
+    }
+
+    private static void openTag(String tag, Writer xml) throws IOException {
+        xml.write('<');
+        xml.write(tag);
+        xml.write('>');
+    }
+
+    private static void closeTag(String tag, Writer xml) throws IOException {
+        xml.write("</");
+        xml.write(tag);
+        xml.write('>');
+    }
+
+    /**
+     * Same escaping as {@code org.json.XML.escape}.
+     */
+    private static void escape(String text, Writer xml) throws IOException {
+        for (int i = 0; i < text.length(); ) {
+            int cp = text.codePointAt(i);
+            i += Character.charCount(cp);
+            switch (cp) {
+                case '&' -> xml.write("&amp;");
+                case '<' -> xml.write("&lt;");
+                case '>' -> xml.write("&gt;");
+                case '"' -> xml.write("&quot;");
+                case '\'' -> xml.write("&apos;");
+                default -> {
+                    if (mustEscape(cp)) {
+                        xml.write("&#x");
+                        xml.write(Integer.toHexString(cp));
+                        xml.write(';');
+                    } else if (Character.isBmpCodePoint(cp)) {
+                        xml.write(cp);
+                    } else {
+                        xml.write(Character.highSurrogate(cp));
+                        xml.write(Character.lowSurrogate(cp));
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean mustEscape(int cp) {
+        return (Character.isISOControl(cp) && cp != 0x9 && cp != 0xA && cp != 0xD)
+                || !((cp >= 0x20 && cp <= 0xD7FF)
+                || (cp >= 0xE000 && cp <= 0xFFFD)
+                || (cp >= 0x10000 && cp <= 0x10FFFF));
+    }
+}
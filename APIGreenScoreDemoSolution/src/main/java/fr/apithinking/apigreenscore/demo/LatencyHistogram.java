@@ -0,0 +1,112 @@
+package fr.apithinking.apigreenscore.demo;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Log-linear bucketing of response times in the spirit of HdrHistogram: values below 8 ms
+ * get their own bucket, above each power of two is split in 8 equal sub-buckets, so a bucket
+ * is never wider than 12.5 % of the values it holds. 232 buckets cover 0 ms to ~24 days.
+ * <p>
+ * Buckets are plain {@link AtomicLongArray} slots: recording is a single lock-free increment.
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final long MAX_VALUE = Integer.MAX_VALUE;
+
+    static final int BUCKETS = bucketIndex(MAX_VALUE) + 1;
+
+    private LatencyHistogram() {
+    }
+
+    static AtomicLongArray newBuckets() {
+        return new AtomicLongArray(BUCKETS);
+    }
+
+    static void record(AtomicLongArray buckets, long value) {
+        buckets.incrementAndGet(bucketIndex(value));
+    }
+
+    static int bucketIndex(long value) {
+        long v = Math.max(0, Math.min(value, MAX_VALUE));
+        if (v < SUB_BUCKETS) {
+            return (int) v;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(v);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int mantissa = (int) (v >>> shift) & (SUB_BUCKETS - 1);
+        return (shift + 1) * SUB_BUCKETS + mantissa;
+    }
+
+    /**
+     * Middle of the range of values that fall in {@code index}.
+     */
+    static long bucketValue(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long low = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+        return low + ((1L << shift) - 1) / 2;
+    }
+
+    /**
+     * Value at quantile {@code q} of the merged {@code counts}, or 0 if they are empty.
+     */
+    static long quantile(long[] counts, long total, double q) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(q * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return bucketValue(i);
+            }
+        }
+        return bucketValue(counts.length - 1);
+    }
+
+    /**
+     * Compact form of {@code counts} for storage: the non-empty buckets only, each as its index
+     * (one byte) followed by its count (unsigned LEB128), a few dozen bytes for a typical series.
+     */
+    static byte[] encode(long[] counts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                continue;
+            }
+            out.write(i);
+            long count = counts[i];
+            while ((count & ~0x7FL) != 0) {
+                out.write((int) (count & 0x7F) | 0x80);
+                count >>>= 7;
+            }
+            out.write((int) count);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Adds the counts of an {@link #encode encoded} histogram to {@code counts}.
+     */
+    static void addEncoded(byte[] encoded, long[] counts) {
+        int pos = 0;
+        while (pos < encoded.length) {
+            int index = encoded[pos++] & 0xFF;
+            long count = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = encoded[pos++];
+                count |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            counts[index] += count;
+        }
+    }
+}
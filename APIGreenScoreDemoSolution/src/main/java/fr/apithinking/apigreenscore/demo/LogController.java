@@ -1,25 +1,43 @@
 package fr.apithinking.apigreenscore.demo;
 
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DurationFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Locale;
+
 @RestController
 @RequestMapping("/logs")
 public class LogController {
 
     private static final Logger logger = LoggerFactory.getLogger(LogController.class);
+    private static final int MAX_STATS_URLS = 500;
+
     private final LogService logService;
+    private final LogStatsRepository logStatsRepository;
+    private final RollingMetricsRecorder metricsRecorder;
+    private final LogEntryExporter logEntryExporter;
 
     @Autowired
-    public LogController(LogService logService) {
+    public LogController(LogService logService, LogStatsRepository logStatsRepository,
+                         RollingMetricsRecorder metricsRecorder, LogEntryExporter logEntryExporter) {
         this.logService = logService;
+        this.logStatsRepository = logStatsRepository;
+        this.metricsRecorder = metricsRecorder;
+        this.logEntryExporter = logEntryExporter;
         System.out.println("LogController initialisé");
     }
 
@@ -48,4 +66,91 @@ public class LogController {
 
         return ResponseEntity.ok("Appel loggé avec succès");
     }
+
+    /**
+     * Endpoint to get aggregated statistics of the logged calls over a time window.
+     *
+     * @param from   start of the window, epoch millis (default: {@code to - window})
+     * @param to     end of the window, epoch millis, exclusive (default: now)
+     * @param window length of the window when {@code from} is not given, e.g. {@code 15m}
+     * @param limit  maximum number of URLs returned, busiest first
+     * @return count, payload bytes and min/avg/p50/p95/p99 response time, in total, per URL and per status
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<?> stats(@RequestParam(value = "from", required = false) Long from,
+                                   @RequestParam(value = "to", required = false) Long to,
+                                   @RequestParam(value = "window", defaultValue = "1h")
+                                   @DurationFormat(style = DurationFormat.Style.SIMPLE) Duration window,
+                                   @RequestParam(value = "limit", defaultValue = "50") int limit) {
+        long end = to != null ? to : System.currentTimeMillis();
+        long start = from != null ? from : end - window.toMillis();
+        if (start >= end) {
+            return ResponseEntity.badRequest().body("La fenêtre est vide : from doit précéder to");
+        }
+        if (limit <= 0 || limit > MAX_STATS_URLS) {
+            return ResponseEntity.badRequest().body("limit doit être compris entre 1 et " + MAX_STATS_URLS);
+        }
+        return ResponseEntity.ok(logStatsRepository.stats(start, end, limit));
+    }
+
+    /**
+     * Endpoint to get the live metrics kept in memory, without querying the database.
+     *
+     * @param url a single tracked URL (default: all of them, busiest first)
+     * @return calls, errors and payload since startup, and throughput and p50/p95/p99 response time over 1m/5m/15m
+     */
+    @GetMapping("/metrics")
+    public ResponseEntity<?> metrics(@RequestParam(value = "url", required = false) String url) {
+        if (url == null) {
+            return ResponseEntity.ok(metricsRecorder.snapshot());
+        }
+        UrlMetrics metrics = metricsRecorder.snapshot(url);
+        return metrics != null ? ResponseEntity.ok(metrics) : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * Endpoint to export the logged calls of a time window, written as they are read from the store.
+     * The export is gzipped when the client sends {@code Accept-Encoding: gzip}.
+     *
+     * @param from     start of the window, epoch millis (default: {@code to - window})
+     * @param to       end of the window, epoch millis, exclusive (default: now)
+     * @param window   length of the window when {@code from} is not given, e.g. {@code 24h}
+     * @param url      the calls of this exact URL only (default: all of them)
+     * @param format   {@code ndjson} (default) or {@code csv}
+     * @param response the HTTP response the entries are streamed to
+     */
+    @GetMapping("/export")
+    public void export(@RequestParam(value = "from", required = false) Long from,
+                       @RequestParam(value = "to", required = false) Long to,
+                       @RequestParam(value = "window", defaultValue = "1h")
+                       @DurationFormat(style = DurationFormat.Style.SIMPLE) Duration window,
+                       @RequestParam(value = "url", required = false) String url,
+                       @RequestParam(value = "format", defaultValue = "ndjson") String format,
+                       HttpServletResponse response) throws IOException {
+        long end = to != null ? to : System.currentTimeMillis();
+        long start = from != null ? from : end - window.toMillis();
+        if (start >= end) {
+            writeText(response, HttpStatus.BAD_REQUEST, "La fenêtre est vide : from doit précéder to");
+            return;
+        }
+        LogEntryExporter.Format exportFormat;
+        try {
+            exportFormat = LogEntryExporter.Format.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            writeText(response, HttpStatus.BAD_REQUEST, "format doit valoir ndjson ou csv");
+            return;
+        }
+
+        response.setContentType(exportFormat.contentType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"logs-" + start + "-" + end + "." + exportFormat.extension() + "\"");
+        long count = logEntryExporter.export(exportFormat, start, end, url, response.getOutputStream());
+        logger.debug("Export {} : {} entrées de [{}, {})", exportFormat, count, start, end);
+    }
+
+    private static void writeText(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType("text/plain;charset=UTF-8");
+        response.getOutputStream().write(message.getBytes(StandardCharsets.UTF_8));
+    }
 }
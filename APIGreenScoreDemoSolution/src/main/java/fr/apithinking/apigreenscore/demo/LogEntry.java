@@ -1,12 +1,21 @@
 package fr.apithinking.apigreenscore.demo;
 
 import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
 import lombok.Data;
 
 @Entity
+@Table(indexes = {
+        // Fenêtres de temps de /logs/stats et regroupements par URL
+        @Index(name = "idx_log_entry_timestamp", columnList = "timestamp"),
+        @Index(name = "idx_log_entry_url", columnList = "url")
+})
 @Data
 public class LogEntry {
 
@@ -21,6 +30,22 @@ public class LogEntry {
     private int statusCode;
     private String callerIp;
 
+    /** Whether the upstream call was saved by the probe cache; {@code null} when no upstream is involved. */
+    @Enumerated(EnumType.STRING)
+    private CacheStatus cacheStatus;
+
+    /** Whether the upstream call was shared with concurrent probes of the same URL. */
+    private boolean coalesced;
+
+    /** Request body bytes received, for the requests measured by {@code RequestMetricsFilter}. */
+    private long requestSize;
+
+    /** Time until the first response byte was handed to the container, in nanoseconds; {@code null} for upstream calls. */
+    private Long timeToFirstByteNanos;
+
+    /** Time until the response was complete, in nanoseconds; {@code null} for upstream calls. */
+    private Long totalTimeNanos;
+
     @Override
     public String toString() {
         return "LogEntry{" +
@@ -31,6 +56,11 @@ public class LogEntry {
                 ", responseTime=" + responseTime +
                 ", statusCode=" + statusCode +
                 ", callerIP=" + callerIp +
+                ", cacheStatus=" + cacheStatus +
+                ", coalesced=" + coalesced +
+                ", requestSize=" + requestSize +
+                ", timeToFirstByteNanos=" + timeToFirstByteNanos +
+                ", totalTimeNanos=" + totalTimeNanos +
                 '}';
     }
 }
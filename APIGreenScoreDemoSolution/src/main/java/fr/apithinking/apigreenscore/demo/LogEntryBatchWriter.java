@@ -0,0 +1,47 @@
+package fr.apithinking.apigreenscore.demo;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * Writes {@link LogEntry} rows with a single JDBC batch.
+ * <p>
+ * The entity uses IDENTITY ids, which prevents Hibernate from batching inserts:
+ * going through plain JDBC lets a whole batch share one statement and one transaction.
+ */
+@Component
+public class LogEntryBatchWriter {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO log_entry (url, timestamp, payload_size, response_time, status_code, caller_ip, cache_status, coalesced, "
+                    + "request_size, time_to_first_byte_nanos, total_time_nanos) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public LogEntryBatchWriter(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void insertAll(List<LogEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, entries, entries.size(), (ps, entry) -> {
+            ps.setString(1, entry.getUrl());
+            ps.setLong(2, entry.getTimestamp());
+            ps.setInt(3, entry.getPayloadSize());
+            ps.setLong(4, entry.getResponseTime());
+            ps.setInt(5, entry.getStatusCode());
+            ps.setString(6, entry.getCallerIp());
+            ps.setString(7, entry.getCacheStatus() != null ? entry.getCacheStatus().name() : null);
+            ps.setBoolean(8, entry.isCoalesced());
+            ps.setLong(9, entry.getRequestSize());
+            ps.setObject(10, entry.getTimeToFirstByteNanos(), Types.BIGINT);
+            ps.setObject(11, entry.getTotalTimeNanos(), Types.BIGINT);
+        });
+    }
+}
@@ -0,0 +1,168 @@
+package fr.apithinking.apigreenscore.demo;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * Writes the entries of a {@link LogStore} scan as they are read, as NDJSON (one object per line)
+ * or CSV (a header line, then one line per entry): only the current entry and the output buffer
+ * are held, whatever the number of entries.
+ */
+@Component
+public class LogEntryExporter {
+
+    public enum Format {
+        NDJSON("application/x-ndjson"),
+        CSV("text/csv;charset=UTF-8");
+
+        private final String contentType;
+
+        Format(String contentType) {
+            this.contentType = contentType;
+        }
+
+        public String contentType() {
+            return contentType;
+        }
+
+        public String extension() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private static final String CSV_HEADER = "timestamp,url,statusCode,payloadSize,responseTime,callerIp,"
+            + "cacheStatus,coalesced,requestSize,timeToFirstByteNanos,totalTimeNanos\r\n";
+
+    private final LogStore logStore;
+    private final JsonFactory jsonFactory;
+
+    public LogEntryExporter(LogStore logStore, ObjectMapper objectMapper) {
+        this.logStore = logStore;
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    /**
+     * @param url the entries of this URL only, or all of them if {@code null}
+     * @return the number of entries written
+     */
+    public long export(Format format, long from, long to, @Nullable String url, OutputStream out) throws IOException {
+        return switch (format) {
+            case NDJSON -> exportNdjson(from, to, url, out);
+            case CSV -> exportCsv(from, to, url, out);
+        };
+    }
+
+    private long exportNdjson(long from, long to, String url, OutputStream out) throws IOException {
+        try (JsonGenerator json = jsonFactory.createGenerator(out)) {
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            json.setRootValueSeparator(null);
+            return scan(from, to, url, entry -> {
+                json.writeStartObject();
+                json.writeNumberField("timestamp", entry.getTimestamp());
+                json.writeStringField("url", entry.getUrl());
+                json.writeNumberField("statusCode", entry.getStatusCode());
+                json.writeNumberField("payloadSize", entry.getPayloadSize());
+                json.writeNumberField("responseTime", entry.getResponseTime());
+                json.writeStringField("callerIp", entry.getCallerIp());
+                json.writeStringField("cacheStatus", entry.getCacheStatus() != null ? entry.getCacheStatus().name() : null);
+                json.writeBooleanField("coalesced", entry.isCoalesced());
+                json.writeNumberField("requestSize", entry.getRequestSize());
+                json.writeFieldName("timeToFirstByteNanos");
+                writeNullableNumber(json, entry.getTimeToFirstByteNanos());
+                json.writeFieldName("totalTimeNanos");
+                writeNullableNumber(json, entry.getTotalTimeNanos());
+                json.writeEndObject();
+                json.writeRaw('\n');
+            });
+        }
+    }
+
+    private long exportCsv(long from, long to, String url, OutputStream out) throws IOException {
+        Writer csv = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 8192);
+        csv.write(CSV_HEADER);
+        long count = scan(from, to, url, entry -> {
+            csv.write(Long.toString(entry.getTimestamp()));
+            csv.write(',');
+            csv.write(csvField(entry.getUrl()));
+            csv.write(',');
+            csv.write(Integer.toString(entry.getStatusCode()));
+            csv.write(',');
+            csv.write(Integer.toString(entry.getPayloadSize()));
+            csv.write(',');
+            csv.write(Long.toString(entry.getResponseTime()));
+            csv.write(',');
+            csv.write(csvField(entry.getCallerIp()));
+            csv.write(',');
+            csv.write(entry.getCacheStatus() != null ? entry.getCacheStatus().name() : "");
+            csv.write(',');
+            csv.write(Boolean.toString(entry.isCoalesced()));
+            csv.write(',');
+            csv.write(Long.toString(entry.getRequestSize()));
+            csv.write(',');
+            csv.write(entry.getTimeToFirstByteNanos() != null ? entry.getTimeToFirstByteNanos().toString() : "");
+            csv.write(',');
+            csv.write(entry.getTotalTimeNanos() != null ? entry.getTotalTimeNanos().toString() : "");
+            csv.write("\r\n");
+        });
+        csv.flush();
+        return count;
+    }
+
+    private long scan(long from, long to, String url, EntryWriter writer) throws IOException {
+        long[] count = {0};
+        Consumer<LogEntry> consumer = entry -> {
+            try {
+                writer.write(entry);
+                count[0]++;
+            } catch (IOException e) {
+                // Client parti : arrête la lecture du curseur
+                throw new UncheckedIOException(e);
+            }
+        };
+        try {
+            logStore.scanEntries(from, to, url, consumer);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return count[0];
+    }
+
+    private static void writeNullableNumber(JsonGenerator json, Long value) throws IOException {
+        if (value != null) {
+            json.writeNumber(value);
+        } else {
+            json.writeNull();
+        }
+    }
+
+    /**
+     * RFC 4180 quoting, only when the value needs it.
+     */
+    static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    @FunctionalInterface
+    private interface EntryWriter {
+        void write(LogEntry entry) throws IOException;
+    }
+}
@@ -0,0 +1,31 @@
+package fr.apithinking.apigreenscore.demo;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings of the retention of the {@link LogEntry} rows ({@code apigreenscore.logs.retention.*}).
+ */
+@Data
+@ConfigurationProperties(prefix = "apigreenscore.logs.retention")
+public class LogRetentionProperties {
+
+    private boolean enabled = true;
+
+    /** Raw entries older than this are dropped, once rolled up per minute. */
+    private Duration rawRetention = Duration.ofHours(1);
+
+    /** Per-minute rollups older than this are dropped, once rolled up per hour. */
+    private Duration minuteRetention = Duration.ofHours(24);
+
+    /** Per-hour rollups older than this are dropped. */
+    private Duration hourRetention = Duration.ofDays(30);
+
+    /** A minute is only rolled up this long after its end, to let queued entries reach the database. */
+    private Duration rollupDelay = Duration.ofMinutes(1);
+
+    /** Time between two runs, also the delay of the first one. */
+    private Duration interval = Duration.ofMinutes(1);
+}
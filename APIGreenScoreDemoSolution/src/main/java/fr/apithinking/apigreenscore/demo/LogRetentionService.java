@@ -0,0 +1,111 @@
+package fr.apithinking.apigreenscore.demo;
+
+import fr.apithinking.apigreenscore.demo.LogRollup.Granularity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Keeps the log tables bounded: rolls the raw {@link LogEntry} rows up per minute, the
+ * per-minute rollups up per hour, then drops whatever is past its retention.
+ * <p>
+ * Runs on the scheduler thread and only reads and deletes rows older than
+ * {@code rollup-delay}: the write path never waits for it. Nothing is dropped before
+ * it has been rolled up, and {@link LogRetentionWatermarks} tells the readers where
+ * each level starts and ends.
+ */
+@Service
+public class LogRetentionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LogRetentionService.class);
+
+    private final LogStore logStore;
+    private final LogRollupRepository rollupRepository;
+    private final LogRetentionWatermarks watermarks;
+    private final LogRetentionProperties properties;
+
+    public LogRetentionService(LogStore logStore, LogRollupRepository rollupRepository,
+                               LogRetentionWatermarks watermarks, LogRetentionProperties properties) {
+        this.logStore = logStore;
+        this.rollupRepository = rollupRepository;
+        this.watermarks = watermarks;
+        this.properties = properties;
+    }
+
+    @Scheduled(fixedDelayString = "${apigreenscore.logs.retention.interval:1m}",
+            initialDelayString = "${apigreenscore.logs.retention.interval:1m}")
+    public void scheduledRun() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        try {
+            run(System.currentTimeMillis());
+        } catch (RuntimeException e) {
+            // Rien n'est perdu : la passe suivante reprend aux mêmes bornes
+            logger.warn("Échec de la rétention des logs", e);
+        }
+    }
+
+    /**
+     * One pass: roll up, then purge, as of {@code now} (epoch millis).
+     */
+    public synchronized void run(long now) {
+        rollUpMinutes(Granularity.MINUTE.floor(now - properties.getRollupDelay().toMillis()));
+        rollUpHours(Granularity.HOUR.floor(watermarks.minutesRolledUntil()));
+
+        long rawCutoff = Math.min(Granularity.HOUR.floor(now - properties.getRawRetention().toMillis()),
+                watermarks.minutesRolledUntil());
+        if (rawCutoff > watermarks.rawPurgedBefore()) {
+            watermarks.rawPurgedBefore(rawCutoff);
+            long deleted = logStore.deleteBefore(rawCutoff);
+            logger.debug("{} entrées brutes supprimées avant {}", deleted, rawCutoff);
+        }
+
+        long minuteCutoff = Math.min(Granularity.HOUR.floor(now - properties.getMinuteRetention().toMillis()),
+                watermarks.hoursRolledUntil());
+        if (minuteCutoff > watermarks.minutesPurgedBefore()) {
+            watermarks.minutesPurgedBefore(minuteCutoff);
+            rollupRepository.deleteRollupsBefore(Granularity.MINUTE, minuteCutoff);
+        }
+
+        rollupRepository.deleteRollupsBefore(Granularity.HOUR,
+                Granularity.HOUR.floor(now - properties.getHourRetention().toMillis()));
+    }
+
+    private void rollUpMinutes(long until) {
+        long cursor = watermarks.minutesRolledUntil();
+        while (cursor < until) {
+            // Saut direct à la prochaine entrée : pas de passe à vide sur les périodes sans appel
+            Long next = logStore.firstTimestamp(cursor);
+            if (next == null || next >= until) {
+                break;
+            }
+            long from = Granularity.MINUTE.floor(next);
+            long to = Math.min(Granularity.HOUR.floor(next) + Granularity.HOUR.millis(), until);
+            List<LogRollup> rollups = rollupRepository.rollUpRaw(from, to);
+            rollupRepository.insertAll(rollups);
+            watermarks.minutesRolledUntil(to);
+            cursor = to;
+        }
+        watermarks.minutesRolledUntil(until);
+    }
+
+    private void rollUpHours(long until) {
+        long cursor = watermarks.hoursRolledUntil();
+        while (cursor < until) {
+            Long next = rollupRepository.firstBucketStart(Granularity.MINUTE, cursor);
+            if (next == null || next >= until) {
+                break;
+            }
+            long from = Granularity.HOUR.floor(next);
+            long to = from + Granularity.HOUR.millis();
+            rollupRepository.insertAll(rollupRepository.rollUpMinutes(from, to));
+            watermarks.hoursRolledUntil(to);
+            cursor = to;
+        }
+        watermarks.hoursRolledUntil(until);
+    }
+}
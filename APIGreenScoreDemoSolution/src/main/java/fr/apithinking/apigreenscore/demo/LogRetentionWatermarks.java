@@ -0,0 +1,54 @@
+package fr.apithinking.apigreenscore.demo;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * How far {@link LogRetentionService} has got, shared with the readers of the log data.
+ * <p>
+ * Every bound is an epoch-millis bucket start, {@link Long#MIN_VALUE} until the first run.
+ * They only move forward, and a purge bound is raised before the rows go, so that a reader
+ * switches to the rollups before the raw rows it would have read disappear:
+ * raw rows are kept from {@link #rawPurgedBefore()}, per-minute rollups cover
+ * [{@link #minutesPurgedBefore()}, {@link #minutesRolledUntil()}) and per-hour rollups
+ * end at {@link #hoursRolledUntil()}.
+ */
+@Component
+public class LogRetentionWatermarks {
+
+    private volatile long minutesRolledUntil = Long.MIN_VALUE;
+    private volatile long hoursRolledUntil = Long.MIN_VALUE;
+    private volatile long rawPurgedBefore = Long.MIN_VALUE;
+    private volatile long minutesPurgedBefore = Long.MIN_VALUE;
+
+    public long minutesRolledUntil() {
+        return minutesRolledUntil;
+    }
+
+    public long hoursRolledUntil() {
+        return hoursRolledUntil;
+    }
+
+    public long rawPurgedBefore() {
+        return rawPurgedBefore;
+    }
+
+    public long minutesPurgedBefore() {
+        return minutesPurgedBefore;
+    }
+
+    void minutesRolledUntil(long bound) {
+        minutesRolledUntil = Math.max(minutesRolledUntil, bound);
+    }
+
+    void hoursRolledUntil(long bound) {
+        hoursRolledUntil = Math.max(hoursRolledUntil, bound);
+    }
+
+    void rawPurgedBefore(long bound) {
+        rawPurgedBefore = Math.max(rawPurgedBefore, bound);
+    }
+
+    void minutesPurgedBefore(long bound) {
+        minutesPurgedBefore = Math.max(minutesPurgedBefore, bound);
+    }
+}
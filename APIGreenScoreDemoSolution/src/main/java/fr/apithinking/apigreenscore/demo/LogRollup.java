@@ -0,0 +1,69 @@
+package fr.apithinking.apigreenscore.demo;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+/**
+ * Summary of the {@link LogEntry} rows of one URL and status code over one time bucket,
+ * written by {@link LogRetentionService} before the raw rows are dropped.
+ */
+@Entity
+@Table(indexes = {
+        // Lecture et purge par tranche de temps
+        @Index(name = "idx_log_rollup_bucket", columnList = "granularity, bucket_start")
+})
+@Data
+public class LogRollup {
+
+    public enum Granularity {
+        MINUTE(60_000L),
+        HOUR(3_600_000L);
+
+        private final long millis;
+
+        Granularity(long millis) {
+            this.millis = millis;
+        }
+
+        public long millis() {
+            return millis;
+        }
+
+        /**
+         * Start of the bucket holding {@code timestamp}.
+         */
+        public long floor(long timestamp) {
+            return Math.floorDiv(timestamp, millis) * millis;
+        }
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    private Granularity granularity;
+
+    /** Start of the bucket, epoch millis. */
+    private long bucketStart;
+
+    private String url;
+    private int statusCode;
+    private long calls;
+    private long payloadBytes;
+    private long responseTimeSum;
+    private long minResponseTime;
+    private long maxResponseTime;
+
+    /** Response times as {@link LatencyHistogram#encode encoded} histogram counts. */
+    @Column(length = 2560)
+    private byte[] histogram;
+}
@@ -0,0 +1,202 @@
+package fr.apithinking.apigreenscore.demo;
+
+import fr.apithinking.apigreenscore.demo.LogRollup.Granularity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counts, bytes and response-time histogram of a set of calls; merging two of them is exact,
+ * so a bucket of any size can be built from smaller ones.
+ */
+final class RollupAccumulator {
+
+    private long calls;
+    private long payloadBytes;
+    private long responseTimeSum;
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+    private final long[] counts = new long[LatencyHistogram.BUCKETS];
+
+    void add(long payloadSize, long responseTime) {
+        calls++;
+        payloadBytes += payloadSize;
+        responseTimeSum += responseTime;
+        min = Math.min(min, responseTime);
+        max = Math.max(max, responseTime);
+        counts[LatencyHistogram.bucketIndex(responseTime)]++;
+    }
+
+    void add(LogRollup rollup) {
+        calls += rollup.getCalls();
+        payloadBytes += rollup.getPayloadBytes();
+        responseTimeSum += rollup.getResponseTimeSum();
+        min = Math.min(min, rollup.getMinResponseTime());
+        max = Math.max(max, rollup.getMaxResponseTime());
+        LatencyHistogram.addEncoded(rollup.getHistogram(), counts);
+    }
+
+    void add(RollupAccumulator other) {
+        calls += other.calls;
+        payloadBytes += other.payloadBytes;
+        responseTimeSum += other.responseTimeSum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+    }
+
+    long calls() {
+        return calls;
+    }
+
+    /**
+     * Percentiles are bucket values, kept within the observed min and max.
+     */
+    ResponseTimeStats toStats() {
+        if (calls == 0) {
+            return new ResponseTimeStats(0, 0, 0, 0, 0, 0, 0);
+        }
+        return new ResponseTimeStats(calls, payloadBytes, min, (double) responseTimeSum / calls,
+                percentile(0.5), percentile(0.95), percentile(0.99));
+    }
+
+    LogRollup toRollup(Granularity granularity, long bucketStart, String url, int statusCode) {
+        LogRollup rollup = new LogRollup();
+        rollup.setGranularity(granularity);
+        rollup.setBucketStart(bucketStart);
+        rollup.setUrl(url);
+        rollup.setStatusCode(statusCode);
+        rollup.setCalls(calls);
+        rollup.setPayloadBytes(payloadBytes);
+        rollup.setResponseTimeSum(responseTimeSum);
+        rollup.setMinResponseTime(min);
+        rollup.setMaxResponseTime(max);
+        rollup.setHistogram(LatencyHistogram.encode(counts));
+        return rollup;
+    }
+
+    private long percentile(double q) {
+        return Math.max(min, Math.min(max, LatencyHistogram.quantile(counts, calls, q)));
+    }
+}
+
+/**
+ * Plain JDBC access to {@link LogRollup} rows, built from the entries of the {@link LogStore}.
+ * The rollups stay in the database whatever the store: a few rows per URL and bucket.
+ */
+@Repository
+public class LogRollupRepository {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO log_rollup (granularity, bucket_start, url, status_code, calls, payload_bytes, "
+                    + "response_time_sum, min_response_time, max_response_time, histogram) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String SELECT_SQL =
+            "SELECT granularity, bucket_start, url, status_code, calls, payload_bytes, response_time_sum, "
+                    + "min_response_time, max_response_time, histogram FROM log_rollup "
+                    + "WHERE granularity = ? AND bucket_start >= ? AND bucket_start < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final LogStore logStore;
+
+    public LogRollupRepository(JdbcTemplate jdbcTemplate, LogStore logStore) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.logStore = logStore;
+    }
+
+    public void insertAll(List<LogRollup> rollups) {
+        if (rollups.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, rollups, rollups.size(), (ps, rollup) -> {
+            ps.setString(1, rollup.getGranularity().name());
+            ps.setLong(2, rollup.getBucketStart());
+            ps.setString(3, rollup.getUrl());
+            ps.setInt(4, rollup.getStatusCode());
+            ps.setLong(5, rollup.getCalls());
+            ps.setLong(6, rollup.getPayloadBytes());
+            ps.setLong(7, rollup.getResponseTimeSum());
+            ps.setLong(8, rollup.getMinResponseTime());
+            ps.setLong(9, rollup.getMaxResponseTime());
+            ps.setBytes(10, rollup.getHistogram());
+        });
+    }
+
+    /**
+     * Rollups of {@code granularity} whose bucket starts in [{@code from}, {@code to}).
+     */
+    public List<LogRollup> find(Granularity granularity, long from, long to) {
+        return jdbcTemplate.query(SELECT_SQL, (rs, row) -> {
+            LogRollup rollup = new LogRollup();
+            rollup.setGranularity(Granularity.valueOf(rs.getString("granularity")));
+            rollup.setBucketStart(rs.getLong("bucket_start"));
+            rollup.setUrl(rs.getString("url"));
+            rollup.setStatusCode(rs.getInt("status_code"));
+            rollup.setCalls(rs.getLong("calls"));
+            rollup.setPayloadBytes(rs.getLong("payload_bytes"));
+            rollup.setResponseTimeSum(rs.getLong("response_time_sum"));
+            rollup.setMinResponseTime(rs.getLong("min_response_time"));
+            rollup.setMaxResponseTime(rs.getLong("max_response_time"));
+            rollup.setHistogram(rs.getBytes("histogram"));
+            return rollup;
+        }, granularity.name(), from, to);
+    }
+
+    /**
+     * Per-minute rollups of the raw entries of [{@code from}, {@code to}), both minute-aligned.
+     */
+    public List<LogRollup> rollUpRaw(long from, long to) {
+        Map<RollupKey, RollupAccumulator> buckets = new LinkedHashMap<>();
+        logStore.scan(from, to, (timestamp, url, statusCode, payloadSize, responseTime) ->
+                buckets.computeIfAbsent(new RollupKey(Granularity.MINUTE.floor(timestamp), url, statusCode),
+                        key -> new RollupAccumulator()).add(payloadSize, responseTime));
+        return toRollups(Granularity.MINUTE, buckets);
+    }
+
+    /**
+     * Per-hour rollups of the per-minute rollups of [{@code from}, {@code to}), both hour-aligned.
+     */
+    public List<LogRollup> rollUpMinutes(long from, long to) {
+        Map<RollupKey, RollupAccumulator> buckets = new LinkedHashMap<>();
+        for (LogRollup minute : find(Granularity.MINUTE, from, to)) {
+            buckets.computeIfAbsent(new RollupKey(Granularity.HOUR.floor(minute.getBucketStart()), minute.getUrl(),
+                    minute.getStatusCode()), key -> new RollupAccumulator()).add(minute);
+        }
+        return toRollups(Granularity.HOUR, buckets);
+    }
+
+    /**
+     * Start of the first bucket of {@code granularity} at or after {@code from}, or {@code null} if there is none.
+     */
+    public Long firstBucketStart(Granularity granularity, long from) {
+        return jdbcTemplate.queryForObject("SELECT MIN(bucket_start) FROM log_rollup WHERE granularity = ? AND bucket_start >= ?",
+                Long.class, granularity.name(), from);
+    }
+
+    /**
+     * Drops the rollups of {@code granularity} whose bucket starts before {@code before}.
+     *
+     * @return the number of rows deleted
+     */
+    public int deleteRollupsBefore(Granularity granularity, long before) {
+        return jdbcTemplate.update("DELETE FROM log_rollup WHERE granularity = ? AND bucket_start < ?",
+                granularity.name(), before);
+    }
+
+    private static List<LogRollup> toRollups(Granularity granularity, Map<RollupKey, RollupAccumulator> buckets) {
+        List<LogRollup> rollups = new ArrayList<>(buckets.size());
+        buckets.forEach((key, accumulator) ->
+                rollups.add(accumulator.toRollup(granularity, key.bucketStart(), key.url(), key.statusCode())));
+        return rollups;
+    }
+
+    private record RollupKey(long bucketStart, String url, int statusCode) {
+    }
+}
@@ -1,23 +1,131 @@
 package fr.apithinking.apigreenscore.demo;
 
+import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 @Service
 public class LogService {
 
     private static final Logger logger = LoggerFactory.getLogger(LogService.class);
-    private final LogEntryRepository repository;
+    private final LogStore logStore;
+    private final AsyncLogWriter asyncLogWriter;
+    private final RollingMetricsRecorder metricsRecorder;
 
-    public LogService(LogEntryRepository repository) {
-        this.repository = repository;
+    /**
+     * @param logStore        where the entries are written, database table or local files
+     * @param asyncLogWriter  background writer, only present in {@code async} mode;
+     *                        without it every call is saved on the caller thread
+     * @param metricsRecorder live in-memory metrics, fed with every logged call
+     */
+    public LogService(LogStore logStore, @Nullable AsyncLogWriter asyncLogWriter,
+                      RollingMetricsRecorder metricsRecorder) {
+        this.logStore = logStore;
+        this.asyncLogWriter = asyncLogWriter;
+        this.metricsRecorder = metricsRecorder;
     }
     public void logApiCall(String url, String ip, long responseTime, int payloadSize) {
         logApiCall(url, ip, responseTime, payloadSize, 200);
     }
 
     public void logApiCall(String url, String ip, long responseTime, int payloadSize, int statusCode) {
+        logApiCall(url, ip, responseTime, payloadSize, statusCode, null, false);
+    }
+
+    /**
+     * @param cacheStatus how the probe cache served the call, {@code null} when no upstream is involved
+     * @param coalesced   whether the upstream call was shared with concurrent identical probes
+     */
+    public void logApiCall(String url, String ip, long responseTime, int payloadSize, int statusCode,
+                           CacheStatus cacheStatus, boolean coalesced) {
+        write(newEntry(url, ip, responseTime, payloadSize, statusCode, cacheStatus, coalesced));
+    }
+
+    /**
+     * Logs an upstream call made to serve {@code request}. When {@link RequestMetricsFilter}
+     * measures the request, the entry is written by the filter once the response is complete,
+     * with the request size and the times of the exchange; otherwise it is written now.
+     */
+    public void logApiCall(HttpServletRequest request, String url, long responseTime, int payloadSize, int statusCode,
+                           CacheStatus cacheStatus, boolean coalesced) {
+        LogEntry entry = newEntry(url, request.getRemoteAddr(), responseTime, payloadSize, statusCode, cacheStatus, coalesced);
+        if (!RequestMetricsFilter.attach(request, entry)) {
+            write(entry);
+        }
+    }
+
+    /**
+     * Writes an entry handed over to {@link RequestMetricsFilter}, completed with the measures of the request.
+     */
+    public void logMeasured(LogEntry entry, long requestBytes, long timeToFirstByteNanos, long totalTimeNanos) {
+        entry.setRequestSize(requestBytes);
+        entry.setTimeToFirstByteNanos(timeToFirstByteNanos);
+        entry.setTotalTimeNanos(totalTimeNanos);
+        write(entry);
+    }
+
+    private void write(LogEntry entry) {
+        metricsRecorder.record(entry.getUrl(), entry.getResponseTime(), entry.getPayloadSize(), entry.getStatusCode());
+        if (asyncLogWriter != null) {
+            asyncLogWriter.submit(entry);
+        } else {
+            logStore.append(entry);
+        }
+        // Une ligne par appel, sur le thread de la requête : diagnostic seulement
+        if (logger.isDebugEnabled()) {
+            logger.debug("Log API externe → IP: {}, URL: {}, Statut: {}, Durée: {} ms, Payload: {} octets, Cache: {}, Mutualisé: {}",
+                    entry.getCallerIp(), entry.getUrl(), entry.getStatusCode(), entry.getResponseTime(), entry.getPayloadSize(),
+                    entry.getCacheStatus(), entry.isCoalesced());
+        }
+    }
+
+    /**
+     * Logs a request served by this application, as measured on the servlet streams.
+     *
+     * @param requestBytes         request body bytes received
+     * @param responseBytes        response body bytes sent, after compression
+     * @param timeToFirstByteNanos time until the first response byte was handed to the container
+     * @param totalTimeNanos       time until the response was complete
+     */
+    public void logRequest(String url, String ip, int statusCode, long requestBytes, long responseBytes,
+                           long timeToFirstByteNanos, long totalTimeNanos) {
+        long responseTime = TimeUnit.NANOSECONDS.toMillis(totalTimeNanos);
+        LogEntry entry = newEntry(url, ip, responseTime, (int) Math.min(responseBytes, Integer.MAX_VALUE), statusCode, null, false);
+        entry.setRequestSize(requestBytes);
+        entry.setTimeToFirstByteNanos(timeToFirstByteNanos);
+        entry.setTotalTimeNanos(totalTimeNanos);
+        metricsRecorder.record(url, responseTime, responseBytes, statusCode);
+        if (asyncLogWriter != null) {
+            asyncLogWriter.submit(entry);
+        } else {
+            logStore.append(entry);
+        }
+        logger.debug("Requête {} → Statut: {}, TTFB: {} µs, Durée: {} µs, Reçu: {} octets, Envoyé: {} octets",
+                url, statusCode, TimeUnit.NANOSECONDS.toMicros(timeToFirstByteNanos),
+                TimeUnit.NANOSECONDS.toMicros(totalTimeNanos), requestBytes, responseBytes);
+    }
+
+    /**
+     * Logs the calls of a batch with a single write to the store, whatever the writer mode.
+     */
+    public void logBatch(List<LogEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        for (LogEntry entry : entries) {
+            metricsRecorder.record(entry.getUrl(), entry.getResponseTime(), entry.getPayloadSize(), entry.getStatusCode());
+        }
+        logStore.append(entries);
+        logger.info("✅ Lot de {} appels externes enregistré", entries.size());
+    }
+
+    static LogEntry newEntry(String url, String ip, long responseTime, int payloadSize, int statusCode,
+                             CacheStatus cacheStatus, boolean coalesced) {
         LogEntry entry = new LogEntry();
         entry.setUrl(url);
         entry.setTimestamp(System.currentTimeMillis());
@@ -25,10 +133,8 @@ public class LogService {
         entry.setResponseTime(responseTime);
         entry.setPayloadSize(payloadSize);
         entry.setStatusCode(statusCode);
-        repository.save(entry);
-        logger.info("✅ Log API externe → IP: {}, URL: {}, Statut: {}, Durée: {} ms, Payload: {} octets",
-                ip, url, statusCode, responseTime, payloadSize);
-
-        System.out.println("📝 LogEntry enregistré : " + entry);
+        entry.setCacheStatus(cacheStatus);
+        entry.setCoalesced(coalesced);
+        return entry;
     }
 }
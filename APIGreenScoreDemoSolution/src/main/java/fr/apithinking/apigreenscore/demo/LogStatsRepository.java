@@ -0,0 +1,140 @@
+package fr.apithinking.apigreenscore.demo;
+
+import fr.apithinking.apigreenscore.demo.LogRollup.Granularity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+record ResponseTimeStats(long count, long payloadBytes, long min, double avg, long p50, long p95, long p99) {
+
+    static ResponseTimeStats read(ResultSet rs) throws SQLException {
+        return new ResponseTimeStats(rs.getLong("calls"), rs.getLong("payload_bytes"), rs.getLong("min_time"),
+                rs.getDouble("avg_time"), rs.getLong("p50"), rs.getLong("p95"), rs.getLong("p99"));
+    }
+}
+
+record UrlStats(String url, ResponseTimeStats stats) {
+}
+
+record StatusStats(int statusCode, ResponseTimeStats stats) {
+}
+
+record LogStats(long from, long to, ResponseTimeStats total, List<UrlStats> urls, List<StatusStats> statuses) {
+}
+
+/**
+ * Aggregates of {@link LogEntry} rows over a time window, computed by the database:
+ * only one row per group comes back, whatever the number of entries.
+ * Percentiles are discrete, i.e. actual observed response times.
+ * <p>
+ * A window that starts before the raw rows still kept is read from the rollups of
+ * {@link LogRetentionService} instead, then the raw rows not rolled up yet: counts, bytes,
+ * min and avg stay exact, the window is widened to whole buckets and percentiles are
+ * {@link LatencyHistogram} bucket values. So are the percentiles of the entries kept in
+ * files by the {@link LogStoreProperties.Type#FILE FILE} store, aggregated by a scan.
+ */
+@Repository
+public class LogStatsRepository {
+
+    private static final String AGGREGATES = "COUNT(*) AS calls, "
+            + "COALESCE(SUM(payload_size), 0) AS payload_bytes, "
+            + "COALESCE(MIN(response_time), 0) AS min_time, "
+            + "COALESCE(AVG(CAST(response_time AS DOUBLE PRECISION)), 0) AS avg_time, "
+            + "COALESCE(PERCENTILE_DISC(0.5) WITHIN GROUP (ORDER BY response_time), 0) AS p50, "
+            + "COALESCE(PERCENTILE_DISC(0.95) WITHIN GROUP (ORDER BY response_time), 0) AS p95, "
+            + "COALESCE(PERCENTILE_DISC(0.99) WITHIN GROUP (ORDER BY response_time), 0) AS p99 ";
+
+    private static final String WINDOW = "FROM log_entry WHERE timestamp >= ? AND timestamp < ? ";
+
+    private static final String TOTAL_SQL = "SELECT " + AGGREGATES + WINDOW;
+
+    private static final String BY_URL_SQL = "SELECT url, " + AGGREGATES + WINDOW
+            + "GROUP BY url ORDER BY calls DESC, url LIMIT ?";
+
+    private static final String BY_STATUS_SQL = "SELECT status_code, " + AGGREGATES + WINDOW
+            + "GROUP BY status_code ORDER BY status_code";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final LogStore logStore;
+    private final LogRollupRepository rollupRepository;
+    private final LogRetentionWatermarks watermarks;
+    private final boolean entriesInDatabase;
+
+    public LogStatsRepository(JdbcTemplate jdbcTemplate, LogStore logStore, LogRollupRepository rollupRepository,
+                              LogRetentionWatermarks watermarks, LogStoreProperties storeProperties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.logStore = logStore;
+        this.rollupRepository = rollupRepository;
+        this.watermarks = watermarks;
+        this.entriesInDatabase = storeProperties.getType() == LogStoreProperties.Type.JDBC;
+    }
+
+    /**
+     * @param from     start of the window, epoch millis, inclusive
+     * @param to       end of the window, epoch millis, exclusive
+     * @param maxUrls  the busiest URLs only, to bound the response size
+     */
+    public LogStats stats(long from, long to, int maxUrls) {
+        if (from < watermarks.rawPurgedBefore()) {
+            // Bornes lues une fois : chaque tranche de temps vient d'une seule source
+            return aggregatedStats(from, to, maxUrls, Math.max(from, watermarks.minutesPurgedBefore()),
+                    Math.max(from, watermarks.minutesRolledUntil()));
+        }
+        if (!entriesInDatabase) {
+            return aggregatedStats(from, to, maxUrls, from, from);
+        }
+        ResponseTimeStats total = jdbcTemplate.queryForObject(TOTAL_SQL, (rs, row) -> ResponseTimeStats.read(rs), from, to);
+        List<UrlStats> urls = jdbcTemplate.query(BY_URL_SQL,
+                (rs, row) -> new UrlStats(rs.getString("url"), ResponseTimeStats.read(rs)), from, to, maxUrls);
+        List<StatusStats> statuses = jdbcTemplate.query(BY_STATUS_SQL,
+                (rs, row) -> new StatusStats(rs.getInt("status_code"), ResponseTimeStats.read(rs)), from, to);
+        return new LogStats(from, to, total, urls, statuses);
+    }
+
+    /**
+     * Per-hour rollups before {@code minutesFrom}, per-minute rollups before {@code rawFrom}, raw entries after.
+     */
+    private LogStats aggregatedStats(long from, long to, int maxUrls, long minutesFrom, long rawFrom) {
+        RollupAccumulator total = new RollupAccumulator();
+        Map<String, RollupAccumulator> byUrl = new HashMap<>();
+        Map<Integer, RollupAccumulator> byStatus = new TreeMap<>();
+        List<LogRollup> rollups = new ArrayList<>();
+        if (from < minutesFrom) {
+            rollups.addAll(rollupRepository.find(Granularity.HOUR, from, Math.min(to, minutesFrom)));
+        }
+        if (minutesFrom < rawFrom) {
+            rollups.addAll(rollupRepository.find(Granularity.MINUTE, minutesFrom, Math.min(to, rawFrom)));
+        }
+        for (LogRollup rollup : rollups) {
+            total.add(rollup);
+            byUrl.computeIfAbsent(rollup.getUrl(), url -> new RollupAccumulator()).add(rollup);
+            byStatus.computeIfAbsent(rollup.getStatusCode(), status -> new RollupAccumulator()).add(rollup);
+        }
+        if (rawFrom < to) {
+            logStore.scan(rawFrom, to, (timestamp, url, statusCode, payloadSize, responseTime) -> {
+                total.add(payloadSize, responseTime);
+                byUrl.computeIfAbsent(url, key -> new RollupAccumulator()).add(payloadSize, responseTime);
+                byStatus.computeIfAbsent(statusCode, key -> new RollupAccumulator()).add(payloadSize, responseTime);
+            });
+        }
+
+        List<UrlStats> urls = byUrl.entrySet().stream()
+                .sorted(Comparator.<Map.Entry<String, RollupAccumulator>>comparingLong(e -> -e.getValue().calls())
+                        .thenComparing(Map.Entry::getKey, Comparator.nullsFirst(Comparator.naturalOrder())))
+                .limit(maxUrls)
+                .map(e -> new UrlStats(e.getKey(), e.getValue().toStats()))
+                .toList();
+        List<StatusStats> statuses = byStatus.entrySet().stream()
+                .map(e -> new StatusStats(e.getKey(), e.getValue().toStats()))
+                .toList();
+        return new LogStats(from, to, total.toStats(), urls, statuses);
+    }
+}
@@ -0,0 +1,58 @@
+package fr.apithinking.apigreenscore.demo;
+
+import org.springframework.lang.Nullable;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Where the {@link LogEntry} rows are written, and read back by timestamp range for the
+ * statistics and the retention ({@code apigreenscore.logs.store.type}).
+ */
+public interface LogStore {
+
+    /**
+     * Receives the entries of a scan, one at a time, without a {@link LogEntry} per row.
+     */
+    interface EntryHandler {
+        void entry(long timestamp, String url, int statusCode, long payloadSize, long responseTime);
+    }
+
+    /**
+     * Writes a single entry, on the caller thread.
+     */
+    default void append(LogEntry entry) {
+        append(List.of(entry));
+    }
+
+    /**
+     * Writes the entries of a batch together.
+     */
+    void append(List<LogEntry> entries);
+
+    /**
+     * Hands every entry of [{@code from}, {@code to}) to {@code handler}, in no particular order.
+     */
+    void scan(long from, long to, EntryHandler handler);
+
+    /**
+     * Hands every entry of [{@code from}, {@code to}) to {@code consumer} as a full {@link LogEntry}
+     * without an id, one at a time and without holding them: memory does not grow with their number.
+     *
+     * @param url the entries of this URL only, or all of them if {@code null}
+     */
+    void scanEntries(long from, long to, @Nullable String url, Consumer<LogEntry> consumer);
+
+    /**
+     * Timestamp of the first entry at or after {@code from}, or {@code null} if there is none.
+     */
+    Long firstTimestamp(long from);
+
+    /**
+     * Drops entries older than {@code before} in bulk. Entries that share their unit of
+     * deletion with newer ones may be kept until a later call.
+     *
+     * @return the number of entries deleted
+     */
+    long deleteBefore(long before);
+}
@@ -0,0 +1,33 @@
+package fr.apithinking.apigreenscore.demo;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * The {@link LogStore} chosen by {@code apigreenscore.logs.store.type}.
+ */
+@Configuration
+public class LogStoreConfiguration {
+
+    @Bean
+    @ConditionalOnProperty(prefix = "apigreenscore.logs.store", name = "type", havingValue = "jdbc", matchIfMissing = true)
+    public JdbcLogStore jdbcLogStore(LogEntryRepository repository, LogEntryBatchWriter batchWriter,
+                                     JdbcTemplate jdbcTemplate, LogStoreProperties properties) {
+        return new JdbcLogStore(repository, batchWriter, jdbcTemplate, properties.getExportFetchSize());
+    }
+
+    /**
+     * Closed after the asynchronous writer, which depends on it, has drained its queue.
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "apigreenscore.logs.store", name = "type", havingValue = "file")
+    public SegmentLogStore segmentLogStore(LogStoreProperties properties) throws IOException {
+        return new SegmentLogStore(Path.of(properties.getDirectory()), properties.getSegmentSize().toBytes(),
+                properties.getSegmentDuration());
+    }
+}
@@ -0,0 +1,35 @@
+package fr.apithinking.apigreenscore.demo;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Settings of the {@link LogStore} ({@code apigreenscore.logs.store.*}).
+ */
+@Data
+@ConfigurationProperties(prefix = "apigreenscore.logs.store")
+public class LogStoreProperties {
+
+    /**
+     * JDBC : table log_entry de la base de l'application (H2 en mémoire par défaut).
+     * FILE : segments binaires en ajout seul dans {@code directory}, conservés au redémarrage.
+     */
+    public enum Type { JDBC, FILE }
+
+    private Type type = Type.JDBC;
+
+    /** Directory of the {@link Type#FILE} segments, created if missing. */
+    private String directory = "data/logs";
+
+    /** Rows fetched per round trip by the database cursor of an export. */
+    private int exportFetchSize = 500;
+
+    /** A new segment is started once the current one reaches this size... */
+    private DataSize segmentSize = DataSize.ofMegabytes(64);
+
+    /** ...or holds entries this much newer than its first one; old segments are deleted whole. */
+    private Duration segmentDuration = Duration.ofHours(1);
+}
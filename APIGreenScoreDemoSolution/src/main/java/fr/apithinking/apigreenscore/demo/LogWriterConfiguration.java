@@ -0,0 +1,22 @@
+package fr.apithinking.apigreenscore.demo;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class LogWriterConfiguration {
+
+    /**
+     * Background writer used when {@code apigreenscore.logs.writer.mode=async}.
+     * It depends on the log store, so Spring closes it (and drains its queue)
+     * before the database or the segment files go away.
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "apigreenscore.logs.writer", name = "mode", havingValue = "async")
+    public AsyncLogWriter asyncLogWriter(LogWriterProperties properties, LogStore logStore) {
+        AsyncLogWriter writer = new AsyncLogWriter(properties, logStore::append);
+        writer.start();
+        return writer;
+    }
+}
@@ -0,0 +1,54 @@
+package fr.apithinking.apigreenscore.demo;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings of the {@link LogEntry} write path ({@code apigreenscore.logs.writer.*}).
+ */
+@Data
+@ConfigurationProperties(prefix = "apigreenscore.logs.writer")
+public class LogWriterProperties {
+
+    /**
+     * SYNC : un INSERT par appel sur le thread de la requête (comportement historique).
+     * ASYNC : les entrées passent par une file bornée et sont écrites par lots en tâche de fond.
+     */
+    public enum Mode { SYNC, ASYNC }
+
+    /**
+     * What to do when the queue is full (or nearly full, for {@link #SAMPLE}).
+     */
+    public enum Backpressure {
+        /** The caller waits for a free slot: nothing is lost, but requests slow down. */
+        BLOCK,
+        /** The oldest queued entry is discarded to make room for the new one. */
+        DROP_OLDEST,
+        /** Above {@code sample-threshold} only a {@code sample-rate} fraction of entries is kept. */
+        SAMPLE
+    }
+
+    private Mode mode = Mode.SYNC;
+
+    /** Maximum number of entries waiting to be written. */
+    private int queueCapacity = 10_000;
+
+    /** An insert batch is flushed as soon as it holds this many entries... */
+    private int batchSize = 500;
+
+    /** ...or when its oldest entry has waited this long. */
+    private Duration flushInterval = Duration.ofMillis(200);
+
+    private Backpressure backpressure = Backpressure.BLOCK;
+
+    /** Queue fill ratio from which {@link Backpressure#SAMPLE} starts discarding entries. */
+    private double sampleThreshold = 0.8;
+
+    /** Fraction of entries kept by {@link Backpressure#SAMPLE} once above the threshold. */
+    private double sampleRate = 0.1;
+
+    /** Maximum time given to the writer to drain the queue on shutdown. */
+    private Duration shutdownTimeout = Duration.ofSeconds(30);
+}
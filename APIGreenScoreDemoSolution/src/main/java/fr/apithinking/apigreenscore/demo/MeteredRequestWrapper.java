@@ -0,0 +1,100 @@
+package fr.apithinking.apigreenscore.demo;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+
+/**
+ * Request that counts the body bytes read by the application.
+ */
+class MeteredRequestWrapper extends HttpServletRequestWrapper {
+
+    private volatile long bytes;
+    private ServletInputStream inputStream;
+    private BufferedReader reader;
+
+    MeteredRequestWrapper(HttpServletRequest request) {
+        super(request);
+    }
+
+    /**
+     * Body bytes read, or the declared {@code Content-Length} if more: a body parsed by the
+     * container (form parameters) or left unread still crossed the network.
+     */
+    long getBytes() {
+        return Math.max(bytes, getContentLengthLong());
+    }
+
+    @Override
+    public ServletInputStream getInputStream() throws IOException {
+        if (reader != null) {
+            throw new IllegalStateException("getReader() a déjà été appelé pour cette requête");
+        }
+        if (inputStream == null) {
+            inputStream = new MeteredInputStream(super.getInputStream());
+        }
+        return inputStream;
+    }
+
+    @Override
+    public BufferedReader getReader() throws IOException {
+        if (reader == null) {
+            if (inputStream != null) {
+                throw new IllegalStateException("getInputStream() a déjà été appelé pour cette requête");
+            }
+            String encoding = getCharacterEncoding();
+            inputStream = new MeteredInputStream(super.getInputStream());
+            reader = new BufferedReader(new InputStreamReader(inputStream,
+                    encoding != null ? Charset.forName(encoding) : Charset.forName("ISO-8859-1")));
+        }
+        return reader;
+    }
+
+    private class MeteredInputStream extends ServletInputStream {
+
+        private final ServletInputStream delegate;
+
+        MeteredInputStream(ServletInputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = delegate.read();
+            if (b >= 0) {
+                bytes++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = delegate.read(b, off, len);
+            if (n > 0) {
+                bytes += n;
+            }
+            return n;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return delegate.isFinished();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            delegate.setReadListener(readListener);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package fr.apithinking.apigreenscore.demo;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+
+/**
+ * Response that counts the body bytes handed to the container and notes
+ * when the first of them, or the first explicit flush, went out.
+ */
+class MeteredResponseWrapper extends HttpServletResponseWrapper {
+
+    private final long startNanos;
+    private volatile long bytes;
+    private volatile long firstByteNanos = -1;
+    private ServletOutputStream outputStream;
+    private PrintWriter writer;
+
+    MeteredResponseWrapper(HttpServletResponse response, long startNanos) {
+        super(response);
+        this.startNanos = startNanos;
+    }
+
+    long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Time from the start of the request to the first byte sent, or {@code totalNanos} if nothing was sent.
+     */
+    long getTimeToFirstByteNanos(long totalNanos) {
+        long first = firstByteNanos;
+        return first < 0 ? totalNanos : first - startNanos;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (writer != null) {
+            throw new IllegalStateException("getWriter() a déjà été appelé pour cette réponse");
+        }
+        if (outputStream == null) {
+            outputStream = new MeteredOutputStream(super.getOutputStream());
+        }
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            if (outputStream != null) {
+                throw new IllegalStateException("getOutputStream() a déjà été appelé pour cette réponse");
+            }
+            outputStream = new MeteredOutputStream(super.getOutputStream());
+            writer = new PrintWriter(new OutputStreamWriter(outputStream, Charset.forName(getCharacterEncoding())));
+        }
+        return writer;
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        markFirstByte();
+        super.flushBuffer();
+    }
+
+    @Override
+    public void resetBuffer() {
+        super.resetBuffer();
+        bytes = 0;
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        bytes = 0;
+    }
+
+    /**
+     * Flushes what the writer still holds, so that every byte is counted.
+     */
+    void finish() {
+        if (writer != null) {
+            writer.flush();
+        }
+    }
+
+    private void markFirstByte() {
+        if (firstByteNanos < 0) {
+            firstByteNanos = System.nanoTime();
+        }
+    }
+
+    private class MeteredOutputStream extends ServletOutputStream {
+
+        private final ServletOutputStream delegate;
+
+        MeteredOutputStream(ServletOutputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            markFirstByte();
+            delegate.write(b);
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len > 0) {
+                markFirstByte();
+            }
+            delegate.write(b, off, len);
+            bytes += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            delegate.setWriteListener(writeListener);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package fr.apithinking.apigreenscore.demo;
+
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.core5.pool.PoolStats;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+record PoolUsage(int leased, int idle, int pending, int max) {
+
+    static PoolUsage of(PoolStats stats) {
+        return new PoolUsage(stats.getLeased(), stats.getAvailable(), stats.getPending(), stats.getMax());
+    }
+}
+
+record OutboundPoolStats(PoolUsage total, Map<String, PoolUsage> hosts) {
+}
+
+@RestController
+@RequestMapping("/api/outbound")
+public class OutboundClientController {
+
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final ProbeResponseCache probeCache;
+    private final UpstreamCircuitBreaker circuitBreaker;
+
+    public OutboundClientController(PoolingHttpClientConnectionManager outboundConnectionManager,
+                                    ProbeResponseCache probeResponseCache, UpstreamCircuitBreaker upstreamCircuitBreaker) {
+        this.connectionManager = outboundConnectionManager;
+        this.probeCache = probeResponseCache;
+        this.circuitBreaker = upstreamCircuitBreaker;
+    }
+
+    /**
+     * Endpoint to inspect the outbound connection pool.
+     *
+     * @return leased, idle and pending connections, in total and per target host
+     */
+    @GetMapping("/pool")
+    public ResponseEntity<OutboundPoolStats> poolStats() {
+        Map<String, PoolUsage> hosts = new TreeMap<>();
+        for (HttpRoute route : connectionManager.getRoutes()) {
+            hosts.put(route.getTargetHost().toURI(), PoolUsage.of(connectionManager.getStats(route)));
+        }
+        return ResponseEntity.ok(new OutboundPoolStats(PoolUsage.of(connectionManager.getTotalStats()), hosts));
+    }
+
+    /**
+     * Endpoint to inspect the probe response cache.
+     *
+     * @return entries, weight in bytes, hits, misses and evictions since startup
+     */
+    @GetMapping("/cache")
+    public ResponseEntity<ProbeCacheStats> cacheStats() {
+        return ResponseEntity.ok(probeCache.stats());
+    }
+
+    /**
+     * Endpoint to inspect the circuit breakers of the probed hosts.
+     *
+     * @return calls refused since startup, and per host the circuit state, consecutive failures,
+     *         refused calls, observed p99 and current timeout
+     */
+    @GetMapping("/circuits")
+    public ResponseEntity<CircuitBreakerStats> circuitStats() {
+        return ResponseEntity.ok(circuitBreaker.stats());
+    }
+}
@@ -0,0 +1,67 @@
+package fr.apithinking.apigreenscore.demo;
+
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * One pooled, keep-alive HTTP client shared by every outbound probe,
+ * instead of a new {@link RestTemplate} (and TCP/TLS handshake) per request.
+ */
+@Configuration
+public class OutboundHttpClientConfiguration {
+
+    @Bean
+    public PoolingHttpClientConnectionManager outboundConnectionManager(OutboundHttpClientProperties properties) {
+        return PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(properties.getMaxConnections())
+                .setMaxConnPerRoute(properties.getMaxConnectionsPerHost())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(properties.getConnectTimeout()))
+                        .setSocketTimeout(Timeout.of(properties.getReadTimeout()))
+                        .setValidateAfterInactivity(TimeValue.of(properties.getValidateAfterInactivity()))
+                        .build())
+                .build();
+    }
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient outboundHttpClient(PoolingHttpClientConnectionManager outboundConnectionManager,
+                                                  OutboundHttpClientProperties properties) {
+        return HttpClients.custom()
+                .setConnectionManager(outboundConnectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.of(properties.getPoolAcquireTimeout()))
+                        .setResponseTimeout(Timeout.of(properties.getReadTimeout()))
+                        .build())
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.of(properties.getIdleTimeout()))
+                .build();
+    }
+
+    @Bean
+    public RestTemplate outboundRestTemplate(CloseableHttpClient outboundHttpClient) {
+        HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(outboundHttpClient);
+        // Délai propre à l'appel (lots de sondes), sinon ceux du client
+        requestFactory.setHttpContextFactory(OutboundRequestTimeout::httpContext);
+        return new RestTemplate(requestFactory);
+    }
+
+    @Bean
+    public UpstreamCircuitBreaker upstreamCircuitBreaker(CircuitBreakerProperties properties) {
+        return new UpstreamCircuitBreaker(properties);
+    }
+
+    @Bean
+    public ProbeResponseCache probeResponseCache(ProbeCacheProperties properties) {
+        return new ProbeResponseCache(properties);
+    }
+}
@@ -0,0 +1,36 @@
+package fr.apithinking.apigreenscore.demo;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings of the shared outbound HTTP client used by the probe endpoints
+ * ({@code apigreenscore.http.client.*}).
+ */
+@Data
+@ConfigurationProperties(prefix = "apigreenscore.http.client")
+public class OutboundHttpClientProperties {
+
+    /** Maximum number of pooled connections, all hosts included. */
+    private int maxConnections = 200;
+
+    /** Maximum number of pooled connections to a single host (route). */
+    private int maxConnectionsPerHost = 20;
+
+    /** TCP connect timeout. */
+    private Duration connectTimeout = Duration.ofSeconds(2);
+
+    /** Maximum inactivity between two packets once the request is sent. */
+    private Duration readTimeout = Duration.ofSeconds(10);
+
+    /** Maximum wait for a free connection when the pool is exhausted. */
+    private Duration poolAcquireTimeout = Duration.ofSeconds(2);
+
+    /** Idle connections are closed after this delay. */
+    private Duration idleTimeout = Duration.ofSeconds(30);
+
+    /** Idle connections older than this are checked before being reused. */
+    private Duration validateAfterInactivity = Duration.ofSeconds(2);
+}
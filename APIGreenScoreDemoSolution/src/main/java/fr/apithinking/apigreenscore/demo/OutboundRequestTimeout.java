@@ -0,0 +1,65 @@
+package fr.apithinking.apigreenscore.demo;
+
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.http.HttpMethod;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Per-call timeout of the shared outbound client, for the calls that need a tighter one
+ * than {@code apigreenscore.http.client.read-timeout}.
+ * <p>
+ * The timeout is bound to the calling thread for the duration of {@link #call}, and turned
+ * into the {@link RequestConfig} of the request by {@link #httpContext}, the HTTP context
+ * factory of the outbound request factory: waiting for a pooled connection and for the
+ * response both count against it.
+ */
+final class OutboundRequestTimeout {
+
+    private static final ThreadLocal<Duration> CURRENT = new ThreadLocal<>();
+
+    private OutboundRequestTimeout() {
+    }
+
+    static <T> T call(Duration timeout, Supplier<T> call) {
+        Duration previous = CURRENT.get();
+        CURRENT.set(timeout);
+        try {
+            return call.get();
+        } finally {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    /**
+     * @return the timeout bound to the current call, or {@code null} if there is none
+     */
+    static Duration current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * @return a context carrying the timeout of the current call, or {@code null} to keep the client defaults
+     */
+    static HttpContext httpContext(HttpMethod method, URI uri) {
+        Duration timeout = CURRENT.get();
+        if (timeout == null) {
+            return null;
+        }
+        HttpClientContext context = HttpClientContext.create();
+        context.setRequestConfig(RequestConfig.custom()
+                .setConnectionRequestTimeout(Timeout.of(timeout))
+                .setResponseTimeout(Timeout.of(timeout))
+                .build());
+        return context;
+    }
+}
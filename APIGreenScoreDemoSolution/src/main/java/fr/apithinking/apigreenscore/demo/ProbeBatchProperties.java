@@ -0,0 +1,32 @@
+package fr.apithinking.apigreenscore.demo;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings of {@code POST /api/url2test/batch} ({@code apigreenscore.probe.batch.*}).
+ */
+@Data
+@ConfigurationProperties(prefix = "apigreenscore.probe.batch")
+public class ProbeBatchProperties {
+
+    /** Maximum number of URLs in one batch. */
+    private int maxUrls = 10_000;
+
+    /** Probes of one batch in flight at once, when the request does not say. */
+    private int defaultConcurrency = 16;
+
+    /** Upper bound of the concurrency a request may ask for. */
+    private int maxConcurrency = 64;
+
+    /** Timeout of each probe, when the request does not say. */
+    private Duration defaultTimeout = Duration.ofSeconds(5);
+
+    /** Upper bound of the timeout a request may ask for. */
+    private Duration maxTimeout = Duration.ofSeconds(30);
+
+    /** Threads shared by all the batches (platform-thread mode only). */
+    private int threads = 64;
+}
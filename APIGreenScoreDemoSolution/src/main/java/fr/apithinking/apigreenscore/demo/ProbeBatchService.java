@@ -0,0 +1,163 @@
+package fr.apithinking.apigreenscore.demo;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import fr.apithinking.apigreenscore.demo.ProbeResponseCache.ProbeType;
+import fr.apithinking.apigreenscore.demo.UpstreamCircuitBreaker.CircuitOpenException;
+import fr.apithinking.apigreenscore.demo.UpstreamProbeService.CoalescedProbeException;
+import fr.apithinking.apigreenscore.demo.UpstreamProbeService.ProbeResult;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One line of the {@code /api/url2test/batch} response.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+record BatchProbeResult(String url, int statusCode, long responseTime, long payloadSize,
+                        CacheStatus cacheStatus, Boolean coalesced, String error) {
+}
+
+/**
+ * Probes a list of URLs with the same measurement as {@code /api/url2test}, at most
+ * {@code concurrency} at a time, and hands each result over as soon as it is known.
+ * The log entries of the whole batch are written at the end, with a single batch insert.
+ * Each URL takes a token from the bucket of its host, as {@code /api/url2test} does: a URL whose
+ * host bucket is empty is answered 429 in its line, without call nor log.
+ * <p>
+ * The probes run on a pool of threads shared by all the batches.
+ */
+@Service
+public class ProbeBatchService implements AutoCloseable {
+
+    @FunctionalInterface
+    public interface ResultListener {
+        void onResult(BatchProbeResult result) throws IOException;
+    }
+
+    /** Status of the lines refused by the circuit breaker; an upstream 5xx is reported as 500. */
+    private static final int SHORT_CIRCUITED = 503;
+
+    private static final String HOST_RATE_LIMITED_MESSAGE = "Trop d'appels vers cet hôte, réessayez plus tard";
+
+    private final UpstreamProbeService probeService;
+    private final ProbeResponseCache probeCache;
+    private final LogService logService;
+    private final RateLimitFilter rateLimitFilter;
+    private final Executor executor;
+
+    public ProbeBatchService(UpstreamProbeService probeService, ProbeResponseCache probeResponseCache,
+                             LogService logService, ObjectProvider<RateLimitFilter> rateLimitFilter,
+                             ProbeBatchProperties properties) {
+        this.probeService = probeService;
+        this.probeCache = probeResponseCache;
+        this.logService = logService;
+        // Absent quand la limitation de débit est désactivée
+        this.rateLimitFilter = rateLimitFilter.getIfAvailable();
+        this.executor = newThreadPool(properties.getThreads());
+    }
+
+    private static ThreadPoolExecutor newThreadPool(int threads) {
+        AtomicInteger count = new AtomicInteger();
+        // File non bornée : chaque lot ne soumet jamais plus que sa concurrence
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                task -> {
+                    Thread thread = new Thread(task, "probe-batch-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * Runs the batch; {@code listener} is called on the calling thread, in completion order.
+     *
+     * @throws IOException if the listener fails, e.g. because the client went away;
+     *                     the probes already done are logged anyway
+     */
+    public void probeAll(List<String> urls, int concurrency, Duration timeout, String callerIp,
+                         ResultListener listener) throws IOException {
+        CompletionService<BatchProbeResult> completion = new ExecutorCompletionService<>(executor);
+        List<LogEntry> entries = new ArrayList<>(urls.size());
+        Iterator<String> pending = urls.iterator();
+        int inFlight = 0;
+        try {
+            while (pending.hasNext() || inFlight > 0) {
+                while (inFlight < concurrency && pending.hasNext()) {
+                    String url = pending.next();
+                    if (!HelloController.isHttpUrl(url)) {
+                        // Même règle que /api/url2test : refusée sans appel ni log
+                        listener.onResult(new BatchProbeResult(url, 400, 0, 0, null, null, HelloController.URL_ERROR_MESSAGE));
+                        continue;
+                    }
+                    if (rateLimitFilter != null && rateLimitFilter.acquireHost(WebFilterConfiguration.BATCH_PROBE_PATH, url) > 0) {
+                        listener.onResult(new BatchProbeResult(url, 429, 0, 0, null, null, HOST_RATE_LIMITED_MESSAGE));
+                        continue;
+                    }
+                    completion.submit(() -> probe(url, timeout));
+                    inFlight++;
+                }
+                if (inFlight == 0) {
+                    break;
+                }
+                BatchProbeResult result = take(completion);
+                inFlight--;
+                if (result.statusCode() != SHORT_CIRCUITED) {
+                    // Les appels refusés par le disjoncteur n'ont pas atteint l'amont : pas de log
+                    entries.add(LogService.newEntry(result.url(), callerIp, result.responseTime(), (int) result.payloadSize(),
+                            result.statusCode(), result.cacheStatus(), Boolean.TRUE.equals(result.coalesced())));
+                }
+                listener.onResult(result);
+            }
+        } finally {
+            logService.logBatch(entries);
+        }
+    }
+
+    private BatchProbeResult probe(String url, Duration timeout) {
+        long start = System.currentTimeMillis();
+        try {
+            ProbeResult result = OutboundRequestTimeout.call(timeout, () -> probeService.probe(ProbeType.URL, url));
+            return new BatchProbeResult(url, result.statusCode(), System.currentTimeMillis() - start,
+                    result.payloadSize(), result.cacheStatus(), result.coalesced(), null);
+        } catch (CircuitOpenException e) {
+            return new BatchProbeResult(url, SHORT_CIRCUITED, System.currentTimeMillis() - start, 0, null, null,
+                    e.getMessage());
+        } catch (Exception e) {
+            return new BatchProbeResult(url, 500, System.currentTimeMillis() - start, 0, probeCache.missStatus(),
+                    e instanceof CoalescedProbeException, "Erreur lors de l'appel de l'URL : " + e.getMessage());
+        }
+    }
+
+    private static BatchProbeResult take(CompletionService<BatchProbeResult> completion) throws IOException {
+        try {
+            return completion.take().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Lot de sondes interrompu", e);
+        } catch (ExecutionException e) {
+            // probe() ne lève pas : ne peut venir que d'une erreur grave
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @Override
+    public void close() {
+        if (executor instanceof ThreadPoolExecutor pool) {
+            pool.shutdownNow();
+        }
+    }
+}
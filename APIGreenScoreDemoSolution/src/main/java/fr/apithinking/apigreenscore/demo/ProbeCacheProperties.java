@@ -0,0 +1,30 @@
+package fr.apithinking.apigreenscore.demo;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Settings of the probe response cache ({@code apigreenscore.probe.cache.*}).
+ */
+@Data
+@ConfigurationProperties(prefix = "apigreenscore.probe.cache")
+public class ProbeCacheProperties {
+
+    /** When disabled, every probe calls the upstream URL. */
+    private boolean enabled = true;
+
+    /** Total weight of the cached responses; least recently used entries are evicted beyond it. */
+    private DataSize maxSize = DataSize.ofMegabytes(16);
+
+    /** Responses heavier than this are never cached. */
+    private DataSize maxEntrySize = DataSize.ofMegabytes(1);
+
+    /** Lifetime of a response whose upstream sends neither {@code Cache-Control} nor {@code Expires}. */
+    private Duration defaultTtl = Duration.ofSeconds(10);
+
+    /** Upper bound of any lifetime, including the one announced by the upstream. */
+    private Duration maxTtl = Duration.ofMinutes(5);
+}
@@ -0,0 +1,203 @@
+package fr.apithinking.apigreenscore.demo;
+
+import org.springframework.http.HttpHeaders;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+record ProbeCacheStats(int entries, long sizeBytes, long maxSizeBytes, long hits, long misses, long evictions) {
+}
+
+/**
+ * Cache of upstream probe results, keyed by probe type and URL.
+ * <p>
+ * Each entry lives for the freshness lifetime announced by the upstream
+ * ({@code Cache-Control: s-maxage/max-age}, then {@code Expires}), or the configured default,
+ * capped to {@code max-ttl}. Responses marked {@code no-store}, {@code no-cache} or
+ * {@code private} are not cached. The cache is bounded by the total weight in bytes of its
+ * entries, not by their count: least recently used entries are evicted first.
+ */
+public class ProbeResponseCache {
+
+    /** Response header telling the caller whether the probe was served from the cache. */
+    public static final String CACHE_STATUS_HEADER = "X-Cache";
+
+    /** Approximate footprint of an entry besides its URL and body (key, map node, record). */
+    private static final int ENTRY_OVERHEAD = 128;
+
+    public enum ProbeType {
+        URL, JSON, XML, JSON2XML
+    }
+
+    /**
+     * What is kept of an upstream response. {@code body} is only stored for the probes that
+     * send it back to the caller; the others only need the status, type and size.
+     */
+    public record CachedResponse(int statusCode, String contentType, long payloadSize, byte[] body) {
+    }
+
+    private record Key(ProbeType type, String url) {
+    }
+
+    private record Entry(CachedResponse response, long expiresAt, long weight) {
+    }
+
+    private final ProbeCacheProperties properties;
+    private final LongSupplier nanoClock;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long weight;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public ProbeResponseCache(ProbeCacheProperties properties) {
+        this(properties, System::nanoTime);
+    }
+
+    ProbeResponseCache(ProbeCacheProperties properties, LongSupplier nanoClock) {
+        this.properties = properties;
+        this.nanoClock = nanoClock;
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * Status to log for a probe that had to call the upstream URL.
+     */
+    public CacheStatus missStatus() {
+        return isEnabled() ? CacheStatus.MISS : CacheStatus.BYPASS;
+    }
+
+    /**
+     * @return the fresh cached response, or {@code null} if absent, expired or the cache is disabled
+     */
+    public synchronized CachedResponse get(ProbeType type, String url) {
+        if (!isEnabled()) {
+            return null;
+        }
+        Key key = new Key(type, url);
+        Entry entry = entries.get(key);
+        if (entry != null && entry.expiresAt() - nanoClock.getAsLong() <= 0) {
+            remove(key);
+            entry = null;
+        }
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.response();
+    }
+
+    /**
+     * Stores a response if its upstream headers allow it and it fits in the cache.
+     */
+    public synchronized void put(ProbeType type, String url, CachedResponse response, HttpHeaders upstreamHeaders) {
+        if (!isEnabled()) {
+            return;
+        }
+        Duration ttl = freshness(upstreamHeaders, properties.getDefaultTtl(), properties.getMaxTtl());
+        long entryWeight = weigh(url, response);
+        if (ttl.isZero() || entryWeight > properties.getMaxEntrySize().toBytes()
+                || entryWeight > properties.getMaxSize().toBytes()) {
+            return;
+        }
+
+        Key key = new Key(type, url);
+        remove(key);
+        entries.put(key, new Entry(response, nanoClock.getAsLong() + ttl.toNanos(), entryWeight));
+        weight += entryWeight;
+
+        // Ordre d'accès : les premières entrées sont les moins récemment utilisées
+        Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+        while (weight > properties.getMaxSize().toBytes() && eldest.hasNext()) {
+            weight -= eldest.next().getValue().weight();
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    public synchronized ProbeCacheStats stats() {
+        return new ProbeCacheStats(entries.size(), weight, properties.getMaxSize().toBytes(), hits, misses, evictions);
+    }
+
+    private void remove(Key key) {
+        Entry previous = entries.remove(key);
+        if (previous != null) {
+            weight -= previous.weight();
+        }
+    }
+
+    private static long weigh(String url, CachedResponse response) {
+        long body = response.body() != null ? response.body().length : 0;
+        return ENTRY_OVERHEAD + 2L * url.length() + 2L * response.contentType().length() + body;
+    }
+
+    /**
+     * Freshness lifetime of a response according to its {@code Cache-Control}, {@code Age}
+     * and {@code Expires} headers, {@code defaultTtl} if they say nothing, capped to {@code maxTtl}.
+     *
+     * @return {@link Duration#ZERO} if the response must not be cached
+     */
+    static Duration freshness(HttpHeaders headers, Duration defaultTtl, Duration maxTtl) {
+        if (headers.getVary().contains("*")) {
+            return Duration.ZERO;
+        }
+
+        Long maxAge = null;
+        Long sharedMaxAge = null;
+        for (String value : headers.getOrEmpty(HttpHeaders.CACHE_CONTROL)) {
+            for (String directive : value.split(",")) {
+                String[] parts = directive.trim().toLowerCase(Locale.ROOT).split("=", 2);
+                switch (parts[0]) {
+                    case "no-store", "no-cache", "private" -> {
+                        return Duration.ZERO;
+                    }
+                    case "max-age" -> maxAge = seconds(parts);
+                    case "s-maxage" -> sharedMaxAge = seconds(parts);
+                    default -> {
+                        // Les autres directives ne changent pas la durée de fraîcheur
+                    }
+                }
+            }
+        }
+
+        Duration ttl;
+        if (sharedMaxAge != null || maxAge != null) {
+            long seconds = sharedMaxAge != null ? sharedMaxAge : maxAge;
+            long age = headers.containsKey(HttpHeaders.AGE) ? Math.max(0, parseSeconds(headers.getFirst(HttpHeaders.AGE))) : 0;
+            ttl = Duration.ofSeconds(Math.max(0, seconds - age));
+        } else if (headers.containsKey(HttpHeaders.EXPIRES)) {
+            // Une date Expires invalide (souvent "0" ou "-1") signifie déjà expirée
+            long expires = headers.getExpires();
+            long date = headers.getDate();
+            long now = date > 0 ? date : System.currentTimeMillis();
+            ttl = expires > 0 ? Duration.ofMillis(Math.max(0, expires - now)) : Duration.ZERO;
+        } else {
+            ttl = defaultTtl;
+        }
+        return ttl.compareTo(maxTtl) > 0 ? maxTtl : ttl;
+    }
+
+    private static Long seconds(String[] directive) {
+        if (directive.length < 2) {
+            return 0L;
+        }
+        return Math.max(0, parseSeconds(directive[1].replace("\"", "")));
+    }
+
+    private static long parseSeconds(String value) {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package fr.apithinking.apigreenscore.demo;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Response body made of records serialized through a {@link RecordProjection}:
+ * a JSON array whose objects only hold the selected fields.
+ */
+@JsonSerialize(using = ProjectedList.Serializer.class)
+record ProjectedList<T extends Record>(List<T> items, RecordProjection<T> projection) {
+
+    static class Serializer extends JsonSerializer<ProjectedList<?>> {
+
+        @Override
+        public void serialize(ProjectedList<?> list, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartArray(list, list.items().size());
+            for (Record item : list.items()) {
+                list.projection().write(item, gen, provider);
+            }
+            gen.writeEndArray();
+        }
+    }
+}
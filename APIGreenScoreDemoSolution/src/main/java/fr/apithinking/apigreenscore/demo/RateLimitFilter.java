@@ -0,0 +1,135 @@
+package fr.apithinking.apigreenscore.demo;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Rate limits the probe endpoints with token buckets, per caller IP (the {@code callerIp} of the
+ * logs) and per host of the probed URL (the {@code url} parameter), with limits per endpoint.
+ * <p>
+ * A request that finds a bucket empty is answered 429 with {@code Retry-After} right away:
+ * it neither waits for a thread nor reaches the upstream, and it is not logged. A request refused
+ * for its host gives its IP token back: only the requests let through count against the caller.
+ * The batch, whose URLs are in the body, takes its host tokens URL by URL with {@link #acquireHost}.
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private final RateLimitProperties properties;
+    private final TokenBucketRateLimiter limiter;
+    private final LongSupplier nanoClock;
+    private final AtomicLong rejected = new AtomicLong();
+
+    public RateLimitFilter(RateLimitProperties properties) {
+        this(properties, System::nanoTime);
+    }
+
+    RateLimitFilter(RateLimitProperties properties, LongSupplier nanoClock) {
+        this.properties = properties;
+        this.nanoClock = nanoClock;
+        this.limiter = new TokenBucketRateLimiter(properties.getMaxBuckets(), properties.getIdleTimeout().toNanos(),
+                nanoClock.getAsLong());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        RateLimitProperties.Limits limits = properties.getEndpoints().get(path);
+        RateLimitProperties.Limits defaults = properties.getDefaults();
+        long now = nanoClock.getAsLong();
+
+        String ipKey = "ip " + path + " " + request.getRemoteAddr();
+        RateLimitProperties.Bucket perIp = limits != null && limits.getPerIp() != null ? limits.getPerIp() : defaults.getPerIp();
+        long wait = acquire(ipKey, perIp, now);
+        String host = host(request.getParameter("url"));
+        if (wait == 0 && host != null) {
+            wait = acquire("host " + path + " " + host, perHost(path), now);
+            if (wait > 0 && isLimited(perIp)) {
+                limiter.refund(ipKey, perIp.getPerSecond());
+            }
+        }
+        if (wait > 0) {
+            rejected.incrementAndGet();
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, divideUp(wait, TimeUnit.SECONDS.toNanos(1)))));
+            response.setContentType("text/plain;charset=UTF-8");
+            response.getOutputStream().write("Trop d'appels, réessayez plus tard".getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    /**
+     * Takes a token from the bucket of the host of {@code url} for the endpoint {@code path}, as a
+     * request carrying it in its {@code url} parameter would; a refusal counts as a rejected call.
+     *
+     * @return 0 if the token was granted or the URL has no host, otherwise the wait in nanoseconds
+     */
+    public long acquireHost(String path, String url) {
+        String host = host(url);
+        if (host == null) {
+            return 0;
+        }
+        long wait = acquire("host " + path + " " + host, perHost(path), nanoClock.getAsLong());
+        if (wait > 0) {
+            rejected.incrementAndGet();
+        }
+        return wait;
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    int getBucketCount() {
+        return limiter.size();
+    }
+
+    private RateLimitProperties.Bucket perHost(String path) {
+        RateLimitProperties.Limits limits = properties.getEndpoints().get(path);
+        return limits != null && limits.getPerHost() != null ? limits.getPerHost() : properties.getDefaults().getPerHost();
+    }
+
+    private long acquire(String key, RateLimitProperties.Bucket bucket, long now) {
+        if (!isLimited(bucket)) {
+            return 0;
+        }
+        return limiter.tryAcquire(key, bucket.getCapacity(), bucket.getPerSecond(), now);
+    }
+
+    private static boolean isLimited(RateLimitProperties.Bucket bucket) {
+        return bucket != null && bucket.getCapacity() > 0 && bucket.getPerSecond() > 0;
+    }
+
+    /**
+     * Host of {@code url} in lower case, or {@code null} if it has none: the controller rejects such URLs.
+     */
+    static String host(String url) {
+        if (url == null) {
+            return null;
+        }
+        try {
+            String host = URI.create(url).getHost();
+            return host != null ? host.toLowerCase(Locale.ROOT) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static long divideUp(long value, long divisor) {
+        return (value + divisor - 1) / divisor;
+    }
+}
@@ -0,0 +1,66 @@
+package fr.apithinking.apigreenscore.demo;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Settings of the rate limiting of the probe endpoints ({@code apigreenscore.rate-limit.*}).
+ */
+@Data
+@ConfigurationProperties(prefix = "apigreenscore.rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    /** Limits of the endpoints not listed in {@link #endpoints}, and of the dimensions they leave out. */
+    private Limits defaults = new Limits(new Bucket(30, 10), new Bucket(60, 20));
+
+    /** Limits per endpoint path, e.g. {@code endpoints[/api/json2xml].per-ip.per-second=2}. */
+    private Map<String, Limits> endpoints = new HashMap<>();
+
+    /** Buckets kept at most; beyond, callers without a bucket are rejected until idle ones are evicted. */
+    private int maxBuckets = 100_000;
+
+    /** A bucket unused for this long after it has refilled is evicted: forgetting it loses nothing. */
+    private Duration idleTimeout = Duration.ofSeconds(30);
+
+    @Data
+    public static class Limits {
+
+        /** Per caller IP; {@code null} for the default. */
+        private Bucket perIp;
+
+        /** Per host of the probed URL; {@code null} for the default. */
+        private Bucket perHost;
+
+        public Limits() {
+        }
+
+        public Limits(Bucket perIp, Bucket perHost) {
+            this.perIp = perIp;
+            this.perHost = perHost;
+        }
+    }
+
+    @Data
+    public static class Bucket {
+
+        /** Burst allowed to an idle caller; 0 disables the limit. */
+        private int capacity;
+
+        /** Sustained rate, in requests per second. */
+        private double perSecond;
+
+        public Bucket() {
+        }
+
+        public Bucket(int capacity, double perSecond) {
+            this.capacity = capacity;
+            this.perSecond = perSecond;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package fr.apithinking.apigreenscore.demo;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.RecordComponent;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiled form of a {@code fields} expression over a record type: a bitmask of the
+ * selected components, plus a nested projection for record-typed components selected
+ * with a dotted path ({@code location.lat}).
+ * <p>
+ * The expression is parsed once per request; {@link #write} then emits only the selected
+ * components straight from the record accessors, without building an intermediate object
+ * nor letting Jackson introspect the type. Null values are omitted. Component metadata is
+ * computed once per record type, so new components are picked up without code changes.
+ */
+final class RecordProjection<T extends Record> {
+
+    private static final ClassValue<Component[]> COMPONENTS = new ClassValue<>() {
+        @Override
+        protected Component[] computeValue(Class<?> type) {
+            return Component.of(type);
+        }
+    };
+
+    private final Component[] components;
+    private final long mask;
+    private final RecordProjection<?>[] nested;
+
+    private RecordProjection(Component[] components, long mask, RecordProjection<?>[] nested) {
+        this.components = components;
+        this.mask = mask;
+        this.nested = nested;
+    }
+
+    /**
+     * Projection keeping every component.
+     */
+    static <T extends Record> RecordProjection<T> all(Class<T> type) {
+        Component[] components = COMPONENTS.get(type);
+        return new RecordProjection<>(components, allBits(components.length), new RecordProjection<?>[components.length]);
+    }
+
+    /**
+     * Compiles a comma-separated list of component names (case-insensitive, dotted paths for
+     * nested records). Unknown names are ignored; an empty expression selects everything.
+     */
+    static <T extends Record> RecordProjection<T> parse(Class<T> type, String fields) {
+        if (fields == null || fields.isBlank()) {
+            return all(type);
+        }
+        List<String> paths = new ArrayList<>();
+        for (String path : fields.split(",")) {
+            if (!path.isBlank()) {
+                paths.add(path.trim());
+            }
+        }
+        return compile(type, paths);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <T extends Record> RecordProjection<T> compile(Class<?> type, List<String> paths) {
+        Component[] components = COMPONENTS.get(type);
+        long mask = 0;
+        long whole = 0;
+        Map<Integer, List<String>> subPaths = new HashMap<>();
+        for (String path : paths) {
+            int dot = path.indexOf('.');
+            String head = dot < 0 ? path : path.substring(0, dot);
+            int index = Component.indexOf(components, head);
+            if (index < 0) {
+                continue;
+            }
+            mask |= 1L << index;
+            if (dot < 0 || !components[index].record) {
+                whole |= 1L << index;
+            } else {
+                subPaths.computeIfAbsent(index, i -> new ArrayList<>()).add(path.substring(dot + 1));
+            }
+        }
+        RecordProjection<?>[] nested = new RecordProjection<?>[components.length];
+        for (Map.Entry<Integer, List<String>> entry : subPaths.entrySet()) {
+            int index = entry.getKey();
+            // Un champ demandé en entier l'emporte sur ses sous-champs
+            if ((whole & (1L << index)) == 0) {
+                nested[index] = compile((Class) components[index].type, entry.getValue());
+            }
+        }
+        return new RecordProjection<>(components, mask, nested);
+    }
+
+    /**
+     * Writes the selected components of {@code value} as a JSON object.
+     */
+    void write(Object value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject(value);
+        for (int i = 0; i < components.length; i++) {
+            if ((mask & (1L << i)) == 0) {
+                continue;
+            }
+            Object componentValue = components[i].get(value);
+            if (componentValue == null) {
+                continue;
+            }
+            gen.writeFieldName(components[i].name);
+            if (nested[i] != null) {
+                nested[i].write(componentValue, gen, provider);
+            } else if (componentValue instanceof String text) {
+                gen.writeString(text);
+            } else {
+                provider.defaultSerializeValue(componentValue, gen);
+            }
+        }
+        gen.writeEndObject();
+    }
+
+    private static long allBits(int count) {
+        return count == Long.SIZE ? -1L : (1L << count) - 1;
+    }
+
+    /**
+     * A record component: its JSON name and an accessor handle.
+     */
+    private static final class Component {
+        private final SerializableString name;
+        private final String rawName;
+        private final Class<?> type;
+        private final boolean record;
+        private final MethodHandle accessor;
+
+        private Component(RecordComponent component) throws IllegalAccessException {
+            this.rawName = component.getName();
+            this.name = new SerializedString(rawName);
+            this.type = component.getType();
+            this.record = type.isRecord();
+            component.getAccessor().setAccessible(true);
+            this.accessor = MethodHandles.lookup().unreflect(component.getAccessor())
+                    .asType(MethodType.methodType(Object.class, Object.class));
+        }
+
+        static Component[] of(Class<?> type) {
+            RecordComponent[] recordComponents = type.getRecordComponents();
+            if (recordComponents == null) {
+                throw new IllegalArgumentException(type + " n'est pas un record");
+            }
+            if (recordComponents.length > Long.SIZE) {
+                throw new IllegalArgumentException(type + " a plus de " + Long.SIZE + " composants");
+            }
+            Component[] components = new Component[recordComponents.length];
+            try {
+                for (int i = 0; i < recordComponents.length; i++) {
+                    components[i] = new Component(recordComponents[i]);
+                }
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Accesseurs inaccessibles sur " + type, e);
+            }
+            return components;
+        }
+
+        static int indexOf(Component[] components, String name) {
+            for (int i = 0; i < components.length; i++) {
+                if (components[i].rawName.equalsIgnoreCase(name)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        Object get(Object value) {
+            try {
+                return accessor.invokeExact(value);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package fr.apithinking.apigreenscore.demo;
+
+import java.util.List;
+
+/**
+ * {@link AddressRepository} whose catalogue can be replaced at runtime. The new index is
+ * built aside and published in one volatile write: readers keep using the previous one
+ * until the swap and are never blocked.
+ */
+public class ReloadableAddressRepository implements AddressRepository {
+
+    private volatile IndexedAddressRepository current;
+
+    public ReloadableAddressRepository(List<Address> addresses) {
+        this(new IndexedAddressRepository(addresses));
+    }
+
+    public ReloadableAddressRepository(IndexedAddressRepository catalogue) {
+        this.current = catalogue;
+    }
+
+    /**
+     * Replaces the catalogue; {@link #version()} changes if the content differs.
+     */
+    public void reload(List<Address> addresses) {
+        reload(new IndexedAddressRepository(addresses));
+    }
+
+    /**
+     * Publishes an already built catalogue.
+     */
+    public void reload(IndexedAddressRepository catalogue) {
+        current = catalogue;
+    }
+
+    @Override
+    public AddressPage search(String street, String city, int fromRow, int limit) {
+        return current.search(street, city, fromRow, limit);
+    }
+
+    @Override
+    public int size() {
+        return current.size();
+    }
+
+    @Override
+    public String version() {
+        return current.version();
+    }
+
+    @Override
+    public AddressRepository snapshot() {
+        return current;
+    }
+
+    /**
+     * @see IndexedAddressRepository#memoryBytes()
+     */
+    public long memoryBytes() {
+        return current.memoryBytes();
+    }
+}
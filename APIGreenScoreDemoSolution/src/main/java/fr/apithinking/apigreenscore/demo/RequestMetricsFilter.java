@@ -0,0 +1,124 @@
+package fr.apithinking.apigreenscore.demo;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Measures every request it is mapped to and hands the figures to {@link LogService},
+ * so that controllers do not time themselves.
+ * <p>
+ * Times are taken with {@link System#nanoTime()} from the entry in the filter chain: time to
+ * first byte when the first body byte (or the first flush) reaches the container, total time
+ * when the response is complete. Bytes are counted on the servlet streams, outside the gzip
+ * encoding, so they are the bytes of the body on the wire. A response written asynchronously
+ * (streaming) is only logged when the asynchronous dispatch ends.
+ * <p>
+ * A controller that logs its own entry for the request hands it over with {@link #attach}:
+ * the filter completes it with the request size and the times measured here, instead of
+ * writing a second row. On the paths whose controllers log their own entries (the probes),
+ * a request that hands nothing over (rejected URL, batch logged in one insert) is not logged.
+ */
+public class RequestMetricsFilter extends OncePerRequestFilter {
+
+    private static final String START_ATTRIBUTE = RequestMetricsFilter.class.getName() + ".start";
+    private static final String ENTRY_ATTRIBUTE = RequestMetricsFilter.class.getName() + ".entry";
+    private static final String URL_ATTRIBUTE = RequestMetricsFilter.class.getName() + ".url";
+
+    private final LogService logService;
+    private final Set<String> controllerLoggedPaths;
+
+    public RequestMetricsFilter(LogService logService) {
+        this(logService, Set.of());
+    }
+
+    /**
+     * @param controllerLoggedPaths paths whose controller logs its own entries: the filter only
+     *                              completes the entry handed over with {@link #attach}
+     */
+    public RequestMetricsFilter(LogService logService, Collection<String> controllerLoggedPaths) {
+        this.logService = logService;
+        this.controllerLoggedPaths = Set.copyOf(controllerLoggedPaths);
+    }
+
+    /**
+     * Hands over the entry the controller logs for {@code request}: it is written once the
+     * response is complete, with the request size and the times of the exchange.
+     *
+     * @return {@code false} if the request is not measured, in which case the caller writes the entry
+     */
+    static boolean attach(ServletRequest request, LogEntry entry) {
+        if (request.getAttribute(START_ATTRIBUTE) == null) {
+            return false;
+        }
+        request.setAttribute(ENTRY_ATTRIBUTE, entry);
+        return true;
+    }
+
+    /**
+     * Logs the measured request under {@code url} instead of its path.
+     */
+    static void logUnder(ServletRequest request, String url) {
+        request.setAttribute(URL_ATTRIBUTE, url);
+    }
+
+    /**
+     * Time since the request entered the filter, or {@code -1} if it is not measured.
+     */
+    static long elapsedNanos(ServletRequest request) {
+        Object start = request.getAttribute(START_ATTRIBUTE);
+        return start instanceof Long startNanos ? System.nanoTime() - startNanos : -1;
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        MeteredResponseWrapper meteredResponse = WebUtils.getNativeResponse(response, MeteredResponseWrapper.class);
+        MeteredRequestWrapper meteredRequest = WebUtils.getNativeRequest(request, MeteredRequestWrapper.class);
+        long startNanos;
+        if (meteredResponse == null || meteredRequest == null) {
+            startNanos = System.nanoTime();
+            request.setAttribute(START_ATTRIBUTE, startNanos);
+            meteredRequest = new MeteredRequestWrapper(request);
+            meteredResponse = new MeteredResponseWrapper(response, startNanos);
+        } else {
+            // Dispatch asynchrone : mêmes compteurs, même origine des temps
+            startNanos = (Long) request.getAttribute(START_ATTRIBUTE);
+        }
+
+        boolean failed = true;
+        try {
+            filterChain.doFilter(meteredRequest, meteredResponse);
+            failed = false;
+        } finally {
+            if (!request.isAsyncStarted()) {
+                meteredResponse.finish();
+                long totalNanos = System.nanoTime() - startNanos;
+                // Exception remontée : le conteneur répondra 500
+                int status = failed ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR : meteredResponse.getStatus();
+                long timeToFirstByteNanos = meteredResponse.getTimeToFirstByteNanos(totalNanos);
+                String path = request.getRequestURI().substring(request.getContextPath().length());
+                if (request.getAttribute(ENTRY_ATTRIBUTE) instanceof LogEntry entry) {
+                    logService.logMeasured(entry, meteredRequest.getBytes(), timeToFirstByteNanos, totalNanos);
+                } else if (!controllerLoggedPaths.contains(path)) {
+                    String url = request.getAttribute(URL_ATTRIBUTE) instanceof String logged ? logged : path;
+                    logService.logRequest(url, request.getRemoteAddr(), status,
+                            meteredRequest.getBytes(), meteredResponse.getBytes(), timeToFirstByteNanos, totalNanos);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package fr.apithinking.apigreenscore.demo;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * gzip encoding of the responses, negotiated with {@code Accept-Encoding}.
+ * <p>
+ * Done here rather than by the container ({@code server.compression}) so that the bytes
+ * actually sent are known to the application: {@link RequestMetricsFilter}, outside this
+ * filter, counts the compressed body.
+ */
+public class ResponseCompressionFilter extends OncePerRequestFilter {
+
+    private final ResponseCompressionProperties properties;
+    private final List<MediaType> compressibleTypes;
+
+    public ResponseCompressionFilter(ResponseCompressionProperties properties) {
+        this.properties = properties;
+        this.compressibleTypes = MediaType.parseMediaTypes(properties.getMimeTypes());
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        // Un corps écrit en asynchrone n'est terminé qu'au retour du dispatch asynchrone
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        CompressingResponseWrapper wrapper = WebUtils.getNativeResponse(response, CompressingResponseWrapper.class);
+        if (wrapper == null) {
+            boolean gzipAllowed = properties.isEnabled() && acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+            if (properties.isEnabled()) {
+                response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            }
+            wrapper = new CompressingResponseWrapper(response, gzipAllowed,
+                    (int) Math.min(properties.getMinResponseSize().toBytes(), Integer.MAX_VALUE), compressibleTypes);
+        }
+
+        filterChain.doFilter(request, wrapper);
+
+        if (!request.isAsyncStarted()) {
+            wrapper.finish();
+        }
+    }
+
+    /**
+     * Whether {@code gzip} (or {@code *}) is listed in {@code Accept-Encoding} without {@code q=0}.
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim().toLowerCase(Locale.ROOT);
+            if (!name.equals("gzip") && !name.equals("*")) {
+                continue;
+            }
+            boolean refused = false;
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        refused = Double.parseDouble(param.substring(2)) <= 0;
+                    } catch (NumberFormatException e) {
+                        refused = true;
+                    }
+                }
+            }
+            if (!refused) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
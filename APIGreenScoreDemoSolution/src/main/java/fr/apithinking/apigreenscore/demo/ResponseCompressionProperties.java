@@ -0,0 +1,25 @@
+package fr.apithinking.apigreenscore.demo;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.util.List;
+
+/**
+ * Settings of the gzip response encoding ({@code apigreenscore.compression.*}).
+ */
+@Data
+@ConfigurationProperties(prefix = "apigreenscore.compression")
+public class ResponseCompressionProperties {
+
+    /** Whether responses may be gzipped; when disabled, the bytes sent are still counted. */
+    private boolean enabled = true;
+
+    /** Bodies smaller than this are sent as is: the gzip overhead would outweigh the gain. */
+    private DataSize minResponseSize = DataSize.ofKilobytes(1);
+
+    /** Content types worth compressing; binary encodings are already compact. */
+    private List<String> mimeTypes = List.of("application/json", "application/xml", "application/x-ndjson",
+            "text/plain", "text/csv");
+}
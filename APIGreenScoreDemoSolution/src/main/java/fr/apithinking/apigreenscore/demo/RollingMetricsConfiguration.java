@@ -0,0 +1,82 @@
+package fr.apithinking.apigreenscore.demo;
+
+import fr.apithinking.apigreenscore.demo.RollingMetricsRecorder.Window;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * The rolling metrics recorder, and its meters in the Micrometer registry
+ * ({@code /actuator/metrics/apigreenscore.*}), tagged by {@code url} and {@code window}.
+ */
+@Configuration
+public class RollingMetricsConfiguration {
+
+    private static final Map<String, ToDoubleFunction<WindowStats>> QUANTILES = Map.of(
+            "0.5", WindowStats::p50,
+            "0.95", WindowStats::p95,
+            "0.99", WindowStats::p99);
+
+    private static final List<String> METERS = List.of("apigreenscore.calls", "apigreenscore.payload",
+            "apigreenscore.throughput", "apigreenscore.response.time");
+
+    @Bean
+    public RollingMetricsRecorder rollingMetricsRecorder(RollingMetricsProperties properties) {
+        return new RollingMetricsRecorder(properties);
+    }
+
+    @Bean
+    public MeterBinder rollingMetricsMeterBinder(RollingMetricsRecorder recorder) {
+        return registry -> {
+            // Les URL vues avant le branchement, puis chaque nouvelle au fil de l'eau ; une URL évincée perd ses mesures
+            recorder.onNewKey(key -> bind(registry, recorder, key));
+            recorder.onRemovedKey(key -> unbind(registry, key));
+            recorder.keys().forEach(key -> bind(registry, recorder, key));
+        };
+    }
+
+    static void bind(MeterRegistry registry, RollingMetricsRecorder recorder, String url) {
+        FunctionCounter.builder("apigreenscore.calls", recorder, r -> r.totalCount(url))
+                .description("Appels loggés depuis le démarrage")
+                .tag("url", url)
+                .register(registry);
+        FunctionCounter.builder("apigreenscore.payload", recorder, r -> r.totalPayloadBytes(url))
+                .description("Octets de payload loggés depuis le démarrage")
+                .baseUnit("bytes")
+                .tag("url", url)
+                .register(registry);
+        for (Window window : Window.values()) {
+            gauge(recorder, url, window, "apigreenscore.throughput", "calls/s", WindowStats::perSecond)
+                    .register(registry);
+            QUANTILES.forEach((quantile, value) ->
+                    gauge(recorder, url, window, "apigreenscore.response.time", "milliseconds", value)
+                            .tag("quantile", quantile)
+                            .register(registry));
+        }
+    }
+
+    static void unbind(MeterRegistry registry, String url) {
+        for (String name : METERS) {
+            registry.find(name).tag("url", url).meters().forEach(registry::remove);
+        }
+    }
+
+    private static Gauge.Builder<RollingMetricsRecorder> gauge(RollingMetricsRecorder recorder, String url, Window window,
+                                                               String name, String unit,
+                                                               ToDoubleFunction<WindowStats> value) {
+        return Gauge.builder(name, recorder, r -> {
+                    WindowStats stats = r.window(url, window);
+                    return stats != null ? value.applyAsDouble(stats) : 0;
+                })
+                .baseUnit(unit)
+                .tag("url", url)
+                .tag("window", window.label());
+    }
+}
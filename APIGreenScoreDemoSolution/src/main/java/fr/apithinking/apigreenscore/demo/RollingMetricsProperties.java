@@ -0,0 +1,23 @@
+package fr.apithinking.apigreenscore.demo;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings of the in-memory rolling metrics ({@code apigreenscore.metrics.*}).
+ */
+@Data
+@ConfigurationProperties(prefix = "apigreenscore.metrics")
+public class RollingMetricsProperties {
+
+    /** Distinct URLs tracked separately; the calls to any other URL are grouped under {@code other}. */
+    private int maxKeys = 100;
+
+    /**
+     * A URL without calls for this long stops being tracked, and its meters are removed:
+     * its windows are all empty past 15 minutes, and its key is free for another URL.
+     */
+    private Duration idleTimeout = Duration.ofMinutes(15);
+}
@@ -0,0 +1,289 @@
+package fr.apithinking.apigreenscore.demo;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+record WindowStats(long count, double perSecond, long errors, long payloadBytes,
+                   double avg, long p50, long p95, long p99, long max) {
+}
+
+record UrlMetrics(String url, long totalCount, long totalErrors, long totalPayloadBytes,
+                  Map<String, WindowStats> windows) {
+}
+
+/**
+ * Live throughput and latency per URL over the last 1, 5 and 15 minutes, kept in memory
+ * next to the durable {@link LogEntry} rows.
+ * <p>
+ * Each URL owns a ring of 60 slices of 15 seconds; a slice holds striped counters
+ * ({@link LongAdder}) and a {@link LatencyHistogram}. Recording never locks: it increments
+ * the slice of the current period, replacing it with a CAS when the ring has come round.
+ * Readers merge the slices of the requested window without blocking writers; a record racing
+ * with the rotation of its slice may be missed by the windows, never by the totals.
+ * <p>
+ * A URL without calls for {@code idle-timeout} is dropped, lifetime totals included, at most
+ * once per slice and by a single writer; a record racing with the eviction of its URL may be lost.
+ */
+public class RollingMetricsRecorder {
+
+    public static final String OTHER_KEY = "other";
+
+    static final Duration SLICE = Duration.ofSeconds(15);
+    static final int SLICES = 60;
+
+    public enum Window {
+        ONE_MINUTE("1m", 4), FIVE_MINUTES("5m", 20), FIFTEEN_MINUTES("15m", 60);
+
+        private final String label;
+        private final int slices;
+
+        Window(String label, int slices) {
+            this.label = label;
+            this.slices = slices;
+        }
+
+        public String label() {
+            return label;
+        }
+
+        double seconds() {
+            return slices * (double) SLICE.toSeconds();
+        }
+    }
+
+    private static final class Slice {
+        final long period;
+        final LongAdder count = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder payloadBytes = new LongAdder();
+        final LongAdder responseTimeSum = new LongAdder();
+        final LongAccumulator max = new LongAccumulator(Math::max, 0);
+        final AtomicLongArray buckets = LatencyHistogram.newBuckets();
+
+        Slice(long period) {
+            this.period = period;
+        }
+    }
+
+    private static final class UrlSeries {
+        final LongAdder count = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder payloadBytes = new LongAdder();
+        final AtomicReferenceArray<Slice> slices = new AtomicReferenceArray<>(SLICES);
+        volatile long lastRecord;
+    }
+
+    private final ConcurrentMap<String, UrlSeries> series = new ConcurrentHashMap<>();
+    private final int maxKeys;
+    private final long idleMillis;
+    private final LongSupplier clock;
+    private final AtomicLong lastSweepPeriod = new AtomicLong();
+    private volatile Consumer<String> newKeyListener = key -> {
+    };
+    private volatile Consumer<String> removedKeyListener = key -> {
+    };
+
+    public RollingMetricsRecorder(RollingMetricsProperties properties) {
+        this(properties, System::currentTimeMillis);
+    }
+
+    RollingMetricsRecorder(RollingMetricsProperties properties, LongSupplier clock) {
+        this.maxKeys = properties.getMaxKeys();
+        this.idleMillis = properties.getIdleTimeout().toMillis();
+        this.clock = clock;
+        this.lastSweepPeriod.set(currentPeriod());
+    }
+
+    /**
+     * Called once for each URL that starts being tracked, e.g. to register its meters.
+     */
+    void onNewKey(Consumer<String> listener) {
+        this.newKeyListener = listener;
+    }
+
+    /**
+     * Called once for each URL evicted after {@code idle-timeout} without calls, e.g. to remove its meters.
+     */
+    void onRemovedKey(Consumer<String> listener) {
+        this.removedKeyListener = listener;
+    }
+
+    public void record(String url, long responseTime, long payloadSize, int statusCode) {
+        long now = clock.getAsLong();
+        long period = now / SLICE.toMillis();
+        sweepIfDue(now, period);
+        UrlSeries urlSeries = seriesOf(url);
+        urlSeries.lastRecord = now;
+        urlSeries.count.increment();
+        urlSeries.payloadBytes.add(payloadSize);
+        boolean error = statusCode >= 400;
+        if (error) {
+            urlSeries.errors.increment();
+        }
+
+        Slice slice = currentSlice(urlSeries, period);
+        slice.count.increment();
+        slice.payloadBytes.add(payloadSize);
+        slice.responseTimeSum.add(responseTime);
+        slice.max.accumulate(responseTime);
+        if (error) {
+            slice.errors.increment();
+        }
+        LatencyHistogram.record(slice.buckets, responseTime);
+    }
+
+    private UrlSeries seriesOf(String url) {
+        UrlSeries existing = series.get(url);
+        if (existing != null) {
+            return existing;
+        }
+        // Nombre de clés borné : les URL au-delà partagent une seule série
+        String key = series.size() < maxKeys ? url : OTHER_KEY;
+        boolean[] created = new boolean[1];
+        UrlSeries urlSeries = series.computeIfAbsent(key, k -> {
+            created[0] = true;
+            return new UrlSeries();
+        });
+        if (created[0]) {
+            newKeyListener.accept(key);
+        }
+        return urlSeries;
+    }
+
+    private void sweepIfDue(long now, long period) {
+        long last = lastSweepPeriod.get();
+        // Un seul thread balaie, une fois par tranche au plus
+        if (period == last || !lastSweepPeriod.compareAndSet(last, period)) {
+            return;
+        }
+        series.forEach((key, urlSeries) -> {
+            if (now - urlSeries.lastRecord > idleMillis && series.remove(key, urlSeries)) {
+                removedKeyListener.accept(key);
+            }
+        });
+    }
+
+    private static Slice currentSlice(UrlSeries urlSeries, long period) {
+        int index = (int) (period % SLICES);
+        while (true) {
+            Slice slice = urlSeries.slices.get(index);
+            if (slice != null && slice.period == period) {
+                return slice;
+            }
+            if (slice != null && slice.period > period) {
+                // Horloge revenue en arrière : on ne remplace pas une tranche plus récente
+                return slice;
+            }
+            Slice fresh = new Slice(period);
+            if (urlSeries.slices.compareAndSet(index, slice, fresh)) {
+                return fresh;
+            }
+        }
+    }
+
+    private long currentPeriod() {
+        return clock.getAsLong() / SLICE.toMillis();
+    }
+
+    /**
+     * Tracked keys: URLs, and {@link #OTHER_KEY} once {@code max-keys} is reached.
+     */
+    public List<String> keys() {
+        return new ArrayList<>(series.keySet());
+    }
+
+    /**
+     * @return the metrics of every tracked URL, busiest first
+     */
+    public List<UrlMetrics> snapshot() {
+        long period = currentPeriod();
+        List<UrlMetrics> snapshot = new ArrayList<>();
+        series.forEach((key, urlSeries) -> snapshot.add(snapshot(key, urlSeries, period)));
+        snapshot.sort(Comparator.comparingLong(UrlMetrics::totalCount).reversed());
+        return snapshot;
+    }
+
+    /**
+     * @return the metrics of {@code url}, or {@code null} if it is not tracked
+     */
+    public UrlMetrics snapshot(String url) {
+        UrlSeries urlSeries = series.get(url);
+        return urlSeries != null ? snapshot(url, urlSeries, currentPeriod()) : null;
+    }
+
+    /**
+     * Lifetime number of calls to {@code url}.
+     */
+    public long totalCount(String url) {
+        UrlSeries urlSeries = series.get(url);
+        return urlSeries != null ? urlSeries.count.sum() : 0;
+    }
+
+    /**
+     * Lifetime payload bytes of the calls to {@code url}.
+     */
+    public long totalPayloadBytes(String url) {
+        UrlSeries urlSeries = series.get(url);
+        return urlSeries != null ? urlSeries.payloadBytes.sum() : 0;
+    }
+
+    public WindowStats window(String url, Window window) {
+        UrlSeries urlSeries = series.get(url);
+        return urlSeries != null ? window(urlSeries, window, currentPeriod()) : null;
+    }
+
+    private static UrlMetrics snapshot(String key, UrlSeries urlSeries, long period) {
+        Map<String, WindowStats> windows = new LinkedHashMap<>();
+        for (Window window : Window.values()) {
+            windows.put(window.label(), window(urlSeries, window, period));
+        }
+        return new UrlMetrics(key, urlSeries.count.sum(), urlSeries.errors.sum(), urlSeries.payloadBytes.sum(), windows);
+    }
+
+    private static WindowStats window(UrlSeries urlSeries, Window window, long period) {
+        long[] counts = new long[LatencyHistogram.BUCKETS];
+        long count = 0;
+        long errors = 0;
+        long payloadBytes = 0;
+        long responseTimeSum = 0;
+        long max = 0;
+        for (int i = 0; i < SLICES; i++) {
+            Slice slice = urlSeries.slices.get(i);
+            if (slice == null || slice.period <= period - window.slices || slice.period > period) {
+                continue;
+            }
+            count += slice.count.sum();
+            errors += slice.errors.sum();
+            payloadBytes += slice.payloadBytes.sum();
+            responseTimeSum += slice.responseTimeSum.sum();
+            max = Math.max(max, slice.max.get());
+            for (int b = 0; b < counts.length; b++) {
+                counts[b] += slice.buckets.get(b);
+            }
+        }
+        // Rangs calculés sur l'histogramme lui-même : lu pendant les écritures, il peut différer de count
+        long histogramCount = 0;
+        for (long c : counts) {
+            histogramCount += c;
+        }
+        return new WindowStats(count, count / window.seconds(), errors, payloadBytes,
+                count > 0 ? (double) responseTimeSum / count : 0,
+                Math.min(max, LatencyHistogram.quantile(counts, histogramCount, 0.50)),
+                Math.min(max, LatencyHistogram.quantile(counts, histogramCount, 0.95)),
+                Math.min(max, LatencyHistogram.quantile(counts, histogramCount, 0.99)),
+                max);
+    }
+}
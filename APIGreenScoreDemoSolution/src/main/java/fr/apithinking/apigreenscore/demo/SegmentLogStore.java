@@ -0,0 +1,533 @@
+package fr.apithinking.apigreenscore.demo;
+
+import org.springframework.lang.Nullable;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * {@link LogStore} in local files, kept across restarts and off the heap: append-only segments of
+ * fixed-width binary records, where URLs and caller IPs are ids of a dictionary of the segment, next
+ * to it on disk. Retention drops the dictionary with its segment, so it never outgrows the window kept.
+ * <p>
+ * A segment is written until it reaches {@code segmentBytes} or receives an entry {@code segmentDuration}
+ * newer than its first one, and is only read afterwards. Each segment knows the time range of its
+ * entries: a scan reads, sequentially and in large blocks, only the segments that overlap the window,
+ * and retention deletes whole segment files.
+ * <p>
+ * A scan holds a reference on each segment it reads, never a lock: retention removes a segment at once
+ * and its file is deleted when the last scan reading it lets it go, so a slow reader delays neither
+ * retention nor appends.
+ * <p>
+ * Nothing is forced to disk before {@link #close()}: a crash of the JVM loses nothing, a crash of the
+ * system may lose the last writes. A partial record left at the end of a file is cut off on open, and so
+ * are the records from the first one using a string that did not reach the dictionary file.
+ */
+public class SegmentLogStore implements LogStore, AutoCloseable {
+
+    /**
+     * Big-endian layout of a record; {@code -1} stands for a missing id or nanosecond time.
+     */
+    static final int RECORD_SIZE = 56;
+    private static final int TIMESTAMP = 0;
+    private static final int URL_ID = 8;
+    private static final int IP_ID = 12;
+    private static final int PAYLOAD_SIZE = 16;
+    private static final int RESPONSE_TIME = 20;
+    private static final int REQUEST_SIZE = 28;
+    private static final int TIME_TO_FIRST_BYTE = 36;
+    private static final int TOTAL_TIME = 44;
+    private static final int STATUS_CODE = 52;
+    private static final int CACHE_STATUS = 54;
+    private static final int COALESCED = 55;
+
+    private static final int NO_ID = -1;
+    private static final int BLOCK_SIZE = 1024 * RECORD_SIZE;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String DICTIONARY_SUFFIX = ".dict";
+    /** Dictionary shared by all segments, before each segment had its own. */
+    private static final String LEGACY_DICTIONARY_FILE = "dictionary.dat";
+    private static final CacheStatus[] CACHE_STATUSES = CacheStatus.values();
+
+    private final Path directory;
+    private final long maxSegmentRecords;
+    private final long segmentSpanMillis;
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
+    private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(BLOCK_SIZE);
+    private Segment active;
+    private long nextSequence;
+
+    public SegmentLogStore(Path directory, long segmentBytes, Duration segmentDuration) throws IOException {
+        this.directory = directory;
+        this.maxSegmentRecords = Math.max(1, segmentBytes / RECORD_SIZE);
+        this.segmentSpanMillis = segmentDuration.toMillis();
+        Files.createDirectories(directory);
+        Path legacyDictionary = directory.resolve(LEGACY_DICTIONARY_FILE);
+        List<Path> files;
+        try (Stream<Path> list = Files.list(directory)) {
+            files = list.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+            }).sorted().toList();
+        }
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            long sequence = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+            Path dictionaryFile = dictionaryOf(file);
+            if (Files.notExists(dictionaryFile) && Files.exists(legacyDictionary)) {
+                // Segment écrit avec le dictionnaire commun : il en reçoit une copie
+                Files.copy(legacyDictionary, dictionaryFile);
+            }
+            Segment segment = Segment.open(file, dictionaryFile);
+            if (segment.records == 0) {
+                segment.delete();
+            } else {
+                segments.add(segment);
+            }
+            nextSequence = sequence + 1;
+        }
+        Files.deleteIfExists(legacyDictionary);
+    }
+
+    @Override
+    public synchronized void append(List<LogEntry> entries) {
+        try {
+            for (LogEntry entry : entries) {
+                long timestamp = entry.getTimestamp();
+                long pending = writeBuffer.position() / RECORD_SIZE;
+                if (active == null || active.records + pending >= maxSegmentRecords
+                        || timestamp - active.firstTimestamp >= segmentSpanMillis) {
+                    flush();
+                    roll(timestamp);
+                }
+                writeBuffer.putLong(timestamp)
+                        .putInt(active.dictionary.id(entry.getUrl()))
+                        .putInt(active.dictionary.id(entry.getCallerIp()))
+                        .putInt(entry.getPayloadSize())
+                        .putLong(entry.getResponseTime())
+                        .putLong(entry.getRequestSize())
+                        .putLong(entry.getTimeToFirstByteNanos() != null ? entry.getTimeToFirstByteNanos() : -1)
+                        .putLong(entry.getTotalTimeNanos() != null ? entry.getTotalTimeNanos() : -1)
+                        .putShort((short) entry.getStatusCode())
+                        .put((byte) (entry.getCacheStatus() != null ? entry.getCacheStatus().ordinal() + 1 : 0))
+                        .put((byte) (entry.isCoalesced() ? 1 : 0));
+                if (!writeBuffer.hasRemaining()) {
+                    flush();
+                }
+            }
+            flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void scan(long from, long to, EntryHandler handler) {
+        try {
+            ByteBuffer block = ByteBuffer.allocate(BLOCK_SIZE);
+            for (Segment segment : segments) {
+                if (!segment.overlaps(from, to)) {
+                    continue;
+                }
+                segment.readRetained(block, (buffer, offset) -> {
+                    long timestamp = buffer.getLong(offset + TIMESTAMP);
+                    if (timestamp >= from && timestamp < to) {
+                        handler.entry(timestamp, segment.dictionary.value(buffer.getInt(offset + URL_ID)),
+                                buffer.getShort(offset + STATUS_CODE), buffer.getInt(offset + PAYLOAD_SIZE),
+                                buffer.getLong(offset + RESPONSE_TIME));
+                    }
+                });
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Entries in write order, segment after segment.
+     */
+    @Override
+    public void scanEntries(long from, long to, @Nullable String url, Consumer<LogEntry> consumer) {
+        try {
+            ByteBuffer block = ByteBuffer.allocate(BLOCK_SIZE);
+            for (Segment segment : segments) {
+                if (!segment.overlaps(from, to)) {
+                    continue;
+                }
+                // URL jamais vue dans ce segment : rien à y lire ; sinon comparaison des ids plutôt que des chaînes
+                Integer urlId = url != null ? segment.dictionary.idOf(url) : null;
+                if (url != null && urlId == null) {
+                    continue;
+                }
+                segment.readRetained(block, (buffer, offset) -> {
+                    long timestamp = buffer.getLong(offset + TIMESTAMP);
+                    if (timestamp >= from && timestamp < to
+                            && (urlId == null || buffer.getInt(offset + URL_ID) == urlId)) {
+                        consumer.accept(readEntry(segment.dictionary, buffer, offset));
+                    }
+                });
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public Long firstTimestamp(long from) {
+        try {
+            long[] first = {Long.MAX_VALUE};
+            ByteBuffer block = null;
+            for (Segment segment : segments) {
+                if (!segment.overlaps(from, Long.MAX_VALUE)) {
+                    continue;
+                }
+                if (segment.minTimestamp >= from) {
+                    first[0] = Math.min(first[0], segment.minTimestamp);
+                } else if (segment.minTimestamp < first[0]) {
+                    // Segment à cheval sur from : seul cas où il faut le lire
+                    block = block != null ? block : ByteBuffer.allocate(BLOCK_SIZE);
+                    segment.readRetained(block, (buffer, offset) -> {
+                        long timestamp = buffer.getLong(offset + TIMESTAMP);
+                        if (timestamp >= from && timestamp < first[0]) {
+                            first[0] = timestamp;
+                        }
+                    });
+                }
+            }
+            return first[0] != Long.MAX_VALUE ? first[0] : null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Deletes the segments whose entries are all older than {@code before}, except the one being written.
+     * Never waits for scans: a segment still being read keeps its file until the scan is done with it.
+     */
+    @Override
+    public synchronized long deleteBefore(long before) {
+        try {
+            long deleted = 0;
+            for (Segment segment : segments) {
+                if (segment != active && segment.maxTimestamp < before) {
+                    segments.remove(segment);
+                    segment.delete();
+                    deleted += segment.records;
+                }
+            }
+            return deleted;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (Segment segment : segments) {
+            if (segment == active) {
+                segment.channel.force(false);
+                segment.dictionary.force();
+            }
+            segment.release();
+        }
+        segments.clear();
+        active = null;
+    }
+
+    private void flush() throws IOException {
+        if (writeBuffer.position() == 0) {
+            return;
+        }
+        writeBuffer.flip();
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (int offset = 0; offset < writeBuffer.limit(); offset += RECORD_SIZE) {
+            long timestamp = writeBuffer.getLong(offset + TIMESTAMP);
+            min = Math.min(min, timestamp);
+            max = Math.max(max, timestamp);
+        }
+        int count = writeBuffer.limit() / RECORD_SIZE;
+        long position = active.records * RECORD_SIZE;
+        while (writeBuffer.hasRemaining()) {
+            position += active.channel.write(writeBuffer, position);
+        }
+        writeBuffer.clear();
+        // Bornes publiées avant le nombre d'enregistrements : une lecture ne voit jamais un enregistrement hors bornes
+        active.minTimestamp = Math.min(active.minTimestamp, min);
+        active.maxTimestamp = Math.max(active.maxTimestamp, max);
+        active.records += count;
+    }
+
+    private void roll(long firstTimestamp) throws IOException {
+        if (active != null) {
+            // Segment terminé : son dictionnaire reste en mémoire pour les lectures, son fichier est fermé
+            active.dictionary.close();
+        }
+        Path file = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, nextSequence++, SEGMENT_SUFFIX));
+        Dictionary dictionary = new Dictionary(dictionaryOf(file));
+        Segment segment = new Segment(file, FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE), dictionary);
+        segment.firstTimestamp = firstTimestamp;
+        segments.add(segment);
+        active = segment;
+    }
+
+    private static Path dictionaryOf(Path segmentFile) {
+        String name = segmentFile.getFileName().toString();
+        return segmentFile.resolveSibling(name.substring(0, name.length() - SEGMENT_SUFFIX.length()) + DICTIONARY_SUFFIX);
+    }
+
+    private static LogEntry readEntry(Dictionary dictionary, ByteBuffer buffer, int offset) {
+        LogEntry entry = new LogEntry();
+        entry.setTimestamp(buffer.getLong(offset + TIMESTAMP));
+        entry.setUrl(dictionary.value(buffer.getInt(offset + URL_ID)));
+        entry.setCallerIp(dictionary.value(buffer.getInt(offset + IP_ID)));
+        entry.setPayloadSize(buffer.getInt(offset + PAYLOAD_SIZE));
+        entry.setResponseTime(buffer.getLong(offset + RESPONSE_TIME));
+        entry.setRequestSize(buffer.getLong(offset + REQUEST_SIZE));
+        long timeToFirstByte = buffer.getLong(offset + TIME_TO_FIRST_BYTE);
+        entry.setTimeToFirstByteNanos(timeToFirstByte >= 0 ? timeToFirstByte : null);
+        long totalTime = buffer.getLong(offset + TOTAL_TIME);
+        entry.setTotalTimeNanos(totalTime >= 0 ? totalTime : null);
+        entry.setStatusCode(buffer.getShort(offset + STATUS_CODE));
+        int cacheStatus = buffer.get(offset + CACHE_STATUS);
+        entry.setCacheStatus(cacheStatus > 0 ? CACHE_STATUSES[cacheStatus - 1] : null);
+        entry.setCoalesced(buffer.get(offset + COALESCED) != 0);
+        return entry;
+    }
+
+    @FunctionalInterface
+    private interface RecordReader {
+        void record(ByteBuffer buffer, int offset);
+    }
+
+    private static final class Segment {
+
+        final Path path;
+        final FileChannel channel;
+        final Dictionary dictionary;
+        /** One reference for the store, one per scan reading the segment; the file is closed at zero. */
+        private final AtomicInteger references = new AtomicInteger(1);
+        private volatile boolean deleted;
+        long firstTimestamp;
+        volatile long records;
+        volatile long minTimestamp = Long.MAX_VALUE;
+        volatile long maxTimestamp = Long.MIN_VALUE;
+
+        Segment(Path path, FileChannel channel, Dictionary dictionary) {
+            this.path = path;
+            this.channel = channel;
+            this.dictionary = dictionary;
+        }
+
+        /**
+         * Reopens a segment written before, for reading only.
+         */
+        static Segment open(Path path, Path dictionaryPath) throws IOException {
+            Dictionary dictionary = new Dictionary(dictionaryPath);
+            dictionary.close();
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long size = channel.size();
+            if (size % RECORD_SIZE != 0) {
+                // Enregistrement incomplet d'un arrêt brutal
+                channel.truncate(size - size % RECORD_SIZE);
+            }
+            Segment segment = new Segment(path, channel, dictionary);
+            segment.records = channel.size() / RECORD_SIZE;
+            // Enregistrements valides, puis bornes de leurs dates
+            long[] scan = {0, Long.MAX_VALUE, Long.MIN_VALUE};
+            boolean[] lost = {false};
+            segment.read(ByteBuffer.allocate(BLOCK_SIZE), (buffer, offset) -> {
+                lost[0] = lost[0] || !dictionary.contains(buffer.getInt(offset + URL_ID))
+                        || !dictionary.contains(buffer.getInt(offset + IP_ID));
+                if (lost[0]) {
+                    return;
+                }
+                long timestamp = buffer.getLong(offset + TIMESTAMP);
+                scan[0]++;
+                scan[1] = Math.min(scan[1], timestamp);
+                scan[2] = Math.max(scan[2], timestamp);
+            });
+            if (scan[0] < segment.records) {
+                // Chaînes perdues par un arrêt brutal du système : les enregistrements qui les utilisent, et les suivants aussi
+                channel.truncate(scan[0] * RECORD_SIZE);
+                segment.records = scan[0];
+            }
+            segment.minTimestamp = scan[1];
+            segment.maxTimestamp = scan[2];
+            segment.firstTimestamp = scan[1];
+            return segment;
+        }
+
+        boolean overlaps(long from, long to) {
+            return records > 0 && maxTimestamp >= from && minTimestamp < to;
+        }
+
+        /**
+         * {@link #read} under a reference, or nothing if the segment was deleted or closed meanwhile.
+         */
+        void readRetained(ByteBuffer block, RecordReader reader) throws IOException {
+            int current;
+            do {
+                current = references.get();
+                if (current == 0) {
+                    return;
+                }
+            } while (!references.compareAndSet(current, current + 1));
+            try {
+                read(block, reader);
+            } finally {
+                release();
+            }
+        }
+
+        /**
+         * Drops the reference of the store; the file goes with the last reference.
+         */
+        void delete() throws IOException {
+            deleted = true;
+            release();
+        }
+
+        void release() throws IOException {
+            if (references.decrementAndGet() == 0) {
+                channel.close();
+                dictionary.close();
+                if (deleted) {
+                    Files.delete(path);
+                    Files.deleteIfExists(dictionary.path);
+                }
+            }
+        }
+
+        /**
+         * Reads the records written so far, block by block.
+         */
+        void read(ByteBuffer block, RecordReader reader) throws IOException {
+            long end = records * RECORD_SIZE;
+            long position = 0;
+            while (position < end) {
+                block.clear();
+                block.limit((int) Math.min(block.capacity(), end - position));
+                while (block.hasRemaining()) {
+                    if (channel.read(block, position + block.position()) < 0) {
+                        throw new EOFException(path + " : fin de fichier avant " + end + " octets");
+                    }
+                }
+                for (int offset = 0; offset < block.limit(); offset += RECORD_SIZE) {
+                    reader.record(block, offset);
+                }
+                position += block.limit();
+            }
+        }
+    }
+
+    /**
+     * Strings of a segment stored once, in order of first use: an id is the position of its string in
+     * the file, each one written as its UTF-8 length (int) then its bytes.
+     */
+    private static final class Dictionary {
+
+        final Path path;
+        private final FileChannel channel;
+        private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+        private volatile String[] values = new String[64];
+        private int size;
+
+        Dictionary(Path path) throws IOException {
+            this.path = path;
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            ByteBuffer content = ByteBuffer.wrap(Files.readAllBytes(path));
+            while (content.remaining() >= Integer.BYTES) {
+                int length = content.getInt(content.position());
+                if (length < 0 || content.remaining() - Integer.BYTES < length) {
+                    break;
+                }
+                content.position(content.position() + Integer.BYTES);
+                add(StandardCharsets.UTF_8.decode(content.slice(content.position(), length)).toString());
+                content.position(content.position() + length);
+            }
+            // Chaîne incomplète d'un arrêt brutal
+            channel.truncate(content.position());
+            channel.position(content.position());
+        }
+
+        /**
+         * Called by the writer only; the string is on file before any record uses its id.
+         */
+        int id(String value) throws IOException {
+            if (value == null) {
+                return NO_ID;
+            }
+            Integer id = ids.get(value);
+            if (id != null) {
+                return id;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + bytes.length).putInt(bytes.length).put(bytes).flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            return add(value);
+        }
+
+        Integer idOf(String value) {
+            return ids.get(value);
+        }
+
+        /**
+         * Whether a record may use {@code id}: ids past the end of a dictionary cut off by a crash are not.
+         */
+        boolean contains(int id) {
+            return id == NO_ID || (id >= 0 && id < size);
+        }
+
+        /**
+         * Only called with ids of records already checked by {@link Segment#open} or written since.
+         */
+        String value(int id) {
+            return id == NO_ID ? null : values[id];
+        }
+
+        void force() throws IOException {
+            channel.force(false);
+        }
+
+        /**
+         * Closes the file; the strings stay readable.
+         */
+        void close() throws IOException {
+            channel.close();
+        }
+
+        private int add(String value) {
+            String[] current = values;
+            if (size == current.length) {
+                current = Arrays.copyOf(current, size * 2);
+            }
+            current[size] = value;
+            // Tableau republié à chaque ajout : les lecteurs voient la chaîne avant l'id
+            values = current;
+            ids.put(value, size);
+            return size++;
+        }
+    }
+}
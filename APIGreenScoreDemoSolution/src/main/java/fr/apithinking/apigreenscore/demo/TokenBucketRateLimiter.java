@@ -0,0 +1,89 @@
+package fr.apithinking.apigreenscore.demo;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token buckets by key, without locks.
+ * <p>
+ * A bucket is a single {@link AtomicLong}, the time at which it will be full again
+ * (generic cell rate algorithm): taking a token pushes it one token interval further, and is
+ * refused if it would then lie more than {@code capacity} intervals ahead. A bucket whose time
+ * is past is full, so evicting it loses nothing: idle buckets are swept as requests come,
+ * once per {@code idleTimeout}, or once per second while the map is full.
+ */
+final class TokenBucketRateLimiter {
+
+    /** Wait reported when the map is full of live buckets, and least time between two sweeps then. */
+    private static final long SATURATED_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final ConcurrentMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final int maxBuckets;
+    private final long idleNanos;
+    private final AtomicLong lastSweepNanos;
+
+    TokenBucketRateLimiter(int maxBuckets, long idleNanos, long nowNanos) {
+        this.maxBuckets = maxBuckets;
+        this.idleNanos = idleNanos;
+        this.lastSweepNanos = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * Takes a token from the bucket of {@code key}.
+     *
+     * @return 0 if granted, otherwise the nanoseconds to wait for a token
+     */
+    long tryAcquire(String key, int capacity, double perSecond, long nowNanos) {
+        sweepIfDue(nowNanos, idleNanos);
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) {
+            if (buckets.size() >= maxBuckets) {
+                sweepIfDue(nowNanos, SATURATED_NANOS);
+                if (buckets.size() >= maxBuckets) {
+                    // Délestage : pas de nouveau seau tant que les inactifs n'ont pas été évincés
+                    return SATURATED_NANOS;
+                }
+            }
+            // Seau plein à sa création
+            bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(nowNanos));
+        }
+        long interval = (long) (TimeUnit.SECONDS.toNanos(1) / perSecond);
+        long tolerance = interval * capacity;
+        while (true) {
+            long fullAt = bucket.get();
+            long next = Math.max(fullAt - nowNanos, 0) + interval;
+            if (next > tolerance) {
+                return next - tolerance;
+            }
+            if (bucket.compareAndSet(fullAt, nowNanos + next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Gives back a token taken by {@link #tryAcquire}, for a request refused afterwards.
+     */
+    void refund(String key, double perSecond) {
+        AtomicLong bucket = buckets.get(key);
+        if (bucket != null) {
+            // Seau évincé entre-temps : recréé plein, rien à rendre
+            bucket.addAndGet(-(long) (TimeUnit.SECONDS.toNanos(1) / perSecond));
+        }
+    }
+
+    int size() {
+        return buckets.size();
+    }
+
+    private void sweepIfDue(long nowNanos, long period) {
+        long last = lastSweepNanos.get();
+        // Un seul thread balaie, les autres passent leur chemin
+        if (nowNanos - last < period || !lastSweepNanos.compareAndSet(last, nowNanos)) {
+            return;
+        }
+        buckets.values().removeIf(bucket -> nowNanos - bucket.get() > idleNanos);
+    }
+}
@@ -0,0 +1,336 @@
+package fr.apithinking.apigreenscore.demo;
+
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * State of the circuit of one upstream host, for {@code /api/outbound/circuits}.
+ *
+ * @param timeoutMs timeout given to the next call to the host
+ */
+record CircuitSnapshot(String host, UpstreamCircuitBreaker.State state, int consecutiveFailures,
+                       long shortCircuited, long samples, long p99Ms, long timeoutMs) {
+}
+
+record CircuitBreakerStats(long shortCircuited, List<CircuitSnapshot> hosts) {
+}
+
+/**
+ * Health of each probed upstream host, to fail fast on the hosts that are down and to give
+ * each host a timeout that fits its own latency.
+ * <p>
+ * The circuit of a host opens after {@code failure-threshold} consecutive failures (I/O
+ * error, timeout or 5xx answer): calls are then refused at once with
+ * {@link CircuitOpenException}, without touching the network. After {@code open-duration}
+ * a single trial call goes through (half-open): its success closes the circuit, its failure
+ * opens it for another period.
+ * <p>
+ * Successful calls feed a {@link LatencyHistogram} per host, and so do timed out ones, at
+ * the timeout, so that the p99 can grow when the host gets slower. The histogram is halved
+ * every {@code latency-window} samples to follow the recent latency. Once it holds
+ * {@code min-samples}, the timeout of a call is {@code timeout-multiplier} times the host's
+ * p99, within {@code min-timeout} and {@code max-timeout}; before that, and for the trial
+ * call of a half-open circuit, {@code max-timeout}. A timeout tighter than the host's, set by
+ * the caller (batch of probes), is applied but neither counts as a failure nor as a sample.
+ */
+public class UpstreamCircuitBreaker {
+
+    public enum State {CLOSED, OPEN, HALF_OPEN}
+
+    /**
+     * Call refused because the circuit of its host is open.
+     */
+    public static class CircuitOpenException extends RestClientException {
+
+        private final long retryAfterMillis;
+
+        CircuitOpenException(String host, long retryAfterMillis) {
+            super("Circuit ouvert pour " + host + " : hôte en échec, appel non tenté");
+            this.retryAfterMillis = retryAfterMillis;
+        }
+
+        public long getRetryAfterMillis() {
+            return retryAfterMillis;
+        }
+    }
+
+    /** Least time between two sweeps of idle hosts while the map is full. */
+    private static final long SWEEP_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * Failure on the side of the caller of a call relaying the upstream body to its own client,
+     * e.g. that client going away: it tells nothing about the host.
+     */
+    public static class DownstreamWriteException extends UncheckedIOException {
+
+        DownstreamWriteException(IOException cause) {
+            super(cause);
+        }
+    }
+
+    /** Returned by {@link HostCircuit#acquire} to the trial call of a half-open circuit. */
+    private static final long TRIAL = -1;
+
+    /**
+     * What a call tells about its host: a timeout imposed by the caller tells nothing.
+     */
+    private enum Outcome {SUCCESS, FAILURE, NEUTRAL}
+
+    private final CircuitBreakerProperties properties;
+    private final LongSupplier nanoClock;
+    private final ConcurrentMap<String, HostCircuit> hosts = new ConcurrentHashMap<>();
+    private final AtomicLong shortCircuited = new AtomicLong();
+    private final AtomicLong lastSweepNanos;
+
+    public UpstreamCircuitBreaker(CircuitBreakerProperties properties) {
+        this(properties, System::nanoTime);
+    }
+
+    UpstreamCircuitBreaker(CircuitBreakerProperties properties, LongSupplier nanoClock) {
+        this.properties = properties;
+        this.nanoClock = nanoClock;
+        this.lastSweepNanos = new AtomicLong(nanoClock.getAsLong());
+    }
+
+    /**
+     * Runs {@code call} to {@code url} under the circuit of its host, with the host's timeout,
+     * or the caller's one if it is tighter.
+     *
+     * @throws CircuitOpenException if the circuit of the host is open
+     */
+    public <T> T call(String url, Supplier<T> call) {
+        return call(url, call, () -> 0);
+    }
+
+    /**
+     * Same as {@link #call(String, Supplier)}, for a call writing to its own client while it reads
+     * the upstream body: the {@code downstreamNanos} spent writing are left out of the latency sample,
+     * and a {@link DownstreamWriteException} is rethrown without being held against the host.
+     */
+    public <T> T call(String url, Supplier<T> call, LongSupplier downstreamNanos) {
+        String host = RateLimitFilter.host(url);
+        long start = nanoClock.getAsLong();
+        HostCircuit circuit = properties.isEnabled() && host != null ? circuit(host, start) : null;
+        if (circuit == null) {
+            return call.get();
+        }
+
+        long openNanos = properties.getOpenDuration().toNanos();
+        long wait = circuit.acquire(start, openNanos);
+        if (wait > 0) {
+            shortCircuited.incrementAndGet();
+            throw new CircuitOpenException(host, Math.max(1, TimeUnit.NANOSECONDS.toMillis(wait)));
+        }
+        boolean trial = wait == TRIAL;
+        // Essai avec le délai maximal : un hôte revenu mais plus lent que sa latence passée doit pouvoir refermer le circuit
+        Duration timeout = trial ? properties.getMaxTimeout() : Duration.ofMillis(circuit.timeoutMillis(properties));
+        Duration callerTimeout = OutboundRequestTimeout.current();
+        boolean callerBound = callerTimeout != null && callerTimeout.compareTo(timeout) < 0;
+        if (callerBound) {
+            timeout = callerTimeout;
+        }
+
+        Outcome outcome = Outcome.FAILURE;
+        long latencyMillis = -1;
+        try {
+            T result = OutboundRequestTimeout.call(timeout, call);
+            latencyMillis = TimeUnit.NANOSECONDS.toMillis(nanoClock.getAsLong() - start - downstreamNanos.getAsLong());
+            outcome = Outcome.SUCCESS;
+            return result;
+        } catch (DownstreamWriteException e) {
+            // Client de l'appelant parti : l'hôte n'y est pour rien
+            outcome = Outcome.NEUTRAL;
+            throw e;
+        } catch (RestClientException e) {
+            if (isTimeout(e)) {
+                if (callerBound) {
+                    // Délai propre à l'appelant : ne dit rien de l'hôte, ni pour les autres appelants
+                    outcome = Outcome.NEUTRAL;
+                } else {
+                    // La latence réelle dépasse le délai : échantillon au délai, pour que le p99 puisse monter
+                    latencyMillis = timeout.toMillis();
+                }
+            } else if (!(e instanceof ResourceAccessException) && !(e instanceof HttpServerErrorException)) {
+                // Une réponse 4xx prouve que l'hôte répond
+                outcome = Outcome.SUCCESS;
+            }
+            throw e;
+        } finally {
+            circuit.complete(trial, outcome, latencyMillis, nanoClock.getAsLong(), properties);
+        }
+    }
+
+    private static boolean isTimeout(RestClientException e) {
+        return e instanceof ResourceAccessException && e.getCause() instanceof SocketTimeoutException;
+    }
+
+    /**
+     * Calls refused since startup, all hosts included.
+     */
+    public long getShortCircuitedCount() {
+        return shortCircuited.get();
+    }
+
+    public CircuitBreakerStats stats() {
+        long now = nanoClock.getAsLong();
+        long openNanos = properties.getOpenDuration().toNanos();
+        List<CircuitSnapshot> snapshots = new ArrayList<>(hosts.size());
+        hosts.forEach((host, circuit) -> snapshots.add(circuit.snapshot(host, now, openNanos, properties)));
+        snapshots.sort(Comparator.comparing(CircuitSnapshot::host));
+        return new CircuitBreakerStats(shortCircuited.get(), snapshots);
+    }
+
+    private HostCircuit circuit(String host, long now) {
+        HostCircuit circuit = hosts.get(host);
+        if (circuit != null) {
+            return circuit;
+        }
+        if (hosts.size() >= properties.getMaxHosts()) {
+            sweep(now);
+            if (hosts.size() >= properties.getMaxHosts()) {
+                // Table pleine d'hôtes actifs : appel sans disjoncteur plutôt que refusé
+                return null;
+            }
+        }
+        return hosts.computeIfAbsent(host, h -> new HostCircuit(now));
+    }
+
+    private void sweep(long now) {
+        long last = lastSweepNanos.get();
+        if (now - last < SWEEP_NANOS || !lastSweepNanos.compareAndSet(last, now)) {
+            return;
+        }
+        long idleNanos = properties.getIdleTimeout().toNanos();
+        hosts.values().removeIf(circuit -> circuit.isIdle(now, idleNanos));
+    }
+
+    /**
+     * Circuit and latency of one host; every access holds its monitor, for a few operations only.
+     */
+    private static final class HostCircuit {
+
+        private State state = State.CLOSED;
+        private int failures;
+        private long openedAt;
+        private boolean trialInFlight;
+        private long shortCircuited;
+        private long lastUsed;
+        private final long[] counts = new long[LatencyHistogram.BUCKETS];
+        private long samples;
+
+        HostCircuit(long now) {
+            this.lastUsed = now;
+        }
+
+        /**
+         * @return 0 if the call may go, {@link #TRIAL} if it is the trial call of a half-open
+         *         circuit, otherwise the nanoseconds before a call may go again
+         */
+        synchronized long acquire(long now, long openNanos) {
+            lastUsed = now;
+            if (state == State.OPEN) {
+                long wait = openedAt + openNanos - now;
+                if (wait > 0) {
+                    shortCircuited++;
+                    return wait;
+                }
+                state = State.HALF_OPEN;
+            }
+            if (state == State.HALF_OPEN) {
+                if (trialInFlight) {
+                    shortCircuited++;
+                    // Issue de l'essai inconnue : nouvelle tentative au plus tard après une période
+                    return openNanos;
+                }
+                trialInFlight = true;
+                return TRIAL;
+            }
+            return 0;
+        }
+
+        synchronized void complete(boolean trial, Outcome outcome, long latencyMillis, long now,
+                                   CircuitBreakerProperties properties) {
+            if (latencyMillis >= 0) {
+                counts[LatencyHistogram.bucketIndex(latencyMillis)]++;
+                if (++samples >= properties.getLatencyWindow()) {
+                    decay();
+                }
+            }
+            if (outcome == Outcome.NEUTRAL) {
+                if (trial) {
+                    // Essai sans verdict : l'appel suivant sera un nouvel essai
+                    trialInFlight = false;
+                }
+                return;
+            }
+            boolean failed = outcome == Outcome.FAILURE;
+            if (trial) {
+                trialInFlight = false;
+                if (failed) {
+                    open(now);
+                } else {
+                    state = State.CLOSED;
+                    failures = 0;
+                }
+            } else if (state == State.CLOSED) {
+                // Un appel parti avant l'ouverture ne change plus l'état
+                if (!failed) {
+                    failures = 0;
+                } else if (++failures >= properties.getFailureThreshold()) {
+                    open(now);
+                }
+            }
+        }
+
+        private void open(long now) {
+            state = State.OPEN;
+            openedAt = now;
+        }
+
+        /**
+         * Halves every bucket: older samples weigh less and less, the distribution stays in shape.
+         */
+        private void decay() {
+            samples = 0;
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] >>= 1;
+                samples += counts[i];
+            }
+        }
+
+        synchronized long timeoutMillis(CircuitBreakerProperties properties) {
+            long max = properties.getMaxTimeout().toMillis();
+            if (samples < properties.getMinSamples()) {
+                return max;
+            }
+            long adaptive = (long) Math.ceil(LatencyHistogram.quantile(counts, samples, 0.99) * properties.getTimeoutMultiplier());
+            return Math.max(properties.getMinTimeout().toMillis(), Math.min(adaptive, max));
+        }
+
+        synchronized boolean isIdle(long now, long idleNanos) {
+            return state == State.CLOSED && !trialInFlight && now - lastUsed > idleNanos;
+        }
+
+        synchronized CircuitSnapshot snapshot(String host, long now, long openNanos, CircuitBreakerProperties properties) {
+            // Période d'ouverture écoulée : le prochain appel sera l'essai
+            State current = state == State.OPEN && now - openedAt >= openNanos ? State.HALF_OPEN : state;
+            return new CircuitSnapshot(host, current, failures, shortCircuited, samples,
+                    LatencyHistogram.quantile(counts, samples, 0.99), timeoutMillis(properties));
+        }
+    }
+}
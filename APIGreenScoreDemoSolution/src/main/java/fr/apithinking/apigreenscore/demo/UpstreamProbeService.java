@@ -0,0 +1,142 @@
+package fr.apithinking.apigreenscore.demo;
+
+import fr.apithinking.apigreenscore.demo.ProbeResponseCache.CachedResponse;
+import fr.apithinking.apigreenscore.demo.ProbeResponseCache.ProbeType;
+import fr.apithinking.apigreenscore.demo.UpstreamCircuitBreaker.CircuitOpenException;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.OutputStream;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Calls an upstream URL on behalf of the probe endpoints, through the {@link ProbeResponseCache}.
+ * <p>
+ * The probes only report status, content type and size, so the body is counted while it is
+ * read and never buffered. Concurrent probes of the same type and URL, under the same
+ * {@link OutboundRequestTimeout}, share a single upstream call (single-flight): the first caller
+ * performs it, the others wait for its outcome, no longer than their own timeout, and are
+ * reported as {@code coalesced}. A caller's tighter timeout thus never decides the outcome of
+ * callers that allowed more. Upstream calls go through the {@link UpstreamCircuitBreaker} of
+ * their host.
+ */
+@Service
+public class UpstreamProbeService {
+
+    public record ProbeResult(int statusCode, String contentType, long payloadSize, CacheStatus cacheStatus,
+                              boolean coalesced) {
+    }
+
+    /**
+     * Failure of an upstream call this caller was waiting on, performed by another caller.
+     */
+    public static class CoalescedProbeException extends RestClientException {
+
+        CoalescedProbeException(Throwable cause) {
+            super(cause.getMessage(), cause);
+        }
+    }
+
+    private final RestTemplate restTemplate;
+    private final ProbeResponseCache cache;
+    private final UpstreamCircuitBreaker circuitBreaker;
+    private final Duration followerTimeout;
+    private final ConcurrentMap<String, CompletableFuture<CachedResponse>> inFlight = new ConcurrentHashMap<>();
+
+    public UpstreamProbeService(RestTemplate outboundRestTemplate, ProbeResponseCache probeResponseCache,
+                                UpstreamCircuitBreaker upstreamCircuitBreaker, OutboundHttpClientProperties clientProperties) {
+        this.restTemplate = outboundRestTemplate;
+        this.cache = probeResponseCache;
+        this.circuitBreaker = upstreamCircuitBreaker;
+        // Pire durée d'un appel amont avec les délais du client : attente du pool, connexion, réponse
+        this.followerTimeout = clientProperties.getPoolAcquireTimeout().plus(clientProperties.getConnectTimeout())
+                .plus(clientProperties.getReadTimeout());
+    }
+
+    /**
+     * @throws RestClientException if the upstream call fails or answers an error status,
+     *                             {@link CoalescedProbeException} if that call was another caller's,
+     *                             {@link CircuitOpenException} if the circuit of the host is open
+     */
+    public ProbeResult probe(ProbeType type, String url) {
+        CachedResponse cached = cache.get(type, url);
+        if (cached != null) {
+            return new ProbeResult(cached.statusCode(), cached.contentType(), cached.payloadSize(), CacheStatus.HIT, false);
+        }
+
+        // Une sonde d'un autre type ne met pas la même réponse en cache, un autre délai ne mène pas au même résultat :
+        // appel distinct
+        Duration callerTimeout = OutboundRequestTimeout.current();
+        String key = type.name() + ' ' + (callerTimeout != null ? callerTimeout.toMillis() + "ms" : "-") + ' '
+                + HttpMethod.GET.name() + ' ' + url;
+        CompletableFuture<CachedResponse> call = new CompletableFuture<>();
+        CompletableFuture<CachedResponse> leader = inFlight.putIfAbsent(key, call);
+        if (leader != null) {
+            CachedResponse shared = awaitLeader(leader, url, callerTimeout != null ? callerTimeout : followerTimeout);
+            return new ProbeResult(shared.statusCode(), shared.contentType(), shared.payloadSize(), cache.missStatus(), true);
+        }
+
+        try {
+            CachedResponse fetched = fetch(type, url);
+            call.complete(fetched);
+            return new ProbeResult(fetched.statusCode(), fetched.contentType(), fetched.payloadSize(), cache.missStatus(), false);
+        } catch (RuntimeException e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            // Les appelants suivants repartent du cache, ou d'un nouvel appel
+            inFlight.remove(key, call);
+        }
+    }
+
+    private CachedResponse fetch(ProbeType type, String url) {
+        return circuitBreaker.call(url, () -> restTemplate.execute(url, HttpMethod.GET, null, upstream -> {
+            CountingInputStream body = new CountingInputStream(upstream.getBody());
+            body.transferTo(OutputStream.nullOutputStream());
+            MediaType contentType = upstream.getHeaders().getContentType();
+            CachedResponse response = new CachedResponse(upstream.getStatusCode().value(),
+                    contentType != null ? contentType.toString() : "", body.getCount(), null);
+            cache.put(type, url, response, upstream.getHeaders());
+            return response;
+        }));
+    }
+
+    /**
+     * Outcome of the leader's call, awaited at most {@code timeout}: a stuck leader only fails this caller.
+     */
+    private static CachedResponse awaitLeader(CompletableFuture<CachedResponse> leader, String url, Duration timeout) {
+        try {
+            return leader.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof CircuitOpenException open) {
+                // Aucun appel n'a eu lieu : refusé comme l'appelant principal
+                throw open;
+            }
+            throw new CoalescedProbeException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new ResourceAccessException("Délai dépassé en attendant l'appel partagé à " + url,
+                    new SocketTimeoutException(timeout.toMillis() + " ms"));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResourceAccessException("Attente de l'appel partagé à " + url + " interrompue");
+        }
+    }
+
+    /**
+     * Number of distinct upstream calls currently in progress.
+     */
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+}
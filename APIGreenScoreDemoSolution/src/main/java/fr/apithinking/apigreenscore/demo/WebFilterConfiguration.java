@@ -0,0 +1,100 @@
+package fr.apithinking.apigreenscore.demo;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import java.util.List;
+
+/**
+ * Registration of the servlet filters, with the URL patterns they apply to.
+ */
+@Configuration
+public class WebFilterConfiguration {
+
+    /** Endpoints that hold their thread for a whole upstream call. */
+    static final String[] BLOCKING_PROBE_PATHS = {"/api/url2test", "/api/url2test/batch", "/api/json2test", "/api/xml2test", "/api/json2xml"};
+
+    static final String BATCH_PROBE_PATH = "/api/url2test/batch";
+
+    /**
+     * Endpoints of the API itself, measured by {@link RequestMetricsFilter}. The probes log their
+     * own entries, which the filter completes: it writes no row of its own for them.
+     */
+    static final String[] MEASURED_PATHS = {"/api/*", "/addresses/*"};
+
+    /**
+     * Also used by {@link ProbeBatchService}, which takes the host tokens of the URLs of a batch.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "apigreenscore.rate-limit", name = "enabled", matchIfMissing = true)
+    public RateLimitFilter rateLimitFilter(RateLimitProperties properties) {
+        return new RateLimitFilter(properties);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "apigreenscore.rate-limit", name = "enabled", matchIfMissing = true)
+    public FilterRegistrationBean<RateLimitFilter> rateLimitFilterRegistration(RateLimitFilter rateLimitFilter) {
+        FilterRegistrationBean<RateLimitFilter> registration = new FilterRegistrationBean<>(rateLimitFilter);
+        registration.addUrlPatterns(BLOCKING_PROBE_PATHS);
+        // Avant la mesure et la cloison : un appel rejeté ne coûte ni thread en attente ni LogEntry
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+        return registration;
+    }
+
+    @Bean
+    public FilterRegistrationBean<RequestMetricsFilter> requestMetricsFilter(LogService logService) {
+        FilterRegistrationBean<RequestMetricsFilter> registration =
+                new FilterRegistrationBean<>(new RequestMetricsFilter(logService, List.of(BLOCKING_PROBE_PATHS)));
+        registration.addUrlPatterns(MEASURED_PATHS);
+        // Avant la compression : temps et octets sont ceux vus par le conteneur
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 5);
+        return registration;
+    }
+
+    @Bean
+    public FilterRegistrationBean<ResponseCompressionFilter> responseCompressionFilter(ResponseCompressionProperties properties) {
+        FilterRegistrationBean<ResponseCompressionFilter> registration =
+                new FilterRegistrationBean<>(new ResponseCompressionFilter(properties));
+        registration.addUrlPatterns("/*");
+        // Au plus près du conteneur : les octets comptés sont ceux qui partent réellement
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return registration;
+    }
+
+    @Bean
+    public FilterRegistrationBean<AddressETagFilter> addressETagFilter(AddressRepository addressRepository,
+                                                                      AddressProperties properties) {
+        FilterRegistrationBean<AddressETagFilter> registration =
+                new FilterRegistrationBean<>(new AddressETagFilter(addressRepository, properties));
+        registration.addUrlPatterns("/addresses/address");
+        return registration;
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "apigreenscore.bulkhead", name = "enabled", matchIfMissing = true)
+    public FilterRegistrationBean<BulkheadFilter> bulkheadFilter(BulkheadProperties properties,
+                                                                 ProbeBatchProperties batchProperties) {
+        FilterRegistrationBean<BulkheadFilter> registration = new FilterRegistrationBean<>(
+                new BulkheadFilter(properties, request -> bulkheadSlots(request, batchProperties)));
+        registration.addUrlPatterns(BLOCKING_PROBE_PATHS);
+        return registration;
+    }
+
+    /**
+     * Upstream calls a probe request may have in flight: {@code concurrency} for a batch, one otherwise.
+     */
+    static int bulkheadSlots(HttpServletRequest request, ProbeBatchProperties batchProperties) {
+        if (!BATCH_PROBE_PATH.equals(request.getRequestURI().substring(request.getContextPath().length()))) {
+            return 1;
+        }
+        String concurrency = request.getParameter("concurrency");
+        int parallelism = concurrency == null ? batchProperties.getDefaultConcurrency() : NumberUtils.toInt(concurrency, 0);
+        // Valeur refusée par le contrôleur (400) : une seule place le temps de la réponse
+        return parallelism >= 1 && parallelism <= batchProperties.getMaxConcurrency() ? parallelism : 1;
+    }
+}
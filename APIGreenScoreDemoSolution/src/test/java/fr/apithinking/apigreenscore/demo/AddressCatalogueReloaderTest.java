@@ -0,0 +1,63 @@
+package fr.apithinking.apigreenscore.demo;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.FileSystemResource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AddressCatalogueReloaderTest {
+
+    @TempDir
+    Path dir;
+
+    private Path write(String content, long lastModified) throws IOException {
+        Path file = dir.resolve("addresses.csv");
+        Files.writeString(file, content);
+        // Date explicite : deux écritures rapprochées peuvent tomber dans la même unité du système de fichiers
+        Files.setLastModifiedTime(file, FileTime.fromMillis(lastModified));
+        return file;
+    }
+
+    @Test
+    public void testReloadWhenFileChanges() throws IOException {
+        Path file = write("street;city\n1 rue de la Paix;Paris\n", 1_000_000);
+        AddressCatalogueReloader reloader = new AddressCatalogueReloader(new FileSystemResource(file), true);
+        ReloadableAddressRepository repository = reloader.repository();
+        String version = repository.version();
+
+        assertFalse(reloader.reloadIfChanged());
+
+        write("street;city\n1 rue de la Paix;Paris\n2 rue Nationale;Lyon\n", 2_000_000);
+        assertTrue(reloader.reloadIfChanged());
+        assertEquals(2, repository.size());
+        assertNotEquals(version, repository.version());
+        assertEquals(List.of(new Address("2 rue Nationale", "Lyon")), repository.search(null, "lyon", 10));
+        assertTrue(repository.memoryBytes() > 0);
+    }
+
+    @Test
+    public void testInvalidFileKeepsCurrentCatalogue() throws IOException {
+        Path file = write("1 rue de la Paix;Paris\n", 1_000_000);
+        AddressCatalogueReloader reloader = new AddressCatalogueReloader(new FileSystemResource(file), true);
+        String version = reloader.repository().version();
+
+        write("1 rue de la Paix;Paris;en trop\n", 2_000_000);
+        assertFalse(reloader.reloadIfChanged());
+        assertEquals(version, reloader.repository().version());
+
+        // Même contenu réécrit : rien à publier
+        write("1 rue de la Paix;Paris\n", 3_000_000);
+        assertFalse(reloader.reloadIfChanged());
+        assertEquals(1, reloader.repository().size());
+    }
+}
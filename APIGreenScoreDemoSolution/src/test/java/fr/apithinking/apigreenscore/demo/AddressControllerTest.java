@@ -0,0 +1,172 @@
+package fr.apithinking.apigreenscore.demo;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(classes = ApiGreenScoreDemoApplication.class, properties = {"apigreenscore.addresses.max-page-size=5",
+        "apigreenscore.compression.min-response-size=64B"})
+@AutoConfigureMockMvc
+class AddressControllerTest {
+
+    private static final Pattern NEXT_LINK = Pattern.compile("<([^>]+)>; rel=\"next\"");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private AddressRepository addressRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void followingNextLinksReturnsEveryMatchOnce() throws Exception {
+        List<Address> collected = new ArrayList<>();
+        String url = "/addresses/address?limitStr=1000&city=mar";
+        int pages = 0;
+        while (url != null) {
+            MockHttpServletResponse response = mockMvc.perform(get(url))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse();
+            List<Address> page = objectMapper.readValue(response.getContentAsByteArray(), new TypeReference<>() {
+            });
+            assertTrue(page.size() <= 5, "page plafonnée à max-page-size");
+            collected.addAll(page);
+            pages++;
+
+            String link = response.getHeader(HttpHeaders.LINK);
+            if (link == null) {
+                url = null;
+            } else {
+                Matcher matcher = NEXT_LINK.matcher(link);
+                assertTrue(matcher.matches(), link);
+                url = matcher.group(1);
+            }
+        }
+
+        List<Address> expected = addressRepository.search(null, "mar", Integer.MAX_VALUE);
+        assertEquals(expected, collected);
+        assertEquals((expected.size() + 4) / 5, pages);
+    }
+
+    @Test
+    void lastPageHasNoNextLink() throws Exception {
+        mockMvc.perform(get("/addresses/address").param("city", "Paimpont").param("limitStr", "5"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.LINK));
+    }
+
+    @Test
+    void invalidLimitIsRejected() throws Exception {
+        for (String limit : new String[]{"abc", "0", "-3", "2.5"}) {
+            mockMvc.perform(get("/addresses/address").param("limitStr", limit))
+                    .andExpect(status().isBadRequest());
+        }
+    }
+
+    @Test
+    void limitAboveMaxPageSizeIsCapped() throws Exception {
+        for (String limit : new String[]{"6", "2147483648", "99999999999999999999"}) {
+            String link = mockMvc.perform(get("/addresses/address").param("city", "mar").param("limitStr", limit))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getHeader(HttpHeaders.LINK);
+            assertTrue(link.contains("limitStr=5"), link);
+        }
+    }
+
+    @Test
+    void invalidCursorIsRejected() throws Exception {
+        mockMvc.perform(get("/addresses/address").param("cursor", "%%%"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/addresses/address").param("cursor", "eDEy"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void cursorOfAnotherCatalogueVersionIsRejected() throws Exception {
+        String cursor = AddressCursor.encode(5, addressRepository.version());
+        mockMvc.perform(get("/addresses/address").param("cursor", cursor))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/addresses/address").param("cursor", AddressCursor.encode(5, "0123456789abcdef")))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string(containsString("première page")));
+    }
+
+    @Test
+    void revalidationWithETagReturns304WithoutBody() throws Exception {
+        String etag = mockMvc.perform(get("/addresses/address?city=paris"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "public, max-age=30, must-revalidate"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        MockHttpServletResponse response = mockMvc.perform(get("/addresses/address?city=Paris")
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andReturn().getResponse();
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void acceptCborReturnsBinaryEncodingWithItsOwnETag() throws Exception {
+        String url = "/addresses/address?limitStr=5&city=mar";
+        MockHttpServletResponse json = mockMvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andReturn().getResponse();
+        MockHttpServletResponse cbor = mockMvc.perform(get(url).header(HttpHeaders.ACCEPT, "application/cbor"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/cbor"))
+                .andReturn().getResponse();
+
+        List<Address> fromJson = objectMapper.readValue(json.getContentAsByteArray(), new TypeReference<>() {
+        });
+        List<Address> fromCbor = new CBORMapper().readValue(cbor.getContentAsByteArray(), new TypeReference<>() {
+        });
+        assertEquals(fromJson, fromCbor);
+        assertTrue(cbor.getContentAsByteArray().length < json.getContentAsByteArray().length);
+        // Représentations différentes : un 304 ne doit pas resservir l'une pour l'autre
+        assertNotEquals(json.getHeader(HttpHeaders.ETAG), cbor.getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    void acceptEncodingGzipCompressesPagesAboveThreshold() throws Exception {
+        String url = "/addresses/address?limitStr=5";
+        MockHttpServletResponse plain = mockMvc.perform(get(url)).andReturn().getResponse();
+        MockHttpServletResponse gzipped = mockMvc.perform(get(url).header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andReturn().getResponse();
+
+        assertTrue(gzipped.getHeader(HttpHeaders.ETAG).startsWith("W/"));
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped.getContentAsByteArray()))) {
+            assertEquals(plain.getContentAsString(), new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertTrue(gzipped.getContentAsByteArray().length < plain.getContentAsByteArray().length);
+    }
+}
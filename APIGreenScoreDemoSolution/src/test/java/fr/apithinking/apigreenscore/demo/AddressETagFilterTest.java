@@ -0,0 +1,122 @@
+package fr.apithinking.apigreenscore.demo;
+
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class AddressETagFilterTest {
+
+    private ReloadableAddressRepository repository;
+    private AddressETagFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        repository = new ReloadableAddressRepository(List.of(
+                new Address("12 rue de la Paix", "Paris"),
+                new Address("3 avenue des Champs-Élysées", "Paris"),
+                new Address("7 cours Belsunce", "Marseille")));
+        AddressProperties properties = new AddressProperties();
+        properties.setMaxPageSize(100);
+        properties.setCacheMaxAge(Duration.ofSeconds(30));
+        filter = new AddressETagFilter(repository, properties);
+    }
+
+    @Test
+    void firstRequestGetsETagAndCacheControl() throws Exception {
+        FilterChain chain = mock(FilterChain.class);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request("city", "paris"), response, chain);
+
+        verify(chain).doFilter(any(), any());
+        assertNotNull(response.getHeader(HttpHeaders.ETAG));
+        assertEquals("public, max-age=30, must-revalidate", response.getHeader(HttpHeaders.CACHE_CONTROL));
+    }
+
+    @Test
+    void matchingIfNoneMatchShortCircuitsWith304() throws Exception {
+        String etag = filter.etag(request("city", "paris"));
+        FilterChain chain = mock(FilterChain.class);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockHttpServletRequest request = request("city", "paris");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"autre\", W/" + etag);
+
+        filter.doFilter(request, response, chain);
+
+        assertEquals(304, response.getStatus());
+        assertEquals(etag, response.getHeader(HttpHeaders.ETAG));
+        assertEquals(0, response.getContentLength());
+        verify(chain, never()).doFilter(any(), any());
+    }
+
+    @Test
+    void equivalentQueriesShareETag() {
+        MockHttpServletRequest a = request("city", "Orléans");
+        a.setParameter("fields", "street,city");
+        MockHttpServletRequest b = request("city", "ORLEANS");
+        b.setParameter("fields", " CITY ,street");
+        b.setParameter("limitStr", "2");
+
+        assertEquals(filter.etag(a), filter.etag(b));
+        assertNotEquals(filter.etag(a), filter.etag(request("city", "Paris")));
+    }
+
+    @Test
+    void limitsAboveMaxPageSizeShareETag() {
+        MockHttpServletRequest a = request("limitStr", "100");
+        MockHttpServletRequest b = request("limitStr", "5000");
+
+        assertEquals(filter.etag(a), filter.etag(b));
+        assertEquals(filter.etag(a), filter.etag(request("limitStr", "99999999999999999999")));
+    }
+
+    @Test
+    void etagChangesOnlyWhenCatalogueContentChanges() {
+        String before = filter.etag(request("city", "paris"));
+
+        repository.reload(List.of(
+                new Address("12 rue de la Paix", "Paris"),
+                new Address("3 avenue des Champs-Élysées", "Paris"),
+                new Address("7 cours Belsunce", "Marseille")));
+        assertEquals(before, filter.etag(request("city", "paris")));
+
+        repository.reload(List.of(new Address("12 rue de la Paix", "Paris")));
+        assertNotEquals(before, filter.etag(request("city", "paris")));
+    }
+
+    @Test
+    void invalidParametersAreLeftToTheController() throws Exception {
+        assertNull(filter.etag(request("limitStr", "-1")));
+        assertNull(filter.etag(request("cursor", "pas-un-curseur")));
+
+        FilterChain chain = mock(FilterChain.class);
+        MockHttpServletRequest request = request("limitStr", "abc");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "*");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+
+        verify(chain).doFilter(any(), any());
+        assertNull(response.getHeader(HttpHeaders.ETAG));
+    }
+
+    private static MockHttpServletRequest request(String name, String value) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/addresses/address");
+        request.setParameter(name, value);
+        return request;
+    }
+}
@@ -0,0 +1,213 @@
+package fr.apithinking.apigreenscore.demo;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AsyncLogWriterTest {
+
+    private static LogWriterProperties properties(int capacity, int batchSize, Duration flushInterval,
+                                                  LogWriterProperties.Backpressure backpressure) {
+        LogWriterProperties properties = new LogWriterProperties();
+        properties.setMode(LogWriterProperties.Mode.ASYNC);
+        properties.setQueueCapacity(capacity);
+        properties.setBatchSize(batchSize);
+        properties.setFlushInterval(flushInterval);
+        properties.setBackpressure(backpressure);
+        return properties;
+    }
+
+    private static LogEntry entry(int i) {
+        LogEntry entry = new LogEntry();
+        entry.setUrl("http://example.com/" + i);
+        entry.setTimestamp(i);
+        return entry;
+    }
+
+    @Test
+    public void testNoEntryLostOnNormalStop() throws Exception {
+        List<LogEntry> written = Collections.synchronizedList(new ArrayList<>());
+        AsyncLogWriter writer = new AsyncLogWriter(
+                properties(100, 50, Duration.ofSeconds(10), LogWriterProperties.Backpressure.BLOCK),
+                batch -> {
+                    sleep(1);
+                    written.addAll(batch);
+                });
+        writer.start();
+
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            int offset = t * 2_500;
+            callers.execute(() -> {
+                for (int i = 0; i < 2_500; i++) {
+                    writer.submit(entry(offset + i));
+                }
+            });
+        }
+        callers.shutdown();
+        assertTrue(callers.awaitTermination(30, TimeUnit.SECONDS));
+
+        writer.close();
+
+        assertEquals(20_000, written.size());
+        assertEquals(20_000, written.stream().map(LogEntry::getUrl).distinct().count());
+        assertEquals(0, writer.getDroppedCount());
+        assertEquals(0, writer.getQueueSize());
+    }
+
+    @Test
+    public void testFlushBySize() throws Exception {
+        List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch flushed = new CountDownLatch(1);
+        AsyncLogWriter writer = new AsyncLogWriter(
+                properties(100, 10, Duration.ofMinutes(1), LogWriterProperties.Backpressure.BLOCK),
+                batch -> {
+                    batchSizes.add(batch.size());
+                    flushed.countDown();
+                });
+        writer.start();
+
+        for (int i = 0; i < 10; i++) {
+            writer.submit(entry(i));
+        }
+
+        // L'intervalle est d'une minute : seul le seuil de taille peut déclencher l'écriture
+        assertTrue(flushed.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(10), batchSizes);
+        writer.close();
+    }
+
+    @Test
+    public void testFlushByTime() throws Exception {
+        CountDownLatch flushed = new CountDownLatch(3);
+        AsyncLogWriter writer = new AsyncLogWriter(
+                properties(100, 1_000, Duration.ofMillis(50), LogWriterProperties.Backpressure.BLOCK),
+                batch -> batch.forEach(e -> flushed.countDown()));
+        writer.start();
+
+        for (int i = 0; i < 3; i++) {
+            writer.submit(entry(i));
+        }
+
+        assertTrue(flushed.await(5, TimeUnit.SECONDS));
+        writer.close();
+    }
+
+    @Test
+    public void testDropOldestKeepsNewestEntries() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<LogEntry> written = Collections.synchronizedList(new ArrayList<>());
+        AsyncLogWriter writer = new AsyncLogWriter(
+                properties(10, 1, Duration.ofMillis(10), LogWriterProperties.Backpressure.DROP_OLDEST),
+                batch -> {
+                    await(release);
+                    written.addAll(batch);
+                });
+        writer.start();
+
+        for (int i = 0; i < 100; i++) {
+            writer.submit(entry(i));
+        }
+        release.countDown();
+        writer.close();
+
+        assertEquals(100, writer.getSubmittedCount());
+        assertEquals(100, written.size() + writer.getDroppedCount());
+        assertTrue(writer.getDroppedCount() > 0);
+        assertEquals("http://example.com/99", written.get(written.size() - 1).getUrl());
+    }
+
+    @Test
+    public void testSampleDiscardsUnderPressure() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<LogEntry> written = Collections.synchronizedList(new ArrayList<>());
+        LogWriterProperties properties = properties(100, 1, Duration.ofMillis(10), LogWriterProperties.Backpressure.SAMPLE);
+        properties.setSampleThreshold(0.5);
+        properties.setSampleRate(0.0);
+        AsyncLogWriter writer = new AsyncLogWriter(properties, batch -> {
+            await(release);
+            written.addAll(batch);
+        });
+        writer.start();
+
+        for (int i = 0; i < 1_000; i++) {
+            writer.submit(entry(i));
+        }
+        release.countDown();
+        writer.close();
+
+        // Le writer est bloqué sur la 1re entrée ; au-delà de 50 en attente, plus rien n'est accepté (taux de 0)
+        assertTrue(written.size() <= 51, "entrées écrites : " + written.size());
+        assertEquals(1_000, written.size() + writer.getDroppedCount());
+    }
+
+    @Test
+    public void testSubmitAfterCloseWritesDirectly() {
+        List<LogEntry> written = Collections.synchronizedList(new ArrayList<>());
+        AsyncLogWriter writer = new AsyncLogWriter(
+                properties(10, 10, Duration.ofMillis(10), LogWriterProperties.Backpressure.BLOCK), written::addAll);
+        writer.start();
+        writer.close();
+
+        writer.submit(entry(1));
+
+        assertEquals(1, written.size());
+    }
+
+    @Test
+    public void testNoEntryLostWhenSubmittersRaceClose() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            List<LogEntry> written = Collections.synchronizedList(new ArrayList<>());
+            AsyncLogWriter writer = new AsyncLogWriter(
+                    properties(10_000, 100, Duration.ofMillis(10), LogWriterProperties.Backpressure.BLOCK), written::addAll);
+            writer.start();
+
+            CountDownLatch go = new CountDownLatch(1);
+            ExecutorService callers = Executors.newFixedThreadPool(4);
+            for (int t = 0; t < 4; t++) {
+                int offset = t * 1_000;
+                callers.execute(() -> {
+                    await(go);
+                    for (int i = 0; i < 1_000; i++) {
+                        writer.submit(entry(offset + i));
+                    }
+                });
+            }
+            go.countDown();
+            // Arrêt en pleine soumission
+            sleep(1);
+            writer.close();
+            callers.shutdown();
+            assertTrue(callers.awaitTermination(30, TimeUnit.SECONDS));
+
+            assertEquals(4_000, written.size(), "tour " + round);
+            assertEquals(0, writer.getQueueSize());
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
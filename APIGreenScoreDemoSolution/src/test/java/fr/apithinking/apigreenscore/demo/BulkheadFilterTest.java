@@ -0,0 +1,120 @@
+package fr.apithinking.apigreenscore.demo;
+
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class BulkheadFilterTest {
+
+    @Test
+    void rejectsBeyondMaxConcurrentAndReleasesSlots() throws Exception {
+        BulkheadProperties properties = new BulkheadProperties();
+        properties.setMaxConcurrent(2);
+        properties.setMaxWait(Duration.ofMillis(10));
+        BulkheadFilter filter = new BulkheadFilter(properties);
+
+        CountDownLatch inFlight = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        FilterChain slowChain = (request, response) -> {
+            inFlight.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        Future<?> first = pool.submit(() -> doFilter(filter, slowChain));
+        Future<?> second = pool.submit(() -> doFilter(filter, slowChain));
+        inFlight.await();
+
+        FilterChain chain = mock(FilterChain.class);
+        MockHttpServletResponse rejected = doFilter(filter, chain);
+        assertEquals(503, rejected.getStatus());
+        assertEquals("1", rejected.getHeader(HttpHeaders.RETRY_AFTER));
+        verify(chain, never()).doFilter(any(), any());
+
+        release.countDown();
+        first.get();
+        second.get();
+        pool.shutdown();
+
+        assertEquals(200, doFilter(filter, chain).getStatus());
+        verify(chain).doFilter(any(), any());
+        assertEquals(2, filter.getAvailablePermits());
+        assertEquals(1, filter.getRejectedCount());
+    }
+
+    @Test
+    void batchHoldsOneSlotPerProbeInFlight() throws Exception {
+        BulkheadProperties properties = new BulkheadProperties();
+        properties.setMaxConcurrent(10);
+        properties.setMaxWait(Duration.ofMillis(10));
+        ProbeBatchProperties batchProperties = new ProbeBatchProperties();
+        BulkheadFilter filter = new BulkheadFilter(properties,
+                request -> WebFilterConfiguration.bulkheadSlots(request, batchProperties));
+
+        CountDownLatch inFlight = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        Future<MockHttpServletResponse> batch = pool.submit(() -> doFilter(filter, batch(8), (request, response) -> {
+            inFlight.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        inFlight.await();
+
+        assertEquals(2, filter.getAvailablePermits());
+        FilterChain chain = mock(FilterChain.class);
+        assertEquals(503, doFilter(filter, batch(3), chain).getStatus());
+        assertEquals(200, doFilter(filter, chain).getStatus());
+
+        release.countDown();
+        assertEquals(200, batch.get().getStatus());
+        pool.shutdown();
+        assertEquals(10, filter.getAvailablePermits());
+        // Plus parallèle que la cloison : la cloison entière, pas un refus permanent
+        assertEquals(200, doFilter(filter, batch(64), chain).getStatus());
+        // Concurrence absente : celle par défaut, valeur invalide : une place
+        assertEquals(batchProperties.getDefaultConcurrency(),
+                WebFilterConfiguration.bulkheadSlots(new MockHttpServletRequest("POST", "/api/url2test/batch"), batchProperties));
+        assertEquals(1, WebFilterConfiguration.bulkheadSlots(batch(0), batchProperties));
+    }
+
+    private static MockHttpServletRequest batch(int concurrency) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/url2test/batch");
+        request.setParameter("concurrency", String.valueOf(concurrency));
+        return request;
+    }
+
+    private static MockHttpServletResponse doFilter(BulkheadFilter filter, FilterChain chain) {
+        return doFilter(filter, new MockHttpServletRequest("GET", "/api/url2test"), chain);
+    }
+
+    private static MockHttpServletResponse doFilter(BulkheadFilter filter, MockHttpServletRequest request, FilterChain chain) {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        try {
+            filter.doFilter(request, response, chain);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        return response;
+    }
+}
@@ -0,0 +1,128 @@
+package fr.apithinking.apigreenscore.demo;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Hundreds of concurrent probes against a slow local upstream, while a client keeps calling
+ * {@code /api/hello}: probes per second, and latency of the fast endpoint under that load,
+ * with and without bulkhead.
+ * <p>
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+public class BulkheadLoadTest {
+
+    private static final int PROBES = 400;
+    /** Petit pool Tomcat, pour que les sondes suffisent à l'épuiser dans le bac à sable. */
+    private static final int TOMCAT_THREADS = 20;
+    private static final int HELLO_CALLS = 50;
+    private static final Duration UPSTREAM_DELAY = Duration.ofMillis(300);
+
+    private record Result(String name, int ok, int rejected, double probesPerSecond, double helloP50Millis,
+                          double helloMaxMillis) {
+        @Override
+        public String toString() {
+            return String.format("%-34s %4d OK %4d 503   %7.0f probes/s   /api/hello p50 %7.1f ms  max %7.1f ms",
+                    name, ok, rejected, probesPerSecond, helloP50Millis, helloMaxMillis);
+        }
+    }
+
+    @Test
+    public void compareWithAndWithoutBulkhead() throws Exception {
+        try (StubHttpServer stub = new StubHttpServer().delay(UPSTREAM_DELAY)) {
+            List<Result> results = new ArrayList<>();
+            results.add(run("Sans cloison", stub, 0));
+            // Cloison à la moitié du pool Tomcat : l'autre moitié reste aux endpoints rapides
+            results.add(run("Cloison", stub, TOMCAT_THREADS / 2));
+            results.forEach(System.out::println);
+        }
+    }
+
+    /**
+     * @param bulkhead probes allowed in flight, 0 for no bulkhead
+     */
+    private Result run(String name, StubHttpServer stub, int bulkhead) throws Exception {
+        // Arguments de ligne de commande : ils priment sur application.properties
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(ApiGreenScoreDemoApplication.class).run(
+                "--server.port=0",
+                "--server.tomcat.threads.max=" + TOMCAT_THREADS,
+                "--apigreenscore.bulkhead.enabled=" + (bulkhead > 0),
+                "--apigreenscore.bulkhead.max-concurrent=" + Math.max(bulkhead, 1),
+                "--apigreenscore.bulkhead.max-wait=0ms",
+                "--apigreenscore.probe.cache.enabled=false",
+                "--apigreenscore.rate-limit.enabled=false",
+                "--apigreenscore.http.client.max-connections=" + PROBES,
+                "--apigreenscore.http.client.max-connections-per-host=" + PROBES,
+                "--spring.jpa.show-sql=false",
+                "--logging.level.fr.apithinking.apigreenscore=WARN")) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            String base = "http://127.0.0.1:" + port;
+            // Un thread client par sonde, et un client séparé pour /api/hello
+            ExecutorService callers = Executors.newFixedThreadPool(PROBES);
+            HttpClient probeClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            HttpClient helloClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            try {
+                // Préchauffage
+                send(probeClient, base + "/api/url2test?url=" + stub.url("/warmup"));
+                send(helloClient, base + "/api/hello");
+
+                CountDownLatch go = new CountDownLatch(1);
+                List<Future<Integer>> probes = new ArrayList<>();
+                for (int i = 0; i < PROBES; i++) {
+                    // URL distinctes : ni cache ni mutualisation
+                    String url = base + "/api/url2test?url=" + stub.url("/probe/" + i);
+                    probes.add(callers.submit(() -> {
+                        go.await();
+                        return send(probeClient, url);
+                    }));
+                }
+                long start = System.nanoTime();
+                go.countDown();
+                Thread.sleep(50);
+                double[] hello = new double[HELLO_CALLS];
+                for (int i = 0; i < HELLO_CALLS; i++) {
+                    long begin = System.nanoTime();
+                    send(helloClient, base + "/api/hello");
+                    hello[i] = (System.nanoTime() - begin) / 1e6;
+                }
+                int ok = 0;
+                int rejected = 0;
+                for (Future<Integer> probe : probes) {
+                    int status = probe.get();
+                    if (status == 200) {
+                        ok++;
+                    } else if (status == 503) {
+                        rejected++;
+                    }
+                }
+                double seconds = (System.nanoTime() - start) / 1e9;
+                Arrays.sort(hello);
+                return new Result(name, ok, rejected, ok / seconds, hello[HELLO_CALLS / 2], hello[HELLO_CALLS - 1]);
+            } finally {
+                callers.shutdownNow();
+            }
+        }
+    }
+
+    private static int send(HttpClient client, String url) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url)).timeout(Duration.ofSeconds(60)).build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
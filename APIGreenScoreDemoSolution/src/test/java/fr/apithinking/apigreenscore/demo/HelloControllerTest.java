@@ -0,0 +1,279 @@
+package fr.apithinking.apigreenscore.demo;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Sans limitation de débit : testée par RateLimitFilterTest
+@SpringBootTest(classes = ApiGreenScoreDemoApplication.class, properties = "apigreenscore.rate-limit.enabled=false")
+@AutoConfigureMockMvc
+class HelloControllerTest {
+
+    private static StubHttpServer upstream;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private LogEntryRepository logEntryRepository;
+
+    @Autowired
+    private RollingMetricsRecorder metricsRecorder;
+
+    @Autowired
+    private AsyncLogWriter asyncLogWriter;
+
+    @Autowired
+    private HelloController helloController;
+
+    @Autowired
+    private UpstreamCircuitBreaker circuitBreaker;
+
+    @BeforeAll
+    static void startUpstream() throws IOException {
+        upstream = new StubHttpServer();
+    }
+
+    @AfterAll
+    static void stopUpstream() {
+        upstream.close();
+    }
+
+    @Test
+    void json2xmlStreamsConvertedDocument() throws Exception {
+        upstream.respond(200, "application/json", "{\"address\":{\"city\":\"Orléans\"}}");
+
+        mockMvc.perform(get("/api/json2xml").param("url", upstream.url("/address.json")))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/xml;charset=UTF-8"))
+                .andExpect(content().string("<address><city>Orléans</city></address>"));
+    }
+
+    @Test
+    void json2xmlReportsConversionError() throws Exception {
+        upstream.respond(200, "application/json", "[\"pas un objet\"]");
+
+        mockMvc.perform(get("/api/json2xml").param("url", upstream.url("/array.json")))
+                .andExpect(status().isInternalServerError());
+    }
+
+    @Test
+    void json2xmlRejectsInvalidUrl() throws Exception {
+        mockMvc.perform(get("/api/json2xml").param("url", "ftp://example.com"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void repeatedProbeIsServedFromCache() throws Exception {
+        upstream.respond(200, "application/json", "{\"status\":\"ok\"}");
+        upstream.resetHits();
+        String url = upstream.url("/cached.json");
+
+        mockMvc.perform(get("/api/json2test").param("url", url))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Cache", "MISS"));
+        mockMvc.perform(get("/api/json2test").param("url", url))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Cache", "HIT"))
+                .andExpect(content().string(containsString("Taille: 15 octets")));
+
+        assertEquals(1, upstream.hits());
+    }
+
+    @Test
+    void noStoreResponsesAreNotCached() throws Exception {
+        upstream.respond(200, "application/json", "{}").headers(Map.of(HttpHeaders.CACHE_CONTROL, "no-store"));
+        upstream.resetHits();
+        String url = upstream.url("/no-store");
+
+        mockMvc.perform(get("/api/url2test").param("url", url))
+                .andExpect(header().string("X-Cache", "MISS"));
+        mockMvc.perform(get("/api/url2test").param("url", url))
+                .andExpect(header().string("X-Cache", "MISS"));
+
+        assertEquals(2, upstream.hits());
+    }
+
+    @Test
+    void clientAbortDuringJson2xmlIsNotHeldAgainstTheHost() throws Exception {
+        upstream.respond(200, "application/json", "{\"city\":\"Lyon\"}");
+        String url = upstream.url("/abort.json");
+        mockMvc.perform(get("/api/json2xml").param("url", upstream.url("/before-abort.json"))).andExpect(status().isOk());
+
+        // Client parti avant la fin de la réponse
+        MockHttpServletResponse aborted = new MockHttpServletResponse() {
+            @Override
+            public ServletOutputStream getOutputStream() {
+                return new ServletOutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        throw new IOException("Broken pipe");
+                    }
+
+                    @Override
+                    public boolean isReady() {
+                        return true;
+                    }
+
+                    @Override
+                    public void setWriteListener(WriteListener writeListener) {
+                    }
+                };
+            }
+        };
+        assertThrows(IOException.class, () -> helloController.convertJsonToXml(url, new MockHttpServletRequest(), aborted));
+
+        CircuitSnapshot circuit = circuitBreaker.stats().hosts().stream()
+                .filter(snapshot -> snapshot.host().equals(RateLimitFilter.host(url))).findFirst().orElseThrow();
+        assertEquals(0, circuit.consecutiveFailures());
+    }
+
+    @Test
+    void json2xmlReplaysCachedConversion() throws Exception {
+        upstream.respond(200, "application/json", "{\"city\":\"Nantes\"}");
+        upstream.resetHits();
+        String url = upstream.url("/replay.json");
+
+        mockMvc.perform(get("/api/json2xml").param("url", url))
+                .andExpect(header().string("X-Cache", "MISS"));
+        mockMvc.perform(get("/api/json2xml").param("url", url))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Cache", "HIT"))
+                .andExpect(content().contentType("application/xml;charset=UTF-8"))
+                .andExpect(content().string("<city>Nantes</city>"));
+
+        assertEquals(1, upstream.hits());
+    }
+
+    @Test
+    void batchStreamsOneLinePerUrlAndLogsEachProbe() throws Exception {
+        upstream.respond(200, "application/json", "{\"status\":\"ok\"}");
+        List<String> urls = List.of(upstream.url("/batch/1"), upstream.url("/batch/2"), upstream.url("/batch/3"));
+        awaitLogsWritten();
+        long logged = logEntryRepository.count();
+
+        String body = mockMvc.perform(post("/api/url2test/batch").param("concurrency", "2")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[\"" + String.join("\",\"", urls) + "\",\"ftp://example.com\"]"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+
+        List<String> lines = body.lines().toList();
+        assertEquals(4, lines.size());
+        for (String url : urls) {
+            assertTrue(lines.stream().anyMatch(line -> line.contains("\"url\":\"" + url + "\"") && line.contains("\"statusCode\":200")));
+        }
+        assertTrue(lines.stream().anyMatch(line -> line.contains("ftp://example.com") && line.contains("\"statusCode\":400")));
+        // Lot écrit d'un seul INSERT dès la fin de la réponse ; l'URL refusée n'est pas journalisée
+        awaitLogsWritten();
+        assertEquals(logged + 3, logEntryRepository.count());
+    }
+
+    @Test
+    void batchProbeTimesOutWithoutFailingTheBatch() throws Exception {
+        upstream.respond(200, "application/json", "{}").delay(Duration.ofMillis(1000));
+        try {
+            mockMvc.perform(post("/api/url2test/batch").param("timeoutMs", "200")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("[\"" + upstream.url("/batch/slow") + "\"]"))
+                    .andExpect(status().isOk())
+                    .andExpect(content().string(containsString("\"statusCode\":500")))
+                    .andExpect(content().string(containsString("Erreur lors de l'appel de l'URL")));
+        } finally {
+            upstream.delay(Duration.ZERO);
+        }
+    }
+
+    @Test
+    void batchRejectsOutOfRangeParameters() throws Exception {
+        mockMvc.perform(post("/api/url2test/batch").contentType(MediaType.APPLICATION_JSON).content("[]"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/api/url2test/batch").param("concurrency", "1000")
+                        .contentType(MediaType.APPLICATION_JSON).content("[\"http://example.com\"]"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/api/url2test/batch").param("timeoutMs", "0")
+                        .contentType(MediaType.APPLICATION_JSON).content("[\"http://example.com\"]"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void probeIsLoggedOnceWithTheMeasuresOfTheRequest() throws Exception {
+        upstream.respond(200, "application/json", "{\"status\":\"ok\"}");
+        String url = upstream.url("/measured");
+        awaitLogsWritten();
+        long logged = logEntryRepository.count();
+
+        mockMvc.perform(get("/api/url2test").param("url", url)).andExpect(status().isOk());
+
+        // Une seule ligne : celle de l'appel amont, complétée par le filtre de mesure
+        awaitLogsWritten();
+        assertEquals(logged + 1, logEntryRepository.count());
+        LogEntry entry = logEntryRepository.findAll().stream()
+                .max(Comparator.comparing(LogEntry::getId)).orElseThrow();
+        assertEquals(url, entry.getUrl());
+        assertEquals(15, entry.getPayloadSize());
+        assertNotNull(entry.getTotalTimeNanos());
+        assertTrue(entry.getTimeToFirstByteNanos() <= entry.getTotalTimeNanos());
+    }
+
+    @Test
+    void helloKeepsResponseTimeAndSize() throws Exception {
+        mockMvc.perform(get("/api/hello").param("url", "http://example.com"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("\"responseTime\": ")))
+                .andExpect(content().string(containsString("\"size\": 61}")));
+    }
+
+    @Test
+    void helloLogsBytesSentOnTheWire() throws Exception {
+        String url = "http://example.com/" + "x".repeat(2000);
+
+        byte[] gzipped = mockMvc.perform(get("/api/hello").param("url", url).header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        // Taille compressée, et non celle de la chaîne JSON
+        assertEquals(gzipped.length, metricsRecorder.totalPayloadBytes(url));
+        assertTrue(gzipped.length < url.length());
+    }
+
+    /**
+     * Waits until the background writer has flushed every entry submitted so far.
+     */
+    private void awaitLogsWritten() throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (asyncLogWriter.getWrittenCount() + asyncLogWriter.getDroppedCount() + asyncLogWriter.getFailedCount()
+                < asyncLogWriter.getSubmittedCount() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package fr.apithinking.apigreenscore.demo;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class IndexedAddressRepositoryTest {
+
+    private static final String[] STREET_TYPES = {"rue", "avenue", "boulevard", "chemin", "allée", "impasse"};
+    private static final String[] STREET_NAMES = {"des Champs-Élysées", "de la Paix", "Nationale", "des Plantes",
+            "Haussmann", "de Bretagne", "des Pêcheurs", "Émile Zola", "du Général de Gaulle", "Victor Hugo"};
+    private static final String[] CITIES = {"Paris", "Nantes", "Lyon", "Marseille", "Marseillan", "Bordeaux",
+            "Orléans", "Saint-Étienne", "Issy Les Moulineaux", "Évry", "Pau", "Rennes"};
+
+    private static List<Address> addresses;
+    private static IndexedAddressRepository repository;
+
+    @BeforeAll
+    static void buildCatalogue() {
+        Random random = new Random(42);
+        addresses = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            addresses.add(new Address(
+                    (1 + random.nextInt(300)) + " " + STREET_TYPES[random.nextInt(STREET_TYPES.length)] + " "
+                            + STREET_NAMES[random.nextInt(STREET_NAMES.length)],
+                    CITIES[random.nextInt(CITIES.length)]));
+        }
+        repository = new IndexedAddressRepository(addresses);
+    }
+
+    /**
+     * Reference implementation: linear scan on normalized keys.
+     */
+    private static List<Address> scan(String street, String city, int limit) {
+        String streetKey = IndexedAddressRepository.normalize(street);
+        String cityKey = IndexedAddressRepository.normalize(city);
+        return addresses.stream()
+                .filter(a -> IndexedAddressRepository.normalize(a.city()).contains(cityKey))
+                .filter(a -> IndexedAddressRepository.normalize(a.street()).contains(streetKey))
+                .limit(limit)
+                .toList();
+    }
+
+    @Test
+    public void testSameResultsAsLinearScan() {
+        String[][] queries = {
+                {null, null}, {"", "Paris"}, {"champs", null}, {"CHAMPS-ELYSEES", "paris"}, {"pecheurs", "mars"},
+                {"12 ", null}, {"zola", "saint-etienne"}, {"ru", null}, {"e", "e"}, {null, "ma"},
+                {"boulevard haussmann", "Bordeaux"}, {"inconnue", null}, {null, "Tokyo"}, {"emile", "évry"},
+                {"allee", "Issy"}, {"7 impasse", "rennes"}, {"1", "pau"}
+        };
+        for (String[] query : queries) {
+            for (int limit : new int[]{1, 2, 10, 1_000, 100_000}) {
+                assertEquals(scan(query[0], query[1], limit), repository.search(query[0], query[1], limit),
+                        "street=" + query[0] + ", city=" + query[1] + ", limit=" + limit);
+            }
+        }
+    }
+
+    @Test
+    public void testMatchingIgnoresCaseAndAccents() {
+        IndexedAddressRepository small = new IndexedAddressRepository(List.of(
+                new Address("10 avenue des Champs-Elysées", "Paris"),
+                new Address("5 rue de la Paix", "Orléans")));
+
+        assertEquals(1, small.search("ÉLYSÉES", null, 10).size());
+        assertEquals(1, small.search(null, "orleans", 10).size());
+        assertEquals(0, small.search("paix", "paris", 10).size());
+        assertEquals(0, small.search(null, null, 0).size());
+    }
+
+    @Test
+    public void testColumnarStorageRestoresRows() {
+        List<Address> rows = List.of(
+                new Address("10 avenue des Champs-Élysées", "Paris"),
+                new Address(null, "PARIS"),
+                new Address("", null),
+                new Address("5 rue de la Paix", "Paris"));
+        IndexedAddressRepository small = new IndexedAddressRepository(rows);
+
+        assertEquals(rows, small.search(null, null, 10));
+        // Deux graphies d'une même ville : une seule clé, chaque ligne garde la sienne
+        assertEquals(List.of(rows.get(0), rows.get(1), rows.get(3)), small.search(null, "paris", 10));
+        assertEquals(new IndexedAddressRepository(rows).version(), small.version());
+        assertTrue(repository.memoryBytes() > 0);
+    }
+
+    @Test
+    public void testLoadCsv() throws IOException {
+        String csv = "street;city\n"
+                + "10 avenue des Champs-Elysées;Paris\n"
+                + "\"3 rue \"\"Le Bon\"\" ; bis\";Lyon\n"
+                + "\n";
+
+        List<Address> loaded = AddressCsvLoader.load(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(List.of(new Address("10 avenue des Champs-Elysées", "Paris"),
+                new Address("3 rue \"Le Bon\" ; bis", "Lyon")), loaded);
+        assertThrows(IOException.class,
+                () -> AddressCsvLoader.load(new ByteArrayInputStream("a;b;c\n".getBytes(StandardCharsets.UTF_8))));
+    }
+}
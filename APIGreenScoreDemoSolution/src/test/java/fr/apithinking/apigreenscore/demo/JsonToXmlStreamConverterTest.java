@@ -0,0 +1,97 @@
+package fr.apithinking.apigreenscore.demo;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.json.JSONObject;
+import org.json.XML;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class JsonToXmlStreamConverterTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static String convert(String json) throws IOException {
+        StringWriter xml = new StringWriter();
+        JsonToXmlStreamConverter.convert(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), xml);
+        return xml.toString();
+    }
+
+    /**
+     * Documents whose objects have a single key: the key order of {@link JSONObject}
+     * cannot differ, so the output must be strictly identical.
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "{}",
+            "{\"message\":\"Hello, API Green Score!\"}",
+            "{\"a\":{\"b\":{\"c\":42}}}",
+            "{\"items\":[1,2,3]}",
+            "{\"items\":[{\"id\":1},{\"id\":2}]}",
+            "{\"matrix\":[[1,2],[3,4]]}",
+            "{\"empty\":\"\"}",
+            "{\"nothing\":null}",
+            "{\"emptyObject\":{}}",
+            "{\"emptyArray\":[]}",
+            "{\"flag\":true}",
+            "{\"off\":false}",
+            "{\"decimal\":1.50}",
+            "{\"scientific\":1e5}",
+            "{\"negativeZero\":-0.0}",
+            "{\"big\":123456789012345678901234567890}",
+            "{\"escaped\":\"<a href='x'>&\\\"</a>\"}",
+            "{\"controls\":\"tab\\tline\\nreturn\\r\\u0001\"}",
+            "{\"accents\":\"Champs-Élysées — 😀\"}",
+            "{\"content\":\"texte brut\"}",
+            "{\"content\":[\"ligne 1\",\"ligne 2\",3]}",
+            "{\"a\":{\"content\":\"valeur\"}}",
+            "{\"nested\":[[[1,2]],[3]]}",
+            "{\"mixed\":[1,\"deux\",null,{\"x\":\"\"},[true]]}",
+    })
+    public void testSameOutputAsOrgJson(String json) throws IOException {
+        assertEquals(XML.toString(new JSONObject(json)), convert(json));
+    }
+
+    /**
+     * With several keys per object only the order of sibling elements may differ
+     * from org.json: both outputs must read back to the same structure.
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "{\"street\":\"10 avenue des Champs-Elysées\",\"city\":\"Paris\",\"zip\":75008}",
+            "{\"user\":{\"id\":7,\"name\":\"Ana\",\"roles\":[\"admin\",\"dev\"],\"active\":true,\"manager\":null}}",
+            "{\"page\":1,\"results\":[{\"id\":1,\"tags\":[]},{\"id\":2,\"tags\":[\"a\",\"b\"],\"score\":0.75}],\"next\":\"\"}",
+    })
+    public void testSameStructureAsOrgJson(String json) throws IOException {
+        String expected = XML.toString(new JSONObject(json));
+        String actual = convert(json);
+
+        assertEquals(expected.length(), actual.length());
+        assertEquals(readBack(expected), readBack(actual));
+    }
+
+    private static JsonNode readBack(String xml) throws IOException {
+        return MAPPER.readTree(XML.toJSONObject(xml).toString());
+    }
+
+    @Test
+    public void testKeepsDocumentOrder() throws IOException {
+        assertEquals("<b>1</b><a>2</a>", convert("{\"b\":1,\"a\":2}"));
+    }
+
+    @Test
+    public void testRejectsNonObjectDocument() {
+        assertThrows(JsonProcessingException.class, () -> convert("[1,2,3]"));
+        assertThrows(JsonProcessingException.class, () -> convert("{\"a\":"));
+    }
+}
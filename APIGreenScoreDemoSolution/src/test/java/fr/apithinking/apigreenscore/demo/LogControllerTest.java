@@ -0,0 +1,184 @@
+package fr.apithinking.apigreenscore.demo;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Base à part et sans rétention : les entrées de 1970 seraient agrégées puis purgées
+@SpringBootTest(classes = ApiGreenScoreDemoApplication.class, properties = {
+        "spring.datasource.url=jdbc:h2:mem:logstatsdb", "apigreenscore.logs.retention.enabled=false"})
+@AutoConfigureMockMvc
+class LogControllerTest {
+
+    /** Fenêtre dans le passé, à l'écart des entrées écrites par les autres tests. */
+    private static final long FROM = 1_000_000L;
+    private static final long TO = 2_000_000L;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    static void insertEntries(@Autowired LogEntryBatchWriter writer) {
+        List<LogEntry> entries = new ArrayList<>();
+        // /a : temps de réponse 1..100 ms, dont 10 en 500
+        for (int i = 1; i <= 100; i++) {
+            entries.add(entry("http://stats.test/a", FROM + i, i, 10, i <= 90 ? 200 : 500));
+        }
+        // /b : 20 appels à 7 ms
+        for (int i = 0; i < 20; i++) {
+            entries.add(entry("http://stats.test/b", FROM + 500 + i, 7, 1000, 200));
+        }
+        // Hors fenêtre
+        entries.add(entry("http://stats.test/a", TO, 999_999, 10, 200));
+        writer.insertAll(entries);
+    }
+
+    @Test
+    void statsAggregatePerUrlAndStatus() throws Exception {
+        mockMvc.perform(get("/logs/stats").param("from", String.valueOf(FROM)).param("to", String.valueOf(TO)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total.count").value(120))
+                .andExpect(jsonPath("$.total.payloadBytes").value(100 * 10 + 20 * 1000))
+                .andExpect(jsonPath("$.urls", hasSize(2)))
+                .andExpect(jsonPath("$.urls[0].url").value("http://stats.test/a"))
+                .andExpect(jsonPath("$.urls[0].stats.count").value(100))
+                .andExpect(jsonPath("$.urls[0].stats.min").value(1))
+                .andExpect(jsonPath("$.urls[0].stats.avg").value(50.5))
+                .andExpect(jsonPath("$.urls[0].stats.p50").value(50))
+                .andExpect(jsonPath("$.urls[0].stats.p95").value(95))
+                .andExpect(jsonPath("$.urls[0].stats.p99").value(99))
+                .andExpect(jsonPath("$.urls[1].stats.p99").value(7))
+                .andExpect(jsonPath("$.statuses", hasSize(2)))
+                .andExpect(jsonPath("$.statuses[0].statusCode").value(200))
+                .andExpect(jsonPath("$.statuses[0].stats.count").value(110))
+                .andExpect(jsonPath("$.statuses[1].statusCode").value(500))
+                .andExpect(jsonPath("$.statuses[1].stats.min").value(91));
+    }
+
+    @Test
+    void limitKeepsBusiestUrls() throws Exception {
+        mockMvc.perform(get("/logs/stats").param("from", String.valueOf(FROM)).param("to", String.valueOf(TO))
+                        .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.urls", hasSize(1)))
+                .andExpect(jsonPath("$.urls[0].url").value("http://stats.test/a"));
+    }
+
+    @Test
+    void emptyWindowHasZeroAggregates() throws Exception {
+        mockMvc.perform(get("/logs/stats").param("from", "10").param("to", "20"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total.count").value(0))
+                .andExpect(jsonPath("$.total.p99").value(0))
+                .andExpect(jsonPath("$.urls", hasSize(0)));
+    }
+
+    @Test
+    void invalidWindowIsRejected() throws Exception {
+        mockMvc.perform(get("/logs/stats").param("from", "20").param("to", "10"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/logs/stats").param("window", "15m").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void exportStreamsNdjsonFilteredByUrl() throws Exception {
+        String body = mockMvc.perform(get("/logs/export").param("from", String.valueOf(FROM))
+                        .param("to", String.valueOf(TO)).param("url", "http://stats.test/b"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"logs-" + FROM + "-" + TO + ".ndjson\""))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertEquals(20, lines.length);
+        assertEquals("{\"timestamp\":" + (FROM + 500) + ",\"url\":\"http://stats.test/b\",\"statusCode\":200,"
+                + "\"payloadSize\":1000,\"responseTime\":7,\"callerIp\":\"127.0.0.1\",\"cacheStatus\":null,"
+                + "\"coalesced\":false,\"requestSize\":0,\"timeToFirstByteNanos\":null,\"totalTimeNanos\":null}", lines[0]);
+    }
+
+    @Test
+    void exportWritesGzippedCsv() throws Exception {
+        MockHttpServletResponse response = mockMvc.perform(get("/logs/export").param("from", String.valueOf(FROM))
+                        .param("to", String.valueOf(TO)).param("format", "csv")
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andReturn().getResponse();
+
+        String csv;
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))) {
+            csv = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        String[] lines = csv.split("\r\n");
+        assertEquals(1 + 120, lines.length);
+        assertTrue(lines[0].startsWith("timestamp,url,statusCode,"), lines[0]);
+        assertEquals((FROM + 1) + ",http://stats.test/a,200,10,1,127.0.0.1,,false,0,,", lines[1]);
+    }
+
+    @Test
+    void exportRejectsUnknownFormat() throws Exception {
+        mockMvc.perform(get("/logs/export").param("format", "xml"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void windowAndUrlColumnsAreIndexed() {
+        List<String> indexes = jdbcTemplate.queryForList(
+                "SELECT LOWER(index_name) FROM information_schema.indexes WHERE LOWER(table_name) = 'log_entry'",
+                String.class);
+        assertTrue(indexes.contains("idx_log_entry_timestamp"), indexes.toString());
+        assertTrue(indexes.contains("idx_log_entry_url"), indexes.toString());
+    }
+
+    @Test
+    void liveMetricsAreServedFromMemoryAndMicrometer() throws Exception {
+        mockMvc.perform(get("/logs").param("url", "http://metrics.test/live")).andExpect(status().isOk());
+
+        mockMvc.perform(get("/logs/metrics").param("url", "http://metrics.test/live"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalCount").value(1))
+                .andExpect(jsonPath("$.windows.1m.count").value(1));
+        mockMvc.perform(get("/logs/metrics").param("url", "http://metrics.test/inconnue"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/actuator/metrics/apigreenscore.calls").param("tag", "url:http://metrics.test/live"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.measurements[0].value").value(1.0));
+    }
+
+    private static LogEntry entry(String url, long timestamp, long responseTime, int payloadSize, int statusCode) {
+        LogEntry entry = new LogEntry();
+        entry.setUrl(url);
+        entry.setTimestamp(timestamp);
+        entry.setResponseTime(responseTime);
+        entry.setPayloadSize(payloadSize);
+        entry.setStatusCode(statusCode);
+        entry.setCallerIp("127.0.0.1");
+        return entry;
+    }
+}
@@ -0,0 +1,116 @@
+package fr.apithinking.apigreenscore.demo;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Base à part ; passes lancées à la main, l'ordonnanceur n'intervient pas pendant le test
+@SpringBootTest(classes = ApiGreenScoreDemoApplication.class, properties = {
+        "spring.datasource.url=jdbc:h2:mem:retentiondb", "apigreenscore.logs.retention.interval=1h"})
+@AutoConfigureMockMvc
+class LogRetentionServiceTest {
+
+    private static final long HOUR = 3_600_000L;
+    private static final long NOW = 240 * HOUR + 30 * 60_000L;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private LogEntryBatchWriter writer;
+
+    @Autowired
+    private LogRetentionService retentionService;
+
+    @Test
+    void oldEntriesAreRolledUpThenPurgedAndStillCounted() throws Exception {
+        List<LogEntry> entries = new ArrayList<>();
+        // /old : 3 h avant, temps de réponse 1..60 ms sur deux minutes, dont 6 en 500
+        for (int i = 1; i <= 60; i++) {
+            entries.add(entry("http://retention.test/old", NOW - 3 * HOUR + i * 1000L, i, 10, i <= 54 ? 200 : 500));
+        }
+        // /recent : 10 min avant, dans la rétention des entrées brutes
+        for (int i = 0; i < 10; i++) {
+            entries.add(entry("http://retention.test/recent", NOW - 600_000L + i, 5, 100, 200));
+        }
+        writer.insertAll(entries);
+
+        retentionService.run(NOW);
+
+        assertEquals(0, countRaw("http://retention.test/old"));
+        assertEquals(10, countRaw("http://retention.test/recent"));
+        assertTrue(countRollups("MINUTE") >= 2);
+        assertTrue(countRollups("HOUR") >= 2);
+        expectStats(NOW - 4 * HOUR, NOW);
+
+        // Une passe de plus n'agrège rien deux fois
+        retentionService.run(NOW);
+        expectStats(NOW - 4 * HOUR, NOW);
+
+        // Deux jours plus tard : il ne reste que les agrégats horaires
+        retentionService.run(NOW + 48 * HOUR);
+        assertEquals(0, countRaw("http://retention.test/recent"));
+        assertEquals(0, countRollups("MINUTE"));
+        expectStats(NOW - 4 * HOUR, NOW);
+    }
+
+    private void expectStats(long from, long to) throws Exception {
+        ResultActions result = mockMvc.perform(get("/logs/stats")
+                        .param("from", String.valueOf(from)).param("to", String.valueOf(to)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total.count").value(70))
+                .andExpect(jsonPath("$.total.payloadBytes").value(60 * 10 + 10 * 100))
+                .andExpect(jsonPath("$.urls", hasSize(2)))
+                .andExpect(jsonPath("$.urls[0].url").value("http://retention.test/old"))
+                .andExpect(jsonPath("$.urls[0].stats.count").value(60))
+                .andExpect(jsonPath("$.urls[0].stats.min").value(1))
+                .andExpect(jsonPath("$.urls[0].stats.avg").value(30.5))
+                .andExpect(jsonPath("$.urls[1].stats.p99").value(5))
+                .andExpect(jsonPath("$.statuses", hasSize(2)))
+                .andExpect(jsonPath("$.statuses[1].statusCode").value(500))
+                .andExpect(jsonPath("$.statuses[1].stats.count").value(6));
+        // Percentiles approchés à la largeur d'un bucket (12,5 %)
+        result.andExpect(jsonPath("$.urls[0].stats.p50").value(allOf(greaterThanOrEqualTo(27), lessThanOrEqualTo(33))))
+                .andExpect(jsonPath("$.urls[0].stats.p99").value(allOf(greaterThanOrEqualTo(53), lessThanOrEqualTo(60))));
+    }
+
+    private int countRaw(String url) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM log_entry WHERE url = ?", Integer.class, url);
+    }
+
+    private int countRollups(String granularity) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM log_rollup WHERE granularity = ?", Integer.class,
+                granularity);
+    }
+
+    private static LogEntry entry(String url, long timestamp, long responseTime, int payloadSize, int statusCode) {
+        LogEntry entry = new LogEntry();
+        entry.setUrl(url);
+        entry.setTimestamp(timestamp);
+        entry.setResponseTime(responseTime);
+        entry.setPayloadSize(payloadSize);
+        entry.setStatusCode(statusCode);
+        entry.setCallerIp("127.0.0.1");
+        return entry;
+    }
+}
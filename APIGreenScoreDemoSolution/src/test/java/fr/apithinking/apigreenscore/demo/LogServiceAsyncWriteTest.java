@@ -0,0 +1,34 @@
+package fr.apithinking.apigreenscore.demo;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(classes = ApiGreenScoreDemoApplication.class,
+        properties = {"apigreenscore.logs.writer.mode=async", "apigreenscore.logs.writer.batch-size=64"})
+class LogServiceAsyncWriteTest {
+
+    @Autowired
+    private LogService logService;
+
+    @Autowired
+    private AsyncLogWriter asyncLogWriter;
+
+    @Autowired
+    private LogEntryRepository repository;
+
+    @Test
+    void queuedEntriesAreInsertedWhenWriterStops() {
+        long before = repository.count();
+
+        for (int i = 0; i < 1_000; i++) {
+            logService.logApiCall("http://example.com/" + i, "127.0.0.1", i, 10, 200);
+        }
+        // Même chemin que l'arrêt du contexte Spring
+        asyncLogWriter.close();
+
+        assertEquals(before + 1_000, repository.count());
+    }
+}
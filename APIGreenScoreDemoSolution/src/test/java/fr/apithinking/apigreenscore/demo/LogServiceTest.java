@@ -2,14 +2,27 @@ package fr.apithinking.apigreenscore.demo;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
+import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 public class LogServiceTest {
 
+    @Mock
+    private LogStore logStore;
+
+    @Mock
+    private RollingMetricsRecorder metricsRecorder;
+
     @InjectMocks
     private LogService logService;
 
@@ -28,7 +41,31 @@ public class LogServiceTest {
 
         logService.logApiCall(url, remoteAddr, responseTime, payloadSize, statusCode);
 
-        // Verify that the log method was called with the correct parameters
-        verify(logService, times(1)).logApiCall(url, remoteAddr, responseTime, payloadSize, statusCode);
+        // Sans writer asynchrone, l'entrée est enregistrée directement
+        verify(logStore, times(1)).append(any(LogEntry.class));
+        verify(metricsRecorder).record(url, responseTime, payloadSize, statusCode);
+    }
+
+    @Test
+    public void testLogApiCallRecordsCacheStatusAndCoalescing() {
+        logService.logApiCall("http://example.com", "127.0.0.1", 0, 200, 200, CacheStatus.MISS, true);
+
+        ArgumentCaptor<LogEntry> entry = ArgumentCaptor.forClass(LogEntry.class);
+        verify(logStore).append(entry.capture());
+        assertEquals(CacheStatus.MISS, entry.getValue().getCacheStatus());
+        assertTrue(entry.getValue().isCoalesced());
+    }
+
+    @Test
+    public void testLogBatchUsesSingleBatchInsert() {
+        List<LogEntry> entries = List.of(
+                LogService.newEntry("http://a.example", "127.0.0.1", 10, 100, 200, CacheStatus.MISS, false),
+                LogService.newEntry("http://b.example", "127.0.0.1", 20, 0, 500, CacheStatus.MISS, false));
+
+        logService.logBatch(entries);
+
+        verify(logStore, times(1)).append(entries);
+        verify(logStore, times(0)).append(any(LogEntry.class));
+        verify(metricsRecorder).record("http://b.example", 20, 0, 500);
     }
-}
\ No newline at end of file
+}
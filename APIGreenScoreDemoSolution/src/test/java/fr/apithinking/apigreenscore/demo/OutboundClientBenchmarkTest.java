@@ -0,0 +1,94 @@
+package fr.apithinking.apigreenscore.demo;
+
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Probes per second and p99 latency of the historical per-request {@link RestTemplate}
+ * against the shared pooled client, on a local stub upstream.
+ * <p>
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+public class OutboundClientBenchmarkTest {
+
+    private static final int THREADS = 32;
+    private static final int CALLS_PER_THREAD = 500;
+
+    private record Result(String name, double probesPerSecond, double p50Millis, double p99Millis) {
+        @Override
+        public String toString() {
+            return String.format("%-28s %10.0f probes/s   p50 %7.2f ms   p99 %7.2f ms",
+                    name, probesPerSecond, p50Millis, p99Millis);
+        }
+    }
+
+    @Test
+    public void compareClients() throws Exception {
+        OutboundHttpClientConfiguration configuration = new OutboundHttpClientConfiguration();
+        OutboundHttpClientProperties properties = new OutboundHttpClientProperties();
+        properties.setMaxConnectionsPerHost(THREADS);
+
+        try (StubHttpServer stub = new StubHttpServer();
+             CloseableHttpClient client = configuration.outboundHttpClient(
+                     configuration.outboundConnectionManager(properties), properties)) {
+            String url = stub.url("/probe");
+            RestTemplate shared = configuration.outboundRestTemplate(client);
+
+            // Préchauffage (JIT, pool)
+            run("warm-up", url, RestTemplate::new);
+            run("warm-up", url, () -> shared);
+
+            Result perRequest = run("RestTemplate par requête", url, RestTemplate::new);
+            Result pooled = run("Client mutualisé (pool)", url, () -> shared);
+
+            System.out.println(perRequest);
+            System.out.println(pooled);
+        }
+    }
+
+    private Result run(String name, String url, Supplier<RestTemplate> clients) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<long[]>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(pool.submit(() -> {
+                long[] latencies = new long[CALLS_PER_THREAD];
+                for (int i = 0; i < CALLS_PER_THREAD; i++) {
+                    long begin = System.nanoTime();
+                    int status = clients.get().getForEntity(url, String.class).getStatusCode().value();
+                    latencies[i] = System.nanoTime() - begin;
+                    assertEquals(200, status);
+                }
+                return latencies;
+            }));
+        }
+        long[] all = new long[THREADS * CALLS_PER_THREAD];
+        int offset = 0;
+        for (Future<long[]> future : futures) {
+            long[] latencies = future.get();
+            System.arraycopy(latencies, 0, all, offset, latencies.length);
+            offset += latencies.length;
+        }
+        long elapsed = System.nanoTime() - start;
+        pool.shutdown();
+
+        Arrays.sort(all);
+        return new Result(name,
+                all.length / (elapsed / 1e9),
+                all[(int) (all.length * 0.50)] / 1e6,
+                all[(int) (all.length * 0.99)] / 1e6);
+    }
+}
@@ -0,0 +1,61 @@
+package fr.apithinking.apigreenscore.demo;
+
+import fr.apithinking.apigreenscore.demo.ProbeResponseCache.ProbeType;
+import fr.apithinking.apigreenscore.demo.UpstreamProbeService.ProbeResult;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProbeBatchServiceTest {
+
+    private final UpstreamProbeService probeService = mock(UpstreamProbeService.class);
+    private final LogService logService = mock(LogService.class);
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void batchAimedAtOneHostIsThrottledAfterTheHostCapacity() throws IOException {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setEndpoints(Map.of(WebFilterConfiguration.BATCH_PROBE_PATH, new RateLimitProperties.Limits(
+                null, new RateLimitProperties.Bucket(3, 0.1))));
+        AtomicLong clock = new AtomicLong(42);
+        RateLimitFilter filter = new RateLimitFilter(properties, clock::get);
+        ObjectProvider<RateLimitFilter> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable()).thenReturn(filter);
+        when(probeService.probe(eq(ProbeType.URL), anyString()))
+                .thenReturn(new ProbeResult(200, "application/json", 2, CacheStatus.MISS, false));
+        List<String> urls = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            urls.add("http://A.example/" + i);
+        }
+        urls.add("http://b.example/");
+
+        List<BatchProbeResult> results = new ArrayList<>();
+        try (ProbeBatchService service = new ProbeBatchService(probeService, mock(ProbeResponseCache.class), logService,
+                provider, new ProbeBatchProperties())) {
+            service.probeAll(urls, 2, Duration.ofSeconds(5), "10.0.0.1", results::add);
+        }
+
+        // Seau partagé par les URLs de l'hôte : au-delà de sa capacité, 429 sans appel
+        assertEquals(6, results.size());
+        assertEquals(List.of("http://A.example/3", "http://A.example/4"),
+                results.stream().filter(result -> result.statusCode() == 429).map(BatchProbeResult::url).toList());
+        verify(probeService, times(4)).probe(eq(ProbeType.URL), anyString());
+        assertEquals(2, filter.getRejectedCount());
+        verify(logService).logBatch(argThat(entries -> entries.size() == 4));
+    }
+}
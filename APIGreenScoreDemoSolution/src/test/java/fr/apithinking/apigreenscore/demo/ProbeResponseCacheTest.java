@@ -0,0 +1,128 @@
+package fr.apithinking.apigreenscore.demo;
+
+import fr.apithinking.apigreenscore.demo.ProbeResponseCache.CachedResponse;
+import fr.apithinking.apigreenscore.demo.ProbeResponseCache.ProbeType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProbeResponseCacheTest {
+
+    private static final Duration DEFAULT_TTL = Duration.ofSeconds(10);
+    private static final Duration MAX_TTL = Duration.ofMinutes(5);
+
+    private final AtomicLong clock = new AtomicLong();
+    private ProbeCacheProperties properties;
+    private ProbeResponseCache cache;
+
+    @BeforeEach
+    void setUp() {
+        properties = new ProbeCacheProperties();
+        properties.setDefaultTtl(DEFAULT_TTL);
+        properties.setMaxTtl(MAX_TTL);
+        properties.setMaxSize(DataSize.ofKilobytes(4));
+        properties.setMaxEntrySize(DataSize.ofKilobytes(2));
+        cache = new ProbeResponseCache(properties, clock::get);
+    }
+
+    @Test
+    void freshnessFollowsUpstreamHeaders() {
+        assertEquals(DEFAULT_TTL, freshness(new HttpHeaders()));
+        assertEquals(Duration.ofSeconds(60), freshness(headers(HttpHeaders.CACHE_CONTROL, "public, max-age=60")));
+        assertEquals(Duration.ofSeconds(20), freshness(headers(HttpHeaders.CACHE_CONTROL, "max-age=60, s-maxage=20")));
+        assertEquals(MAX_TTL, freshness(headers(HttpHeaders.CACHE_CONTROL, "max-age=86400")));
+        assertEquals(Duration.ZERO, freshness(headers(HttpHeaders.CACHE_CONTROL, "no-store")));
+        assertEquals(Duration.ZERO, freshness(headers(HttpHeaders.CACHE_CONTROL, "private, max-age=60")));
+        assertEquals(Duration.ZERO, freshness(headers(HttpHeaders.CACHE_CONTROL, "no-cache")));
+
+        HttpHeaders aged = headers(HttpHeaders.CACHE_CONTROL, "max-age=60");
+        aged.set(HttpHeaders.AGE, "45");
+        assertEquals(Duration.ofSeconds(15), freshness(aged));
+
+        HttpHeaders expires = new HttpHeaders();
+        expires.setDate(1_700_000_000_000L);
+        expires.setExpires(1_700_000_030_000L);
+        assertEquals(Duration.ofSeconds(30), freshness(expires));
+        assertEquals(Duration.ZERO, freshness(headers(HttpHeaders.EXPIRES, "0")));
+        assertEquals(Duration.ZERO, freshness(headers(HttpHeaders.VARY, "*")));
+    }
+
+    @Test
+    void entriesExpireAfterTheirTtl() {
+        cache.put(ProbeType.URL, "http://a", response(0), headers(HttpHeaders.CACHE_CONTROL, "max-age=5"));
+        cache.put(ProbeType.URL, "http://b", response(0), new HttpHeaders());
+
+        clock.addAndGet(Duration.ofSeconds(6).toNanos());
+        assertNull(cache.get(ProbeType.URL, "http://a"));
+        assertNotNull(cache.get(ProbeType.URL, "http://b"));
+
+        clock.addAndGet(DEFAULT_TTL.toNanos());
+        assertNull(cache.get(ProbeType.URL, "http://b"));
+        assertEquals(0, cache.stats().entries());
+        assertEquals(0, cache.stats().sizeBytes());
+    }
+
+    @Test
+    void keyIncludesProbeType() {
+        cache.put(ProbeType.JSON, "http://a", response(0), new HttpHeaders());
+
+        assertNotNull(cache.get(ProbeType.JSON, "http://a"));
+        assertNull(cache.get(ProbeType.XML, "http://a"));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedBeyondMaxBytes() {
+        // Trois entrées de ~1,5 Ko dans 4 Ko : la troisième évince la moins récemment lue
+        cache.put(ProbeType.JSON2XML, "http://a", response(1500), new HttpHeaders());
+        cache.put(ProbeType.JSON2XML, "http://b", response(1500), new HttpHeaders());
+        cache.get(ProbeType.JSON2XML, "http://a");
+        cache.put(ProbeType.JSON2XML, "http://c", response(1500), new HttpHeaders());
+
+        assertNotNull(cache.get(ProbeType.JSON2XML, "http://a"));
+        assertNull(cache.get(ProbeType.JSON2XML, "http://b"));
+        assertNotNull(cache.get(ProbeType.JSON2XML, "http://c"));
+        assertEquals(1, cache.stats().evictions());
+        assertTrue(cache.stats().sizeBytes() <= DataSize.ofKilobytes(4).toBytes());
+    }
+
+    @Test
+    void oversizedEntriesAreNotCached() {
+        cache.put(ProbeType.JSON2XML, "http://big", response(3000), new HttpHeaders());
+
+        assertNull(cache.get(ProbeType.JSON2XML, "http://big"));
+        assertEquals(0, cache.stats().sizeBytes());
+    }
+
+    @Test
+    void disabledCacheIsBypassed() {
+        properties.setEnabled(false);
+        cache.put(ProbeType.URL, "http://a", response(0), new HttpHeaders());
+
+        assertNull(cache.get(ProbeType.URL, "http://a"));
+        assertEquals(CacheStatus.BYPASS, cache.missStatus());
+        assertEquals(0, cache.stats().misses());
+    }
+
+    private static Duration freshness(HttpHeaders headers) {
+        return ProbeResponseCache.freshness(headers, DEFAULT_TTL, MAX_TTL);
+    }
+
+    private static HttpHeaders headers(String name, String value) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(name, value);
+        return headers;
+    }
+
+    private static CachedResponse response(int bodySize) {
+        return new CachedResponse(200, "application/json", bodySize, bodySize > 0 ? new byte[bodySize] : null);
+    }
+}
@@ -0,0 +1,118 @@
+package fr.apithinking.apigreenscore.demo;
+
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+class RateLimitFilterTest {
+
+    private final AtomicLong clock = new AtomicLong(42);
+    private final FilterChain chain = mock(FilterChain.class);
+
+    @Test
+    void perIpBucketAllowsBurstThenRefills() {
+        // Limites par défaut : 30 en rafale puis 10/s par IP, 60 puis 20/s par hôte
+        RateLimitFilter filter = filter(new RateLimitProperties());
+
+        for (int i = 0; i < 30; i++) {
+            assertEquals(200, call(filter, "/api/url2test", "10.0.0.1", "http://a.example/" + (i % 2)).getStatus());
+        }
+        MockHttpServletResponse rejected = call(filter, "/api/url2test", "10.0.0.1", "http://b.example/");
+        assertEquals(429, rejected.getStatus());
+        assertEquals("1", rejected.getHeader(HttpHeaders.RETRY_AFTER));
+        // Une autre IP a son propre seau
+        assertEquals(200, call(filter, "/api/url2test", "10.0.0.2", "http://b.example/").getStatus());
+
+        advance(Duration.ofMillis(100));
+        assertEquals(200, call(filter, "/api/url2test", "10.0.0.1", "http://b.example/").getStatus());
+        assertEquals(429, call(filter, "/api/url2test", "10.0.0.1", "http://b.example/").getStatus());
+        assertEquals(2, filter.getRejectedCount());
+    }
+
+    @Test
+    void perHostBucketIsSharedByAllCallersAndEndpointsHaveTheirOwnLimits() {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setEndpoints(Map.of("/api/json2xml", new RateLimitProperties.Limits(
+                new RateLimitProperties.Bucket(1, 0.5), new RateLimitProperties.Bucket(2, 1))));
+        RateLimitFilter filter = filter(properties);
+
+        assertEquals(200, call(filter, "/api/json2xml", "10.0.0.1", "http://A.example/x").getStatus());
+        MockHttpServletResponse sameIp = call(filter, "/api/json2xml", "10.0.0.1", "http://b.example/");
+        assertEquals(429, sameIp.getStatus());
+        assertEquals("2", sameIp.getHeader(HttpHeaders.RETRY_AFTER));
+
+        assertEquals(200, call(filter, "/api/json2xml", "10.0.0.2", "http://a.example/y").getStatus());
+        assertEquals(429, call(filter, "/api/json2xml", "10.0.0.3", "http://a.example/z").getStatus());
+        assertEquals(200, call(filter, "/api/json2xml", "10.0.0.4", "http://b.example/").getStatus());
+        // Limites par défaut pour les autres endpoints
+        assertEquals(200, call(filter, "/api/url2test", "10.0.0.1", "http://a.example/").getStatus());
+    }
+
+    @Test
+    void requestRefusedForItsHostGivesItsIpTokenBack() {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setDefaults(new RateLimitProperties.Limits(
+                new RateLimitProperties.Bucket(2, 0.1), new RateLimitProperties.Bucket(1, 0.1)));
+        RateLimitFilter filter = filter(properties);
+
+        assertEquals(200, call(filter, "/api/url2test", "10.0.0.1", "http://a.example/").getStatus());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(429, call(filter, "/api/url2test", "10.0.0.1", "http://a.example/").getStatus());
+        }
+        // Refus dus à l'hôte : le seau de l'IP garde son second jeton
+        assertEquals(200, call(filter, "/api/url2test", "10.0.0.1", "http://b.example/").getStatus());
+        assertEquals(429, call(filter, "/api/url2test", "10.0.0.1", "http://c.example/").getStatus());
+    }
+
+    @Test
+    void idleBucketsAreEvictedAndNewCallersShedWhenFull() {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setDefaults(new RateLimitProperties.Limits(new RateLimitProperties.Bucket(5, 1), null));
+        properties.setMaxBuckets(2);
+        properties.setIdleTimeout(Duration.ofSeconds(10));
+        RateLimitFilter filter = filter(properties);
+
+        assertEquals(200, call(filter, "/api/url2test", "10.0.0.1", null).getStatus());
+        assertEquals(200, call(filter, "/api/url2test", "10.0.0.2", null).getStatus());
+        assertEquals(429, call(filter, "/api/url2test", "10.0.0.3", null).getStatus());
+        assertEquals(2, filter.getBucketCount());
+
+        // Seaux pleins depuis plus de idle-timeout : oubliés au balayage suivant
+        advance(Duration.ofSeconds(12));
+        assertEquals(200, call(filter, "/api/url2test", "10.0.0.3", null).getStatus());
+        assertEquals(1, filter.getBucketCount());
+    }
+
+    private RateLimitFilter filter(RateLimitProperties properties) {
+        return new RateLimitFilter(properties, clock::get);
+    }
+
+    private void advance(Duration duration) {
+        clock.addAndGet(TimeUnit.NANOSECONDS.convert(duration));
+    }
+
+    private MockHttpServletResponse call(RateLimitFilter filter, String path, String ip, String url) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        request.setRemoteAddr(ip);
+        if (url != null) {
+            request.setParameter("url", url);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        try {
+            filter.doFilter(request, response, chain);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        return response;
+    }
+}
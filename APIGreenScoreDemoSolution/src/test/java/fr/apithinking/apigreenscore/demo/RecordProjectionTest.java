@@ -0,0 +1,66 @@
+package fr.apithinking.apigreenscore.demo;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class RecordProjectionTest {
+
+    record Location(Double lat, Double lng) {
+    }
+
+    record Site(String name, Location location, int floors) {
+    }
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final List<Address> ADDRESSES = List.of(
+            new Address("10 avenue des Champs-Elysées", "Paris"),
+            new Address(null, "Nantes"));
+
+    private static <T extends Record> String write(List<T> items, Class<T> type, String fields) throws Exception {
+        return MAPPER.writeValueAsString(new ProjectedList<>(items, RecordProjection.parse(type, fields)));
+    }
+
+    /**
+     * Previous implementation of the {@code fields} parameter.
+     */
+    private static String legacy(String fields) throws Exception {
+        return MAPPER.writeValueAsString(ADDRESSES.stream().map(address -> {
+            if (StringUtils.isEmpty(fields)) {
+                return address;
+            }
+            String streetOut = null;
+            String cityOut = null;
+            if (StringUtils.containsIgnoreCase(fields, "street")) {
+                streetOut = address.street();
+            }
+            if (StringUtils.containsIgnoreCase(fields, "city")) {
+                cityOut = address.city();
+            }
+            return new Address(streetOut, cityOut);
+        }).toList());
+    }
+
+    @Test
+    public void testSameOutputAsPreviousImplementation() throws Exception {
+        for (String fields : new String[]{null, "", "street", "city", "street,city", "CITY", " city , street ", "zip"}) {
+            assertEquals(legacy(fields), write(ADDRESSES, Address.class, fields), "fields=" + fields);
+        }
+    }
+
+    @Test
+    public void testNestedFields() throws Exception {
+        List<Site> sites = List.of(new Site("Siège", new Location(48.87, 2.30), 7));
+
+        assertEquals("[{\"name\":\"Siège\",\"location\":{\"lat\":48.87,\"lng\":2.3},\"floors\":7}]",
+                write(sites, Site.class, null));
+        assertEquals("[{\"location\":{\"lat\":48.87}}]", write(sites, Site.class, "location.lat"));
+        assertEquals("[{\"location\":{\"lat\":48.87,\"lng\":2.3}}]", write(sites, Site.class, "location.lat,location"));
+        assertEquals("[{\"location\":{},\"floors\":7}]", write(sites, Site.class, "floors,location.unknown"));
+    }
+}
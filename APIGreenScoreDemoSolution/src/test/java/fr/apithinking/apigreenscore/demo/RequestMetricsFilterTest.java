@@ -0,0 +1,133 @@
+package fr.apithinking.apigreenscore.demo;
+
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentCaptor.forClass;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class RequestMetricsFilterTest {
+
+    private final LogService logService = mock(LogService.class);
+    private final RequestMetricsFilter filter = new RequestMetricsFilter(logService);
+
+    @Test
+    void logsBytesAndTimesOfTheExchange() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/url2test/batch");
+        request.setRemoteAddr("10.0.0.1");
+        request.setContent("[\"http://example.com\"]".getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, (req, res) -> {
+            req.getInputStream().readAllBytes();
+            OutputStream out = res.getOutputStream();
+            out.write("{\"statusCode\":200}\n".getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            sleep(100);
+            out.write("{\"statusCode\":500}\n".getBytes(StandardCharsets.UTF_8));
+        });
+
+        ArgumentCaptor<Long> ttfb = forClass(Long.class);
+        ArgumentCaptor<Long> total = forClass(Long.class);
+        verify(logService).logRequest(eq("/api/url2test/batch"), eq("10.0.0.1"), eq(200), eq(22L), eq(38L),
+                ttfb.capture(), total.capture());
+        // Première ligne partie avant l'attente, dernière après
+        assertTrue(ttfb.getValue() < total.getValue());
+        assertTrue(total.getValue() - ttfb.getValue() >= TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    @Test
+    void emptyResponseHasFirstByteTimeEqualToTotal() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/addresses/address"), response,
+                (req, res) -> response.setStatus(304));
+
+        ArgumentCaptor<Long> ttfb = forClass(Long.class);
+        ArgumentCaptor<Long> total = forClass(Long.class);
+        verify(logService).logRequest(eq("/addresses/address"), anyString(), eq(304), eq(0L), eq(0L),
+                ttfb.capture(), total.capture());
+        assertEquals(total.getValue(), ttfb.getValue());
+    }
+
+    @Test
+    void asyncResponseIsLoggedWhenTheAsyncDispatchEnds() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/export");
+        request.setAsyncSupported(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        AtomicReference<ServletRequest> asyncRequest = new AtomicReference<>();
+        AtomicReference<ServletResponse> asyncResponse = new AtomicReference<>();
+
+        filter.doFilter(request, response, (req, res) -> {
+            asyncRequest.set(req);
+            asyncResponse.set(res);
+            req.startAsync(req, res);
+        });
+        verify(logService, never()).logRequest(anyString(), anyString(), anyInt(), anyLong(), anyLong(), anyLong(), anyLong());
+
+        // Corps écrit hors du thread de la requête, puis dispatch asynchrone de fin
+        asyncResponse.get().getOutputStream().write(new byte[1000]);
+        request.setAsyncStarted(false);
+        request.setDispatcherType(DispatcherType.ASYNC);
+        filter.doFilter(asyncRequest.get(), asyncResponse.get(), (req, res) -> {
+        });
+
+        verify(logService).logRequest(eq("/api/export"), anyString(), eq(200), eq(0L), eq(1000L), anyLong(), anyLong());
+    }
+
+    @Test
+    void controllerEntryIsCompletedInsteadOfASecondRow() throws Exception {
+        RequestMetricsFilter probeFilter = new RequestMetricsFilter(logService, List.of("/api/url2test"));
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/url2test");
+        LogEntry entry = LogService.newEntry("http://example.com", "127.0.0.1", 12, 345, 200, CacheStatus.MISS, false);
+
+        probeFilter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+            assertTrue(RequestMetricsFilter.attach(req, entry));
+            res.getOutputStream().write(new byte[10]);
+        });
+
+        verify(logService).logMeasured(same(entry), eq(0L), anyLong(), anyLong());
+        verify(logService, never()).logRequest(anyString(), anyString(), anyInt(), anyLong(), anyLong(), anyLong(), anyLong());
+    }
+
+    @Test
+    void probeWithoutControllerEntryIsNotLogged() throws Exception {
+        RequestMetricsFilter probeFilter = new RequestMetricsFilter(logService, List.of("/api/url2test"));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        probeFilter.doFilter(new MockHttpServletRequest("GET", "/api/url2test"), response,
+                (req, res) -> response.setStatus(400));
+
+        verify(logService, never()).logRequest(anyString(), anyString(), anyInt(), anyLong(), anyLong(), anyLong(), anyLong());
+        verify(logService, never()).logMeasured(any(), anyLong(), anyLong(), anyLong());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
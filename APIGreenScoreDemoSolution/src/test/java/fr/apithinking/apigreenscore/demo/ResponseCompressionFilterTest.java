@@ -0,0 +1,134 @@
+package fr.apithinking.apigreenscore.demo;
+
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResponseCompressionFilterTest {
+
+    private static final String LARGE_JSON = "[" + "{\"street\":\"rue de la Paix\",\"city\":\"Paris\"},".repeat(100) + "{}]";
+
+    private final ResponseCompressionFilter filter = new ResponseCompressionFilter(properties());
+
+    private static ResponseCompressionProperties properties() {
+        ResponseCompressionProperties properties = new ResponseCompressionProperties();
+        properties.setMinResponseSize(DataSize.ofBytes(256));
+        return properties;
+    }
+
+    private static FilterChain writing(String contentType, String body) {
+        return (request, response) -> {
+            response.setContentType(contentType);
+            response.getOutputStream().write(body.getBytes(StandardCharsets.UTF_8));
+        };
+    }
+
+    private static String gunzip(byte[] body) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    void largeBodyIsGzipped() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/addresses/address");
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate, br");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, writing("application/json", LARGE_JSON));
+
+        assertEquals("gzip", response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(HttpHeaders.ACCEPT_ENCODING, response.getHeader(HttpHeaders.VARY));
+        assertEquals(LARGE_JSON, gunzip(response.getContentAsByteArray()));
+        assertTrue(response.getContentAsByteArray().length < LARGE_JSON.length());
+    }
+
+    @Test
+    void smallBodyKeepsIdentityEncodingAndContentLength() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/hello");
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, (req, res) -> {
+            res.setContentLength(15);
+            writing("application/json", "{\"status\":\"ok\"}").doFilter(req, res);
+        });
+
+        assertNull(response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(15, response.getContentLength());
+        assertEquals("{\"status\":\"ok\"}", response.getContentAsString());
+    }
+
+    @Test
+    void bodyIsNotGzippedWithoutAcceptEncodingOrForBinaryTypes() throws Exception {
+        MockHttpServletResponse plain = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/logs/stats"), plain,
+                writing("application/json", LARGE_JSON));
+        assertNull(plain.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(LARGE_JSON, plain.getContentAsString());
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/logs/stats");
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip");
+        MockHttpServletResponse cbor = new MockHttpServletResponse();
+        filter.doFilter(request, cbor, writing("application/cbor", LARGE_JSON));
+        assertNull(cbor.getHeader(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    @Test
+    void gzippedResponseWeakensStrongETag() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/addresses/address");
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, (req, res) -> {
+            ((jakarta.servlet.http.HttpServletResponse) res).setHeader(HttpHeaders.ETAG, "\"v1-abc\"");
+            writing("application/json", LARGE_JSON).doFilter(req, res);
+        });
+
+        assertEquals("W/\"v1-abc\"", response.getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    void ndjsonLinesLeaveOnFlushEvenBelowThreshold() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/url2test/batch");
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, (req, res) -> {
+            res.setContentType("application/x-ndjson");
+            OutputStream out = res.getOutputStream();
+            out.write("{\"statusCode\":200}\n".getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            // Première ligne déjà envoyée, compressée, avant la fin de la réponse
+            assertEquals("gzip", response.getHeader(HttpHeaders.CONTENT_ENCODING));
+            assertTrue(response.getContentAsByteArray().length > 0);
+            out.write("{\"statusCode\":500}\n".getBytes(StandardCharsets.UTF_8));
+        });
+
+        assertEquals("{\"statusCode\":200}\n{\"statusCode\":500}\n", gunzip(response.getContentAsByteArray()));
+    }
+
+    @Test
+    void acceptEncodingHonoursQualityZero() {
+        assertTrue(ResponseCompressionFilter.acceptsGzip("gzip"));
+        assertTrue(ResponseCompressionFilter.acceptsGzip("br;q=1.0, gzip;q=0.8"));
+        assertTrue(ResponseCompressionFilter.acceptsGzip("*"));
+        assertFalse(ResponseCompressionFilter.acceptsGzip("gzip;q=0"));
+        assertFalse(ResponseCompressionFilter.acceptsGzip("identity"));
+        assertFalse(ResponseCompressionFilter.acceptsGzip(null));
+    }
+}
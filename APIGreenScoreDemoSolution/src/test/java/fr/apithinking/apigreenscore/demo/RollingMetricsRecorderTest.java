@@ -0,0 +1,183 @@
+package fr.apithinking.apigreenscore.demo;
+
+import fr.apithinking.apigreenscore.demo.RollingMetricsRecorder.Window;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RollingMetricsRecorderTest {
+
+    private static final long START = 1_700_000_000_000L;
+
+    private final AtomicLong clock = new AtomicLong(START);
+
+    @Test
+    void concurrentWritersAreAllCounted() throws Exception {
+        RollingMetricsRecorder recorder = recorder(100);
+        int threads = 16;
+        int callsPerThread = 50_000;
+        String[] urls = {"http://a", "http://b", "http://c", "http://d"};
+        AtomicBoolean writing = new AtomicBoolean(true);
+        ExecutorService pool = Executors.newFixedThreadPool(threads + 1);
+        CountDownLatch go = new CountDownLatch(1);
+
+        // Un lecteur fait des instantanés pendant toute l'écriture
+        Future<Integer> reader = pool.submit(() -> {
+            int snapshots = 0;
+            while (writing.get()) {
+                for (UrlMetrics metrics : recorder.snapshot()) {
+                    assertTrue(metrics.windows().get("1m").count() <= metrics.totalCount());
+                }
+                snapshots++;
+            }
+            return snapshots;
+        });
+        List<Future<?>> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            writers.add(pool.submit(() -> {
+                go.await();
+                for (int i = 0; i < callsPerThread; i++) {
+                    recorder.record(urls[(thread + i) % urls.length], i % 100, 10, i % 10 == 0 ? 500 : 200);
+                }
+                return null;
+            }));
+        }
+        go.countDown();
+        for (Future<?> writer : writers) {
+            writer.get();
+        }
+        writing.set(false);
+        assertTrue(reader.get() > 0);
+        pool.shutdown();
+
+        long perUrl = (long) threads * callsPerThread / urls.length;
+        for (String url : urls) {
+            UrlMetrics metrics = recorder.snapshot(url);
+            assertEquals(perUrl, metrics.totalCount());
+            assertEquals(perUrl / 10, metrics.totalErrors());
+            assertEquals(perUrl * 10, metrics.totalPayloadBytes());
+            for (WindowStats window : metrics.windows().values()) {
+                assertEquals(perUrl, window.count());
+                assertEquals(perUrl / 10, window.errors());
+                assertEquals(99, window.max());
+            }
+        }
+    }
+
+    @Test
+    void windowsRollOver() {
+        RollingMetricsRecorder recorder = recorder(100);
+        recorder.record("http://a", 10, 0, 200);
+        clock.addAndGet(120_000);
+        recorder.record("http://a", 20, 0, 200);
+
+        assertEquals(1, recorder.window("http://a", Window.ONE_MINUTE).count());
+        assertEquals(2, recorder.window("http://a", Window.FIVE_MINUTES).count());
+
+        clock.addAndGet(14 * 60_000);
+        assertEquals(0, recorder.window("http://a", Window.ONE_MINUTE).count());
+        assertEquals(1, recorder.window("http://a", Window.FIFTEEN_MINUTES).count());
+        assertEquals(20, recorder.window("http://a", Window.FIFTEEN_MINUTES).max());
+
+        // La tranche réutilisée par l'anneau repart de zéro
+        clock.addAndGet(60_000);
+        recorder.record("http://a", 30, 0, 200);
+        assertEquals(1, recorder.window("http://a", Window.FIFTEEN_MINUTES).count());
+        assertEquals(3, recorder.snapshot("http://a").totalCount());
+    }
+
+    @Test
+    void percentilesStayWithinHistogramPrecision() {
+        RollingMetricsRecorder recorder = recorder(100);
+        Random random = new Random(7);
+        long[] values = new long[20_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (long) Math.abs(random.nextGaussian() * 200) + 1;
+            recorder.record("http://a", values[i], 0, 200);
+        }
+        Arrays.sort(values);
+
+        WindowStats stats = recorder.window("http://a", Window.ONE_MINUTE);
+        assertClose(values[(int) Math.ceil(0.50 * values.length) - 1], stats.p50());
+        assertClose(values[(int) Math.ceil(0.95 * values.length) - 1], stats.p95());
+        assertClose(values[(int) Math.ceil(0.99 * values.length) - 1], stats.p99());
+        assertEquals(values[values.length - 1], stats.max());
+    }
+
+    @Test
+    void keysBeyondMaxAreGrouped() {
+        RollingMetricsRecorder recorder = recorder(2);
+        recorder.record("http://a", 1, 0, 200);
+        recorder.record("http://b", 1, 0, 200);
+        recorder.record("http://c", 1, 0, 200);
+        recorder.record("http://d", 1, 0, 200);
+
+        assertEquals(3, recorder.keys().size());
+        assertEquals(2, recorder.totalCount(RollingMetricsRecorder.OTHER_KEY));
+    }
+
+    @Test
+    void metersFollowTheRecorder() {
+        RollingMetricsRecorder recorder = recorder(100);
+        recorder.record("http://a", 40, 100, 200);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        new RollingMetricsConfiguration().rollingMetricsMeterBinder(recorder).bindTo(registry);
+        recorder.record("http://a", 40, 100, 200);
+        recorder.record("http://b", 5, 0, 200);
+
+        assertEquals(2, registry.get("apigreenscore.calls").tag("url", "http://a").functionCounter().count());
+        assertEquals(200, registry.get("apigreenscore.payload").tag("url", "http://a").functionCounter().count());
+        assertEquals(5, registry.get("apigreenscore.response.time")
+                .tags("url", "http://b", "window", "5m", "quantile", "0.99").gauge().value());
+        assertNotNull(registry.find("apigreenscore.throughput").tags("url", "http://b", "window", "15m").gauge());
+    }
+
+    @Test
+    void idleUrlsAreEvictedWithTheirMeters() {
+        RollingMetricsRecorder recorder = recorder(2);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        new RollingMetricsConfiguration().rollingMetricsMeterBinder(recorder).bindTo(registry);
+        recorder.record("http://a", 1, 0, 200);
+        recorder.record("http://b", 1, 0, 200);
+        clock.addAndGet(Duration.ofMinutes(10).toMillis());
+        recorder.record("http://b", 1, 0, 200);
+        clock.addAndGet(Duration.ofMinutes(6).toMillis());
+
+        // a sans appel depuis 16 minutes : sa clé revient à une nouvelle URL plutôt qu'à "other"
+        recorder.record("http://c", 1, 0, 200);
+
+        assertEquals(List.of("http://b", "http://c"), recorder.keys().stream().sorted().toList());
+        assertEquals(0, recorder.totalCount("http://a"));
+        assertTrue(registry.find("apigreenscore.calls").tag("url", "http://a").meters().isEmpty());
+        assertTrue(registry.find("apigreenscore.response.time").tag("url", "http://a").meters().isEmpty());
+        assertNotNull(registry.find("apigreenscore.calls").tag("url", "http://c").functionCounter());
+        assertEquals(2, registry.get("apigreenscore.calls").tag("url", "http://b").functionCounter().count());
+    }
+
+    private RollingMetricsRecorder recorder(int maxKeys) {
+        RollingMetricsProperties properties = new RollingMetricsProperties();
+        properties.setMaxKeys(maxKeys);
+        return new RollingMetricsRecorder(properties, clock::get);
+    }
+
+    private static void assertClose(long expected, long actual) {
+        assertTrue(Math.abs(expected - actual) <= Math.max(1, expected * 0.07),
+                "attendu ~" + expected + ", obtenu " + actual);
+    }
+}
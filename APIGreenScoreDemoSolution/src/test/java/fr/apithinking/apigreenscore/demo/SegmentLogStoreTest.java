@@ -0,0 +1,199 @@
+package fr.apithinking.apigreenscore.demo;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SegmentLogStoreTest {
+
+    private static final long HOUR = 3_600_000L;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void scanReturnsTheEntriesOfTheWindow() throws IOException {
+        try (SegmentLogStore store = new SegmentLogStore(directory, 1 << 20, Duration.ofHours(1))) {
+            store.append(List.of(entry("http://a.example", 1_000, 12, 300, 200),
+                    entry(null, 2_000, 5, 0, 404),
+                    entry("http://a.example", 3_000, 40, 10, 500)));
+
+            List<String> seen = scan(store, 1_000, 3_000);
+
+            assertEquals(List.of("1000 http://a.example 200 300 12", "2000 null 404 0 5"), seen);
+            assertEquals(1_000L, store.firstTimestamp(0));
+            assertEquals(3_000L, store.firstTimestamp(2_001));
+            assertNull(store.firstTimestamp(3_001));
+        }
+    }
+
+    @Test
+    void scanEntriesRestoresEveryFieldAndFiltersOnUrl() throws IOException {
+        try (SegmentLogStore store = new SegmentLogStore(directory, 1 << 20, Duration.ofHours(1))) {
+            LogEntry measured = entry("http://a.example", 1_000, 12, 300, 201);
+            measured.setCacheStatus(CacheStatus.MISS);
+            measured.setCoalesced(true);
+            measured.setRequestSize(42);
+            measured.setTimeToFirstByteNanos(1_500L);
+            measured.setTotalTimeNanos(12_000_000L);
+            store.append(List.of(measured, entry("http://b.example", 2_000, 7, 20, 200)));
+
+            List<LogEntry> entries = new ArrayList<>();
+            store.scanEntries(0, Long.MAX_VALUE, "http://a.example", entries::add);
+
+            assertEquals(List.of(measured), entries);
+            store.scanEntries(0, Long.MAX_VALUE, "http://inconnue.example", entries::add);
+            assertEquals(1, entries.size());
+        }
+    }
+
+    @Test
+    void entriesAndDictionarySurviveARestartAndATornWrite() throws IOException {
+        try (SegmentLogStore store = new SegmentLogStore(directory, 1 << 20, Duration.ofHours(1))) {
+            store.append(List.of(entry("http://a.example", 1_000, 12, 300, 200)));
+            store.append(entry("http://b.example", 2_000, 7, 20, 200));
+        }
+        Path dictionary = dictionaries().get(0);
+        long dictionarySize = Files.size(dictionary);
+        // Arrêt brutal au milieu d'une écriture
+        Files.write(segments().get(0), new byte[SegmentLogStore.RECORD_SIZE / 2], StandardOpenOption.APPEND);
+        Files.write(dictionary, new byte[]{0, 0, 0, 42, 'x'}, StandardOpenOption.APPEND);
+
+        try (SegmentLogStore store = new SegmentLogStore(directory, 1 << 20, Duration.ofHours(1))) {
+            assertEquals(List.of("1000 http://a.example 200 300 12", "2000 http://b.example 200 20 7"),
+                    scan(store, 0, Long.MAX_VALUE));
+            store.append(entry("http://a.example", 3_000, 1, 1, 200));
+            assertEquals("3000 http://a.example 200 1 1", scan(store, 3_000, 3_001).get(0));
+        }
+        // Chaîne incomplète coupée
+        assertEquals(dictionarySize, Files.size(dictionary));
+    }
+
+    @Test
+    void recordsUsingStringsLostFromTheDictionaryAreCutOff() throws IOException {
+        try (SegmentLogStore store = new SegmentLogStore(directory, 1 << 20, Duration.ofHours(1))) {
+            store.append(List.of(entry("http://a.example", 1_000, 12, 300, 200),
+                    entry("http://b.example", 2_000, 7, 20, 200),
+                    entry("http://a.example", 3_000, 1, 1, 200)));
+        }
+        // Arrêt brutal du système : les enregistrements ont atteint le disque, pas la dernière chaîne du dictionnaire
+        Path dictionary = dictionaries().get(0);
+        try (FileChannel channel = FileChannel.open(dictionary, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - Integer.BYTES - "http://b.example".length());
+        }
+
+        try (SegmentLogStore store = new SegmentLogStore(directory, 1 << 20, Duration.ofHours(1))) {
+            assertEquals(List.of("1000 http://a.example 200 300 12"), scan(store, 0, Long.MAX_VALUE));
+            List<LogEntry> entries = new ArrayList<>();
+            store.scanEntries(0, Long.MAX_VALUE, null, entries::add);
+            assertEquals(1, entries.size());
+        }
+        assertEquals(SegmentLogStore.RECORD_SIZE, Files.size(segments().get(0)));
+    }
+
+    @Test
+    void segmentsRollOverAndOldOnesAreDeletedWhole() throws IOException {
+        try (SegmentLogStore store = new SegmentLogStore(directory, 3L * SegmentLogStore.RECORD_SIZE,
+                Duration.ofHours(1))) {
+            // Un segment par heure, et un de plus au-delà de 3 enregistrements
+            List<LogEntry> entries = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                entries.add(entry("http://a.example", i * 1_000L, i, 1, 200));
+            }
+            entries.add(entry("http://a.example", 2 * HOUR, 1, 1, 200));
+            entries.add(entry("http://a.example", 3 * HOUR, 1, 1, 200));
+            store.append(entries);
+            assertEquals(4, segments().size());
+
+            assertEquals(4, store.deleteBefore(2 * HOUR));
+
+            assertEquals(2, segments().size());
+            assertEquals(2, dictionaries().size(), "dictionnaires supprimés avec leur segment");
+            assertEquals(2, scan(store, 0, Long.MAX_VALUE).size());
+            // Le segment en cours d'écriture reste
+            assertEquals(1, store.deleteBefore(Long.MAX_VALUE));
+            assertEquals(List.of("10800000 http://a.example 200 1 1"), scan(store, 0, Long.MAX_VALUE));
+        }
+    }
+
+    @Test
+    void slowScanBlocksNeitherRetentionNorAppends() throws Exception {
+        try (SegmentLogStore store = new SegmentLogStore(directory, 1 << 20, Duration.ofHours(1))) {
+            store.append(List.of(entry("http://a.example", 1_000, 1, 1, 200),
+                    entry("http://a.example", 2_000, 1, 1, 200),
+                    entry("http://a.example", 2 * HOUR, 1, 1, 200)));
+            CountDownLatch reading = new CountDownLatch(1);
+            CountDownLatch resume = new CountDownLatch(1);
+            List<LogEntry> exported = new ArrayList<>();
+            // Export lent : le consommateur s'arrête sur la première entrée
+            CompletableFuture<Void> export = CompletableFuture.runAsync(() ->
+                    store.scanEntries(0, HOUR, null, entry -> {
+                        reading.countDown();
+                        try {
+                            resume.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        exported.add(entry);
+                    }));
+            assertTrue(reading.await(5, TimeUnit.SECONDS));
+
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+                assertEquals(2, store.deleteBefore(HOUR));
+                store.append(entry("http://a.example", 2 * HOUR + 1, 1, 1, 200));
+            });
+            assertEquals(2, scan(store, 0, Long.MAX_VALUE).size());
+            // Fichier gardé tant que l'export le lit
+            assertEquals(2, segments().size());
+
+            resume.countDown();
+            export.get(5, TimeUnit.SECONDS);
+            assertEquals(2, exported.size());
+            assertEquals(1, segments().size());
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        return files(".log");
+    }
+
+    private List<Path> dictionaries() throws IOException {
+        return files(".dict");
+    }
+
+    private List<Path> files(String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(Path::toString).filter(name -> name.endsWith(suffix)).sorted().map(Path::of).toList();
+        }
+    }
+
+    private static List<String> scan(LogStore store, long from, long to) {
+        List<String> seen = new ArrayList<>();
+        store.scan(from, to, (timestamp, url, statusCode, payloadSize, responseTime) ->
+                seen.add(timestamp + " " + url + " " + statusCode + " " + payloadSize + " " + responseTime));
+        return seen;
+    }
+
+    private static LogEntry entry(String url, long timestamp, long responseTime, int payloadSize, int statusCode) {
+        LogEntry entry = LogService.newEntry(url, "127.0.0.1", responseTime, payloadSize, statusCode, null, false);
+        entry.setTimestamp(timestamp);
+        return entry;
+    }
+}
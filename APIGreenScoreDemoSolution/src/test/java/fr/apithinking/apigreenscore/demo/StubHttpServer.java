@@ -0,0 +1,98 @@
+package fr.apithinking.apigreenscore.demo;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Minimal local HTTP upstream for tests and benchmarks: every path answers
+ * the configured body after an optional artificial delay, and hits are counted.
+ */
+class StubHttpServer implements AutoCloseable {
+
+    static {
+        // Sans TCP_NODELAY, en-têtes et corps partent en deux segments et le délai d'ACK fausse les mesures
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final AtomicInteger hits = new AtomicInteger();
+    private volatile Duration delay = Duration.ZERO;
+    private volatile String contentType = "application/json";
+    private volatile byte[] body = "{\"status\":\"ok\"}".getBytes(StandardCharsets.UTF_8);
+    private volatile int status = 200;
+    private volatile Map<String, String> headers = Map.of();
+
+    StubHttpServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.createContext("/", exchange -> {
+            hits.incrementAndGet();
+            try (exchange) {
+                exchange.getRequestBody().readAllBytes();
+                if (!delay.isZero()) {
+                    Thread.sleep(delay.toMillis());
+                }
+                byte[] payload = body;
+                exchange.getResponseHeaders().set("Content-Type", contentType);
+                headers.forEach(exchange.getResponseHeaders()::set);
+                exchange.sendResponseHeaders(status, payload.length == 0 ? -1 : payload.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(payload);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        server.start();
+    }
+
+    String url(String path) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+    }
+
+    StubHttpServer delay(Duration delay) {
+        this.delay = delay;
+        return this;
+    }
+
+    StubHttpServer respond(int status, String contentType, String body) {
+        this.status = status;
+        this.contentType = contentType;
+        this.body = body.getBytes(StandardCharsets.UTF_8);
+        this.headers = Map.of();
+        return this;
+    }
+
+    /**
+     * Extra headers of the following responses, until the next {@link #respond}.
+     */
+    StubHttpServer headers(Map<String, String> headers) {
+        this.headers = Map.copyOf(headers);
+        return this;
+    }
+
+    int hits() {
+        return hits.get();
+    }
+
+    void resetHits() {
+        hits.set(0);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
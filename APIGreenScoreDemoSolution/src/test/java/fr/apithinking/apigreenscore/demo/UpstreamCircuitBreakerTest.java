@@ -0,0 +1,196 @@
+package fr.apithinking.apigreenscore.demo;
+
+import fr.apithinking.apigreenscore.demo.UpstreamCircuitBreaker.CircuitOpenException;
+import fr.apithinking.apigreenscore.demo.UpstreamCircuitBreaker.DownstreamWriteException;
+import fr.apithinking.apigreenscore.demo.UpstreamCircuitBreaker.State;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * State machine and adaptive timeout of {@link UpstreamCircuitBreaker}, on a fake clock.
+ */
+class UpstreamCircuitBreakerTest {
+
+    private static final String URL = "http://down.example/status";
+
+    private CircuitBreakerProperties properties;
+    private long nanos;
+    private UpstreamCircuitBreaker breaker;
+
+    @BeforeEach
+    void setUp() {
+        properties = new CircuitBreakerProperties();
+        properties.setFailureThreshold(3);
+        properties.setOpenDuration(Duration.ofSeconds(10));
+        breaker = new UpstreamCircuitBreaker(properties, () -> nanos);
+    }
+
+    private void fail() {
+        assertThrows(ResourceAccessException.class, () -> breaker.call(URL, () -> {
+            throw new ResourceAccessException("Connection refused");
+        }));
+    }
+
+    private void succeed(long latencyMillis) {
+        breaker.call(URL, () -> nanos += TimeUnit.MILLISECONDS.toNanos(latencyMillis));
+    }
+
+    /**
+     * Call to a host answering in {@code latencyMillis}, timed out like the HTTP client would.
+     */
+    private long callHost(long latencyMillis) {
+        return breaker.call(URL, () -> {
+            long timeout = OutboundRequestTimeout.current().toMillis();
+            if (latencyMillis > timeout) {
+                nanos += TimeUnit.MILLISECONDS.toNanos(timeout);
+                throw new ResourceAccessException("Read timed out", new SocketTimeoutException("Read timed out"));
+            }
+            nanos += TimeUnit.MILLISECONDS.toNanos(latencyMillis);
+            return timeout;
+        });
+    }
+
+    private CircuitSnapshot circuit() {
+        return breaker.stats().hosts().get(0);
+    }
+
+    @Test
+    void opensAfterConsecutiveFailuresThenProbesHalfOpen() {
+        fail();
+        fail();
+        succeed(10);
+        fail();
+        fail();
+        assertEquals(State.CLOSED, circuit().state(), "un succès remet le compte à zéro");
+        fail();
+        assertEquals(State.OPEN, circuit().state());
+
+        CircuitOpenException open = assertThrows(CircuitOpenException.class, () -> succeed(10));
+        assertEquals(10_000, open.getRetryAfterMillis());
+
+        nanos += TimeUnit.SECONDS.toNanos(10);
+        assertEquals(State.HALF_OPEN, circuit().state());
+        // Un seul appel d'essai à la fois : les autres restent refusés pendant qu'il s'exécute
+        breaker.call(URL, () -> assertThrows(CircuitOpenException.class, () -> succeed(10)));
+        assertEquals(State.CLOSED, circuit().state());
+        assertEquals(2, breaker.getShortCircuitedCount());
+        assertEquals(2, circuit().shortCircuited());
+    }
+
+    @Test
+    void failedTrialReopensTheCircuit() {
+        fail();
+        fail();
+        fail();
+        nanos += TimeUnit.SECONDS.toNanos(10);
+
+        fail();
+        assertEquals(State.OPEN, circuit().state());
+        assertThrows(CircuitOpenException.class, () -> succeed(10));
+    }
+
+    @Test
+    void clientErrorsDoNotCountAsFailures() {
+        for (int i = 0; i < 5; i++) {
+            assertThrows(HttpClientErrorException.class, () -> breaker.call(URL, () -> {
+                throw new HttpClientErrorException(HttpStatus.NOT_FOUND);
+            }));
+        }
+        assertEquals(State.CLOSED, circuit().state());
+        assertEquals(0, circuit().consecutiveFailures());
+    }
+
+    @Test
+    void timeoutGrowsWhenTheHostGetsSlower() {
+        for (int i = 0; i < 30; i++) {
+            callHost(50);
+        }
+        assertEquals(properties.getMinTimeout().toMillis(), circuit().timeoutMs());
+
+        // L'hôte passe à 400 ms : un seul dépassement suffit à relever le p99, puis les appels aboutissent
+        assertThrows(ResourceAccessException.class, () -> callHost(400));
+        assertTrue(circuit().timeoutMs() > 400, "délai relevé : " + circuit().timeoutMs());
+        for (int i = 0; i < 10; i++) {
+            callHost(400);
+        }
+        assertEquals(State.CLOSED, circuit().state());
+        assertEquals(0, circuit().consecutiveFailures());
+    }
+
+    @Test
+    void trialCallGetsTheMaximumTimeout() {
+        for (int i = 0; i < 30; i++) {
+            callHost(50);
+        }
+        fail();
+        fail();
+        fail();
+        nanos += TimeUnit.SECONDS.toNanos(10);
+
+        // Hôte revenu, mais plus lent que son ancien délai de 200 ms : l'essai referme le circuit
+        assertEquals(properties.getMaxTimeout().toMillis(), callHost(400));
+        assertEquals(State.CLOSED, circuit().state());
+        assertTrue(circuit().timeoutMs() > 400);
+    }
+
+    @Test
+    void callerTimeoutsDoNotCountAgainstTheHost() {
+        for (int i = 0; i < 5; i++) {
+            assertThrows(ResourceAccessException.class,
+                    () -> OutboundRequestTimeout.call(Duration.ofMillis(50), () -> callHost(400)));
+        }
+        assertEquals(State.CLOSED, circuit().state());
+        assertEquals(0, circuit().samples());
+    }
+
+    @Test
+    void downstreamWritesAreNeitherTimedNorHeldAgainstTheHost() {
+        for (int i = 0; i < properties.getMinSamples(); i++) {
+            // 100 ms d'amont, 900 ms d'écriture vers un client lent
+            breaker.call(URL, () -> nanos += TimeUnit.MILLISECONDS.toNanos(1_000), () -> TimeUnit.MILLISECONDS.toNanos(900));
+        }
+        assertEquals(300, circuit().timeoutMs(), 40);
+
+        for (int i = 0; i < 5; i++) {
+            assertThrows(DownstreamWriteException.class, () -> breaker.call(URL, () -> {
+                throw new DownstreamWriteException(new IOException("Broken pipe"));
+            }, () -> 0));
+        }
+        assertEquals(State.CLOSED, circuit().state());
+        assertEquals(0, circuit().consecutiveFailures());
+        assertEquals(properties.getMinSamples(), circuit().samples());
+    }
+
+    @Test
+    void timeoutFollowsTheLatencyOfTheHost() {
+        succeed(100);
+        assertEquals(properties.getMaxTimeout().toMillis(), circuit().timeoutMs(), "trop peu d'échantillons");
+
+        for (int i = 0; i < properties.getMinSamples(); i++) {
+            succeed(100);
+        }
+        long timeout = circuit().timeoutMs();
+        // 3 × p99, à la précision de l'histogramme (12,5 %) près
+        assertEquals(300, timeout, 40);
+        assertEquals(Duration.ofMillis(timeout), breaker.call(URL, OutboundRequestTimeout::current));
+
+        // Délai plus court de l'appelant (lots de sondes) conservé
+        assertEquals(Duration.ofMillis(50), OutboundRequestTimeout.call(Duration.ofMillis(50),
+                () -> breaker.call(URL, OutboundRequestTimeout::current)));
+
+        properties.setMinTimeout(Duration.ofSeconds(1));
+        assertEquals(1_000, circuit().timeoutMs());
+    }
+}
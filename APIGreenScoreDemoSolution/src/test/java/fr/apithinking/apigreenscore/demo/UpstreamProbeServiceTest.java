@@ -0,0 +1,167 @@
+package fr.apithinking.apigreenscore.demo;
+
+import fr.apithinking.apigreenscore.demo.ProbeResponseCache.ProbeType;
+import fr.apithinking.apigreenscore.demo.UpstreamCircuitBreaker.CircuitOpenException;
+import fr.apithinking.apigreenscore.demo.UpstreamProbeService.CoalescedProbeException;
+import fr.apithinking.apigreenscore.demo.UpstreamProbeService.ProbeResult;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Bursts of concurrent identical probes against a slow local upstream, cache disabled:
+ * each burst must cost exactly one upstream call.
+ */
+class UpstreamProbeServiceTest {
+
+    private static final int CALLERS = 300;
+    private static final int BURSTS = 3;
+
+    private StubHttpServer upstream;
+    private CloseableHttpClient client;
+    private UpstreamProbeService service;
+    private ExecutorService callers;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        upstream = new StubHttpServer().delay(Duration.ofMillis(300));
+        OutboundHttpClientConfiguration configuration = new OutboundHttpClientConfiguration();
+        OutboundHttpClientProperties properties = new OutboundHttpClientProperties();
+        client = configuration.outboundHttpClient(configuration.outboundConnectionManager(properties), properties);
+        ProbeCacheProperties cacheProperties = new ProbeCacheProperties();
+        cacheProperties.setEnabled(false);
+        service = new UpstreamProbeService(configuration.outboundRestTemplate(client), new ProbeResponseCache(cacheProperties),
+                new UpstreamCircuitBreaker(new CircuitBreakerProperties()), properties);
+        callers = Executors.newFixedThreadPool(CALLERS);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        callers.shutdownNow();
+        client.close();
+        upstream.close();
+    }
+
+    @Test
+    void concurrentIdenticalProbesShareOneUpstreamCall() throws Exception {
+        String url = upstream.url("/slow");
+        for (int burst = 1; burst <= BURSTS; burst++) {
+            List<ProbeResult> results = new ArrayList<>();
+            for (Future<ProbeResult> future : burst(() -> service.probe(ProbeType.URL, url))) {
+                results.add(future.get());
+            }
+
+            assertEquals(burst, upstream.hits(), "un seul appel amont par rafale");
+            assertEquals(CALLERS - 1, results.stream().filter(ProbeResult::coalesced).count());
+            assertEquals(CALLERS, results.stream().filter(r -> r.statusCode() == 200).count());
+            assertEquals(0, service.getInFlightCount());
+        }
+    }
+
+    @Test
+    void probesOfAnotherTypeDoNotShareTheCall() throws Exception {
+        String url = upstream.url("/slow");
+        AtomicInteger probes = new AtomicInteger();
+        List<Future<ProbeResult>> futures = burst(() ->
+                service.probe(probes.incrementAndGet() % 2 == 0 ? ProbeType.URL : ProbeType.JSON, url));
+        for (Future<ProbeResult> future : futures) {
+            assertEquals(200, future.get().statusCode());
+        }
+
+        assertEquals(2, upstream.hits(), "un appel amont par type de sonde");
+    }
+
+    @Test
+    void tighterCallerTimeoutDoesNotDecideForOtherCallers() throws Exception {
+        String url = upstream.url("/slow");
+        // Sonde d'un lot au délai de 100 ms, partie la première
+        Future<ProbeResult> tight = callers.submit(() ->
+                OutboundRequestTimeout.call(Duration.ofMillis(100), () -> service.probe(ProbeType.URL, url)));
+        while (service.getInFlightCount() == 0) {
+            Thread.onSpinWait();
+        }
+
+        ProbeResult result = service.probe(ProbeType.URL, url);
+
+        assertEquals(200, result.statusCode());
+        assertFalse(result.coalesced());
+        ExecutionException timedOut = assertThrows(ExecutionException.class, tight::get);
+        assertInstanceOf(ResourceAccessException.class, timedOut.getCause());
+        assertEquals(2, upstream.hits());
+    }
+
+    @Test
+    void followersShareTheLeaderFailure() throws Exception {
+        upstream.respond(500, "text/plain", "erreur");
+        String url = upstream.url("/down");
+
+        int coalescedFailures = 0;
+        for (Future<ProbeResult> future : burst(() -> service.probe(ProbeType.URL, url))) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof CoalescedProbeException coalesced) {
+                    assertInstanceOf(HttpServerErrorException.class, coalesced.getCause());
+                    coalescedFailures++;
+                } else {
+                    assertInstanceOf(HttpServerErrorException.class, e.getCause());
+                }
+            }
+        }
+
+        assertEquals(1, upstream.hits());
+        assertEquals(CALLERS - 1, coalescedFailures);
+    }
+
+    @Test
+    void downHostIsShortCircuitedAfterRepeatedFailures() {
+        upstream.delay(Duration.ZERO).respond(500, "text/plain", "erreur");
+        String url = upstream.url("/down");
+        int threshold = new CircuitBreakerProperties().getFailureThreshold();
+
+        for (int i = 0; i < threshold; i++) {
+            assertThrows(HttpServerErrorException.class, () -> service.probe(ProbeType.URL, url));
+        }
+        CircuitOpenException open = assertThrows(CircuitOpenException.class, () -> service.probe(ProbeType.URL, url));
+
+        assertEquals(threshold, upstream.hits(), "circuit ouvert : plus d'appel amont");
+        assertTrue(open.getRetryAfterMillis() > 0);
+    }
+
+    private List<Future<ProbeResult>> burst(Callable<ProbeResult> probe) throws InterruptedException {
+        CountDownLatch ready = new CountDownLatch(CALLERS);
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<ProbeResult>> futures = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            futures.add(callers.submit(() -> {
+                ready.countDown();
+                go.await();
+                return probe.call();
+            }));
+        }
+        ready.await();
+        go.countDown();
+        return futures;
+    }
+}